@@ -3,6 +3,9 @@ package com.mantledillusion.metrics.trail;
 import com.mantledillusion.metrics.trail.api.Event;
 import com.mantledillusion.metrics.trail.api.Measurement;
 import com.mantledillusion.metrics.trail.api.EventFields;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
@@ -16,12 +19,15 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * {@link MetricsConsumer} implementation that is able to persist consumed {@link Event}s into an Elastic database.
+ * <p>
+ * Batches of {@link Event}s are persisted using a single bulk request.
  */
-public class ElasticMetricsPersistor implements MetricsConsumer {
+public class ElasticMetricsPersistor implements MetricsBatchConsumer {
 
     public static final String DEFAULT_INDEX_PREFIX = "metrics.";
 
@@ -95,6 +101,29 @@ public class ElasticMetricsPersistor implements MetricsConsumer {
 
     @Override
     public void consume(String consumerId, UUID correlationId, Event event) throws IOException {
+        this.client.index(toRequest(consumerId, correlationId, event), RequestOptions.DEFAULT);
+    }
+
+    @Override
+    public void consume(String consumerId, List<BatchedEvent> batch) throws IOException {
+        BulkRequest bulkRequest = new BulkRequest();
+        for (BatchedEvent batchedEvent : batch) {
+            bulkRequest.add(toRequest(consumerId, batchedEvent.getCorrelationId(), batchedEvent.getEvent()));
+        }
+
+        BulkResponse response = this.client.bulk(bulkRequest, RequestOptions.DEFAULT);
+        if (response.hasFailures()) {
+            BulkItemResponse[] items = response.getItems();
+            for (int i = 0; i < items.length; i++) {
+                if (!items[i].isFailed()) {
+                    batch.get(i).acknowledge();
+                }
+            }
+            throw new IOException("Persisting a batch of events failed partially: " + response.buildFailureMessage());
+        }
+    }
+
+    private IndexRequest toRequest(String consumerId, UUID correlationId, Event event) throws IOException {
         XContentBuilder builder = XContentFactory.jsonBuilder()
                 .startObject()
                 .field(EventFields.CONSUMER_ID.getName(), consumerId)
@@ -158,12 +187,11 @@ public class ElasticMetricsPersistor implements MetricsConsumer {
                 break;
         }
 
-        this.client.index(new IndexRequest()
+        return new IndexRequest()
                 .index(index)
                 .source(builder
                         .timeField(EventFields.TIMESTAMP.getName(), event.getTimestamp())
-                        .endObject()),
-                RequestOptions.DEFAULT);
+                        .endObject());
     }
 
     /**
@@ -1,11 +1,15 @@
 package com.mantledillusion.metrics.trail;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
 import co.elastic.clients.elasticsearch.core.IndexRequest;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
 import com.mantledillusion.metrics.trail.api.Event;
 import com.mantledillusion.metrics.trail.api.Measurement;
 import com.mantledillusion.metrics.trail.api.EventFields;
 import jakarta.json.Json;
+import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
 
 import java.io.IOException;
@@ -16,12 +20,15 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * {@link MetricsConsumer} implementation that is able to persist consumed {@link Event}s into an Elastic database.
+ * <p>
+ * Batches of {@link Event}s are persisted using a single bulk request.
  */
-public class ElasticMetricsPersistor implements MetricsConsumer {
+public class ElasticMetricsPersistor implements MetricsBatchConsumer {
 
     public static final String DEFAULT_INDEX_PREFIX = "metrics.";
 
@@ -95,6 +102,38 @@ public class ElasticMetricsPersistor implements MetricsConsumer {
 
     @Override
     public void consume(String consumerId, UUID correlationId, Event event) throws IOException {
+        JsonObject document = toDocument(consumerId, correlationId, event);
+        this.client.index(IndexRequest.of(b -> b
+                .index(toIndex(consumerId, event))
+                .document(document)));
+    }
+
+    @Override
+    public void consume(String consumerId, List<BatchedEvent> batch) throws IOException {
+        BulkRequest.Builder bulkBuilder = new BulkRequest.Builder();
+        for (BatchedEvent batchedEvent : batch) {
+            JsonObject document = toDocument(consumerId, batchedEvent.getCorrelationId(), batchedEvent.getEvent());
+            bulkBuilder.operations(o -> o.index(b -> b
+                    .index(toIndex(consumerId, batchedEvent.getEvent()))
+                    .document(document)));
+        }
+
+        BulkResponse response = this.client.bulk(bulkBuilder.build());
+        if (response.errors()) {
+            String reason = null;
+            List<BulkResponseItem> items = response.items();
+            for (int i = 0; i < items.size(); i++) {
+                if (items.get(i).error() == null) {
+                    batch.get(i).acknowledge();
+                } else if (reason == null) {
+                    reason = items.get(i).error().reason();
+                }
+            }
+            throw new IOException("Persisting a batch of events failed partially: " + reason);
+        }
+    }
+
+    private JsonObject toDocument(String consumerId, UUID correlationId, Event event) {
         JsonObjectBuilder builder = Json.createObjectBuilder()
                 .add(EventFields.CONSUMER_ID.getName(), consumerId)
                 .add(EventFields.CORRELATION_ID.getName(), correlationId.toString())
@@ -129,19 +168,19 @@ public class ElasticMetricsPersistor implements MetricsConsumer {
                         builder.add(name, (BigDecimal) measurement.parseValue());
                         break;
                     case LOCAL_DATE:
-                        LocalDate localDate = LocalDate.parse(measurement.getValue());
+                        LocalDate localDate = measurement.parseValue();
                         builder.add(name, DateTimeFormatter.ISO_LOCAL_DATE.format(localDate));
                         break;
                     case LOCAL_TIME:
-                        LocalTime localTime = LocalTime.parse(measurement.getValue());
+                        LocalTime localTime = measurement.parseValue();
                         builder.add(name, DateTimeFormatter.ISO_LOCAL_TIME.format(localTime));
                         break;
                     case LOCAL_DATETIME:
-                        LocalDateTime localDateTime = LocalDateTime.parse(measurement.getValue());
+                        LocalDateTime localDateTime = measurement.parseValue();
                         builder.add(name, DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(localDateTime));
                         break;
                     case ZONED_DATETIME:
-                        ZonedDateTime zonedDateTime = ZonedDateTime.parse(measurement.getValue());
+                        ZonedDateTime zonedDateTime = measurement.parseValue();
                         builder.add(name, DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(zonedDateTime));
                         break;
                     default:
@@ -151,23 +190,20 @@ public class ElasticMetricsPersistor implements MetricsConsumer {
             }
         }
 
-        String index;
+        return builder
+                .add(EventFields.TIMESTAMP.getName(), DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(event.getTimestamp()))
+                .build();
+    }
+
+    private String toIndex(String consumerId, Event event) {
         switch (this.indexMode) {
             case IDENTIFIER:
-                index = this.indexPrefix + event.getIdentifier();
-                break;
+                return this.indexPrefix + event.getIdentifier();
             case CONSUMER:
-                index = consumerId;
-                break;
+                return consumerId;
             default:
-                index = this.indexPrefix;
+                return this.indexPrefix;
         }
-
-        this.client.index(IndexRequest.of(b -> b
-                .index(index)
-                .document(builder
-                        .add(EventFields.TIMESTAMP.getName(), DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(event.getTimestamp()))
-                        .build())));
     }
 
     /**
@@ -8,18 +8,18 @@ import org.influxdb.dto.Point;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.time.Instant;
-import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
  * {@link MetricsConsumer} implementation that is able to persist consumed {@link Event}s into an InfluxDB database
  * as {@link Point}s.
+ * <p>
+ * Batches of {@link Event}s are written as a single request.
  */
-public class InfluxMetricsPersistor implements MetricsConsumer {
-
-    private static final BigDecimal NANOS_PER_SECOND = new BigDecimal(1000000000L);
+public class InfluxMetricsPersistor implements MetricsBatchConsumer {
 
     private final InfluxDB db;
 
@@ -29,8 +29,21 @@ public class InfluxMetricsPersistor implements MetricsConsumer {
 
     @Override
     public void consume(String consumerId, UUID correlationId, Event event) {
+        this.db.write(toPoint(consumerId, correlationId, event));
+    }
+
+    @Override
+    public void consume(String consumerId, List<BatchedEvent> batch) {
+        List<String> records = new ArrayList<>(batch.size());
+        for (BatchedEvent batchedEvent : batch) {
+            records.add(toPoint(consumerId, batchedEvent.getCorrelationId(), batchedEvent.getEvent()).lineProtocol());
+        }
+        this.db.write(records);
+    }
+
+    private static Point toPoint(String consumerId, UUID correlationId, Event event) {
         Point.Builder pointBuilder = Point.measurement(event.getIdentifier())
-                .time(getNanos(event.getTimestamp()), TimeUnit.NANOSECONDS)
+                .time(event.getTimestampNanos(), TimeUnit.NANOSECONDS)
                 .tag(EventFields.CONSUMER_ID.getName("_"), consumerId)
                 .tag(EventFields.CORRELATION_ID.getName("_"), correlationId.toString());
 
@@ -68,14 +81,7 @@ public class InfluxMetricsPersistor implements MetricsConsumer {
             }
         }
 
-        this.db.write(pointBuilder.build());
-    }
-
-    private static Number getNanos(ZonedDateTime timeStamp) {
-        Instant instant = timeStamp.toInstant();
-        BigDecimal seconds = new BigDecimal(instant.getEpochSecond());
-        BigDecimal nanos = seconds.multiply(NANOS_PER_SECOND);
-        return nanos.add(new BigDecimal(instant.getNano()));
+        return pointBuilder.build();
     }
 
     /**
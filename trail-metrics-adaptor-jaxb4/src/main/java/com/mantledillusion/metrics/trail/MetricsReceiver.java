@@ -1,10 +1,12 @@
 package com.mantledillusion.metrics.trail;
 
 import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.web.WebMetric;
 import com.mantledillusion.metrics.trail.api.web.WebMetricRequest;
 
 import java.util.*;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * A receiver for {@link WebMetricRequest}s that is able to deliver them to registered {@link MetricsConsumer}s.
@@ -101,11 +103,10 @@ public class MetricsReceiver {
                     requestConsumer.getTrails().parallelStream().forEach(trail -> {
                         UUID correlationId = UUID.fromString(trail.getCorrelationId());
                         MetricsTrailConsumer.MetricsTrailConsumerQueue queue = consumer.queueFor(correlationId);
-                        // ...and that trail's metrics...
-                        trail.getMetrics().stream().forEach(metric -> {
-                            // ...enqueue them to the queue...
-                            queue.enqueue(metric.to());
-                        });
+                        // ...enqueue that trail's metrics to the queue in one pass...
+                        queue.enqueueAll(trail.getMetrics().stream()
+                                .map(WebMetric::to)
+                                .collect(Collectors.toList()));
                         // ...and then end the trail
                         queue.onTrailEnd();
                     });
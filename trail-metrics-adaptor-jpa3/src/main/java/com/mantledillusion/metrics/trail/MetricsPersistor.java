@@ -12,12 +12,18 @@ import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Root;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * {@link MetricsConsumer} implementation that is able to persist consumed {@link Event}s into a JPA database.
+ * <p>
+ * Batches of {@link Event}s are persisted in a single transaction.
  */
-public class MetricsPersistor implements MetricsConsumer {
+public class MetricsPersistor implements MetricsBatchConsumer {
 
     private final EntityManager em;
 
@@ -27,34 +33,28 @@ public class MetricsPersistor implements MetricsConsumer {
 
     @Override
     public void consume(String consumerId, UUID correlationId, Event event) {
+        consume(consumerId, Collections.singletonList(new BatchedEvent(correlationId, event)));
+    }
+
+    @Override
+    public void consume(String consumerId, List<BatchedEvent> batch) {
         EntityTransaction tx = this.em.getTransaction();
         tx.begin();
 
         try {
-            CriteriaBuilder builder = this.em.getCriteriaBuilder();
-            CriteriaQuery<DbTrailConsumer> query = builder.createQuery(DbTrailConsumer.class);
-            Root<DbTrailConsumer> root = query.from(DbTrailConsumer.class);
+            Map<UUID, DbTrailConsumer> dbConsumerTrails = new HashMap<>();
+            for (BatchedEvent batchedEvent : batch) {
+                DbTrailConsumer dbConsumerTrail = dbConsumerTrails.computeIfAbsent(batchedEvent.getCorrelationId(),
+                        correlationId -> findTrail(consumerId, correlationId));
 
-            query.select(root).where(builder.and(
-                    builder.equal(root.get("consumerId"), consumerId),
-                    builder.equal(root.get("correlationId"), correlationId)
-            ));
-            TypedQuery<DbTrailConsumer> trailTypedQuery = this.em.createQuery(query);
+                DbTrailEvent dbTrailEvent = DbTrailEvent.from(batchedEvent.getEvent());
+                dbTrailEvent.setTrail(dbConsumerTrail);
 
-            DbTrailConsumer dbConsumerTrail;
-            try {
-                dbConsumerTrail = trailTypedQuery.getSingleResult();
-            } catch (NoResultException e) {
-                dbConsumerTrail = new DbTrailConsumer(correlationId, consumerId);
-            }
+                dbConsumerTrail.setEvents(dbConsumerTrail.getEvents() != null ? dbConsumerTrail.getEvents() : new ArrayList<>());
+                dbConsumerTrail.getEvents().add(dbTrailEvent);
 
-            DbTrailEvent dbTrailEvent = DbTrailEvent.from(event);
-            dbTrailEvent.setTrail(dbConsumerTrail);
-
-            dbConsumerTrail.setEvents(dbConsumerTrail.getEvents() != null ? dbConsumerTrail.getEvents() : new ArrayList<>());
-            dbConsumerTrail.getEvents().add(dbTrailEvent);
-
-            this.em.persist(dbTrailEvent);
+                this.em.persist(dbTrailEvent);
+            }
             tx.commit();
         } catch (Exception e) {
             tx.rollback();
@@ -62,6 +62,24 @@ public class MetricsPersistor implements MetricsConsumer {
         }
     }
 
+    private DbTrailConsumer findTrail(String consumerId, UUID correlationId) {
+        CriteriaBuilder builder = this.em.getCriteriaBuilder();
+        CriteriaQuery<DbTrailConsumer> query = builder.createQuery(DbTrailConsumer.class);
+        Root<DbTrailConsumer> root = query.from(DbTrailConsumer.class);
+
+        query.select(root).where(builder.and(
+                builder.equal(root.get("consumerId"), consumerId),
+                builder.equal(root.get("correlationId"), correlationId)
+        ));
+        TypedQuery<DbTrailConsumer> trailTypedQuery = this.em.createQuery(query);
+
+        try {
+            return trailTypedQuery.getSingleResult();
+        } catch (NoResultException e) {
+            return new DbTrailConsumer(correlationId, consumerId);
+        }
+    }
+
     /**
      * Factory method for {@link MetricsPersistor}s.
      * <p>
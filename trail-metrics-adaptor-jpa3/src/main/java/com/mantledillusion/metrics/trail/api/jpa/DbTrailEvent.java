@@ -5,8 +5,10 @@ import com.mantledillusion.metrics.trail.api.Event;
 import com.mantledillusion.metrics.trail.api.Measurement;
 
 import jakarta.persistence.*;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -19,6 +21,8 @@ import java.util.stream.Collectors;
 		@Index(name = "IDX_METRIC_IDENTIFIER", columnList = "identifier")})
 public class DbTrailEvent {
 
+	private static final long NANOS_PER_SECOND = 1000000000L;
+
 	@Id
 	@Column(name = "id", nullable = false)
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -197,9 +201,14 @@ public class DbTrailEvent {
 			throw new IllegalArgumentException("Cannot map a null metric");
 		}
 		DbTrailEvent target = new DbTrailEvent(source.getIdentifier());
-		if (source.getTimestamp() != null) {
-			target.setTimestamp(source.getTimestamp().toLocalDateTime());
-			target.setTimezone(source.getTimestamp().getZone());
+		ZoneId zone = source.getTimestampZone();
+		if (zone != null) {
+			// the local date time is computed from the epoch nanos, without materializing the event's ZonedDateTime
+			long epochSecond = Math.floorDiv(source.getTimestampNanos(), NANOS_PER_SECOND);
+			int nano = (int) Math.floorMod(source.getTimestampNanos(), NANOS_PER_SECOND);
+			ZoneOffset offset = zone.getRules().getOffset(Instant.ofEpochSecond(epochSecond));
+			target.setTimestamp(LocalDateTime.ofEpochSecond(epochSecond, nano, offset));
+			target.setTimezone(zone);
 		}
 
 		if (source.getMeasurements() != null) {
@@ -1,8 +1,12 @@
 package com.mantledillusion.metrics.trail;
 
+import com.mantledillusion.metrics.trail.api.DeferredMeasurement;
 import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.FrozenEvent;
+import com.mantledillusion.metrics.trail.api.Measurement;
+import com.mantledillusion.metrics.trail.api.PrimitiveMeasurement;
 
-import java.util.Objects;
+import java.util.List;
 
 /**
  * Validator for {@link Event} instances.
@@ -18,6 +22,9 @@ public class EventValidator {
 	 * - Has to have a non-empty identifier<br>
 	 * - Has to have a type<br>
 	 * - If it has measurements, they all have to be non-null with non-empty key and non-null type<br>
+	 * - If it has measurements, their values have to be valid for their type; unresolved {@link DeferredMeasurement}s are not rendered and {@link PrimitiveMeasurement}s are not parsed for that<br>
+	 * <p>
+	 * A {@link FrozenEvent} is validated when it is frozen and cannot change afterwards, so it is not validated again.
 	 * 
 	 * @param event The event to validate; might be null.
 	 * @throws IllegalArgumentException If the event is invalid in any way.
@@ -25,32 +32,39 @@ public class EventValidator {
 	public static void validate(Event event) throws IllegalArgumentException {
 		if (event == null) {
 			throw new IllegalArgumentException("Cannot dispatch a null event");
-		} else if (event.getTimestamp() == null) {
+		} else if (!(event instanceof FrozenEvent)) {
+			validateMutable(event);
+		}
+	}
+
+	private static void validateMutable(Event event) {
+		if (event.getTimestampZone() == null) {
 			throw new IllegalArgumentException("Cannot dispatch a timestampless event");
 		} else if (event.getIdentifier() == null || event.getIdentifier().isEmpty()) {
 			throw new IllegalArgumentException("Cannot dispatch an identifierless event");
 		}
 
-		if (event.getMeasurements() != null) {
-			if (event.getMeasurements().stream().anyMatch(Objects::isNull)) {
-				throw new IllegalArgumentException("Cannot dispatch an event with an attribute that is null");
-			} else if (event.getMeasurements().stream().anyMatch(attr -> attr.getKey() == null)) {
-				throw new IllegalArgumentException("Cannot dispatch an event with an attribute whose key is null");
+		List<Measurement> measurements = event.getMeasurements();
+		if (measurements != null) {
+			// a single pass without streams, since this runs for every committed event
+			for (int i = 0, size = measurements.size(); i < size; i++) {
+				Measurement attr = measurements.get(i);
+				if (attr == null) {
+					throw new IllegalArgumentException("Cannot dispatch an event with an attribute that is null");
+				} else if (attr.getKey() == null) {
+					throw new IllegalArgumentException("Cannot dispatch an event with an attribute whose key is null");
+				} else if (attr.getType() == null) {
+					throw new IllegalArgumentException(String.format("Cannot dispatch an event with attribute %s whose type is null", attr.getKey()));
+				} else if (!isValidByConstruction(attr) && !attr.getType().valid(attr.getValue())) {
+					throw new IllegalArgumentException(String.format("Cannot dispatch an event with attribute %s whose value '%s' is invalid for its type %s", attr.getKey(), attr.getValue(), attr.getType()));
+				}
 			}
-
-			event.getMeasurements().stream()
-					.filter(attr -> attr.getType() == null)
-					.findFirst()
-					.ifPresent(attr -> {
-						throw new IllegalArgumentException(String.format("Cannot dispatch an event with attribute %s whose type is null", attr.getKey()));
-					});
-
-			event.getMeasurements().stream()
-					.filter(attr -> !attr.getType().valid(attr.getValue()))
-					.findFirst()
-					.ifPresent(attr -> {
-						throw new IllegalArgumentException(String.format("Cannot dispatch an event with attribute %s whose value '%s' is invalid for its type %s", attr.getKey(), attr.getValue(), attr.getType()));
-					});
 		}
 	}
+
+	private static boolean isValidByConstruction(Measurement attr) {
+		// unresolved deferred values are not rendered for validation, primitive ones cannot be invalid
+		return (attr instanceof DeferredMeasurement && !((DeferredMeasurement) attr).isResolved())
+				|| (attr instanceof PrimitiveMeasurement && ((PrimitiveMeasurement) attr).isPrimitive());
+	}
 }
@@ -0,0 +1,103 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A {@link MetricsConsumer} that is able to consume multiple {@link Event}s of possibly multiple trails at once.
+ * <p>
+ * Consuming a whole batch at once allows sinks to reduce their round trips, for example by using a single transaction
+ * or a single bulk request for all {@link Event}s of the batch.
+ */
+@FunctionalInterface
+public interface MetricsBatchConsumer extends MetricsConsumer {
+
+    /**
+     * A single {@link Event} of a batch, together with the ID of the trail it occurred in.
+     * <p>
+     * When a batch can only be consumed partially, the successfully consumed elements can be
+     * {@link #acknowledge()}d before throwing an {@link Exception}, so only the remaining elements are retried.
+     */
+    final class BatchedEvent {
+
+        private final UUID correlationId;
+        private final Event event;
+        private volatile boolean acknowledged;
+
+        /**
+         * Constructor.
+         *
+         * @param correlationId The {@link UUID} of the trail the event occurred in; might <b>not</b> be null.
+         * @param event The {@link Event} to consume; might <b>not</b> be null.
+         */
+        public BatchedEvent(UUID correlationId, Event event) {
+            if (correlationId == null) {
+                throw new IllegalArgumentException("Cannot batch an event without a correlation id");
+            } else if (event == null) {
+                throw new IllegalArgumentException("Cannot batch a null event");
+            }
+            this.correlationId = correlationId;
+            this.event = event;
+        }
+
+        /**
+         * Returns the {@link UUID} of the trail the event occurred in.
+         *
+         * @return The correlation ID, never null
+         */
+        public UUID getCorrelationId() {
+            return this.correlationId;
+        }
+
+        /**
+         * Returns the {@link Event} to consume.
+         *
+         * @return The event, never null
+         */
+        public Event getEvent() {
+            return this.event;
+        }
+
+        /**
+         * Marks this element as successfully consumed, so it will not be part of a retry even if consuming the
+         * batch fails.
+         */
+        public void acknowledge() {
+            this.acknowledged = true;
+        }
+
+        /**
+         * Returns whether this element has been marked as successfully consumed.
+         *
+         * @return True if the element has been acknowledged, false otherwise
+         */
+        public boolean isAcknowledged() {
+            return this.acknowledged;
+        }
+    }
+
+    /**
+     * Consumes a batch of {@link Event}s.
+     * <p>
+     * If the method returns normally, all elements of the batch are regarded as consumed. If it throws an
+     * {@link Exception}, all elements that have not been {@link BatchedEvent#acknowledge()}d will be retried later.
+     *
+     * @param consumerId
+     *            The id of this consumer's registration that lead to the consumer being called; might <b>not</b> be null.
+     * @param batch
+     *            The batch of {@link BatchedEvent}s to consume, ordered by their occurrence per trail; never null or
+     *            empty.
+     * @throws Exception
+     *             Any {@link Exception} that might be thrown during consuming. Throwing an {@link Exception} will
+     *             cause the method to be called again later with the batch's unacknowledged elements for a retry.
+     */
+    void consume(String consumerId, List<BatchedEvent> batch) throws Exception;
+
+    @Override
+    default void consume(String consumerId, UUID correlationId, Event event) throws Exception {
+        consume(consumerId, Collections.singletonList(new BatchedEvent(correlationId, event)));
+    }
+}
@@ -0,0 +1,48 @@
+package com.mantledillusion.metrics.trail.api;
+
+import java.lang.ref.WeakReference;
+import java.time.ZoneId;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An {@link EventClock} reading a cached time that is updated by a daemon thread.
+ */
+final class CoarseEventClock implements EventClock {
+
+	private final SystemEventClock system;
+	private volatile long epochNanos;
+
+	private CoarseEventClock(ZoneId zone) {
+		this.system = new SystemEventClock(zone);
+		this.epochNanos = this.system.epochNanos();
+	}
+
+	static CoarseEventClock start(long resolutionNanos, ZoneId zone) {
+		CoarseEventClock clock = new CoarseEventClock(zone);
+		// the thread only references the clock weakly, so it ends when the clock is not used anymore
+		WeakReference<CoarseEventClock> reference = new WeakReference<>(clock);
+		Thread thread = new Thread(() -> {
+			while (true) {
+				LockSupport.parkNanos(resolutionNanos);
+				CoarseEventClock referenced = reference.get();
+				if (referenced == null) {
+					return;
+				}
+				referenced.epochNanos = referenced.system.epochNanos();
+			}
+		}, "trail-metrics-coarse-clock");
+		thread.setDaemon(true);
+		thread.start();
+		return clock;
+	}
+
+	@Override
+	public long epochNanos() {
+		return this.epochNanos;
+	}
+
+	@Override
+	public ZoneId zone() {
+		return this.system.zone();
+	}
+}
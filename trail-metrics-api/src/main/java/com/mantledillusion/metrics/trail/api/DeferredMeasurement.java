@@ -0,0 +1,83 @@
+package com.mantledillusion.metrics.trail.api;
+
+import java.util.function.Supplier;
+
+/**
+ * Represents a measurement of an {@link Event} whose value is expensive to render and is therefore only rendered
+ * when it is actually needed.
+ * <p>
+ * The value's {@link Supplier} is invoked at most once, by the first call to {@link #getValue()}. Since filters and
+ * consumers of an {@link Event} are called after it has been committed, the supplier usually runs on a delivery
+ * thread, and only if a consumer or a predicate inspecting this measurement asks for the value. As a result, the
+ * supplier must not rely on the state of the committing thread, like thread locals or recycled request objects.
+ * <p>
+ * The supplier has to render a value that is valid for the measurement's type; if it fails by throwing a
+ * {@link RuntimeException}, the value stays null, so whoever asks for the value first is not failed by it.
+ */
+public class DeferredMeasurement extends Measurement {
+
+	private volatile Supplier<String> supplier;
+
+	/**
+	 * Pre-setting constructor.
+	 *
+	 * @param key
+	 *            The key of the measurement; might be null.
+	 * @param supplier
+	 *            The supplier of the measurement's value; might <b>not</b> be null.
+	 * @param type
+	 * 			  The type of the measurement's value; might be null.
+	 */
+	public DeferredMeasurement(String key, Supplier<String> supplier, MeasurementType type) {
+		super(key, null, type);
+		if (supplier == null) {
+			throw new IllegalArgumentException("Cannot defer a measurement's value to a null supplier");
+		}
+		this.supplier = supplier;
+	}
+
+	/**
+	 * Returns whether the measurement's value has already been rendered or set.
+	 *
+	 * @return True if the value is available without invoking the supplier, false otherwise
+	 */
+	public boolean isResolved() {
+		return this.supplier == null;
+	}
+
+	/**
+	 * Returns the value of the measurement, rendering it using the supplier if it has not been rendered yet.
+	 *
+	 * @return The value, might be null
+	 */
+	@Override
+	public String getValue() {
+		if (this.supplier != null) {
+			synchronized (this) {
+				Supplier<String> supplier = this.supplier;
+				if (supplier != null) {
+					try {
+						super.setValue(supplier.get());
+					} catch (RuntimeException e) {
+						// the value stays null instead of failing the delivery that happens to render it
+					} finally {
+						this.supplier = null;
+					}
+				}
+			}
+		}
+		return super.getValue();
+	}
+
+	/**
+	 * Sets the value of the measurement, discarding the supplier if it has not been invoked yet.
+	 *
+	 * @param value
+	 *            The value to set, might be null.
+	 */
+	@Override
+	public synchronized void setValue(String value) {
+		this.supplier = null;
+		super.setValue(value);
+	}
+}
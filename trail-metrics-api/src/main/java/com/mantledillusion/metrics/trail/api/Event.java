@@ -1,5 +1,7 @@
 package com.mantledillusion.metrics.trail.api;
 
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -16,14 +18,26 @@ import com.mantledillusion.metrics.trail.EventValidator;
  */
 public class Event {
 
+	static final long NANOS_PER_SECOND = 1000000000L;
+
+	private static volatile EventClock clock = EventClock.system();
+
 	private String identifier;
-	private ZonedDateTime timestamp = ZonedDateTime.now();
-	private List<Measurement> measurements = new ArrayList<>();
+	private long timestampNanos;
+	private ZoneId timestampZone;
+	// materialized from the nanos and zone on demand
+	private ZonedDateTime timestamp;
+	private List<Measurement> measurements;
 
 	/**
 	 * Default constructor.
 	 */
-	public Event() {}
+	public Event() {
+		EventClock clock = Event.clock;
+		this.timestampNanos = clock.epochNanos();
+		this.timestampZone = clock.zone();
+		this.measurements = new ArrayList<>();
+	}
 
 	/**
 	 * Constructor.
@@ -34,10 +48,43 @@ public class Event {
 	 * 			  additional Attributes; might not contain nulls.
 	 */
 	public Event(String identifier, Measurement... measurements) {
+		EventClock clock = Event.clock;
 		this.identifier = identifier;
+		this.timestampNanos = clock.epochNanos();
+		this.timestampZone = clock.zone();
 		this.measurements = new ArrayList<>(Arrays.asList(measurements));
 	}
 
+	Event(Event event) {
+		this.identifier = event.getIdentifier();
+		this.timestampNanos = event.timestampNanos;
+		this.timestampZone = event.timestampZone;
+		this.timestamp = event.timestamp;
+	}
+
+	/**
+	 * Returns the clock that provides the timestamps of new {@link Event}s.
+	 *
+	 * @return The clock, never null
+	 */
+	public static EventClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Sets the clock that provides the timestamps of new {@link Event}s.
+	 * <p>
+	 * By default, this is {@link EventClock#system()}.
+	 *
+	 * @param clock The clock to use; might <b>not</b> be null.
+	 */
+	public static void setClock(EventClock clock) {
+		if (clock == null) {
+			throw new IllegalArgumentException("Cannot set a null clock");
+		}
+		Event.clock = clock;
+	}
+
 	/**
 	 * Returns the identifier that allows categorizing {@link Event}s.
 	 * <p>
@@ -66,26 +113,85 @@ public class Event {
 	/**
 	 * Returns the timestamp at which this {@link Event} was created.
 	 * <p>
-	 * By default, this is set to {@link ZonedDateTime#now()}.
+	 * By default, this is set to the time of the {@link #getClock() clock}. The {@link ZonedDateTime} is only created
+	 * on the first call; consumers only requiring the point in time should use {@link #getTimestampNanos()}.
 	 *
 	 * @return The timestamp, might be null
 	 */
 	public ZonedDateTime getTimestamp() {
+		ZonedDateTime timestamp = this.timestamp;
+		if (timestamp == null && this.timestampZone != null) {
+			// materializing is idempotent, so threads racing to do it only do the same work twice
+			timestamp = ZonedDateTime.ofInstant(Instant.ofEpochSecond(
+					Math.floorDiv(this.timestampNanos, NANOS_PER_SECOND),
+					Math.floorMod(this.timestampNanos, NANOS_PER_SECOND)), this.timestampZone);
+			this.timestamp = timestamp;
+		}
 		return timestamp;
 	}
 
+	/**
+	 * Returns the timestamp at which this {@link Event} was created as nanoseconds since the epoch.
+	 *
+	 * @return The nanoseconds since 1970-01-01T00:00:00Z, 0 if the timestamp is null
+	 */
+	public long getTimestampNanos() {
+		return this.timestampNanos;
+	}
+
+	/**
+	 * Returns the zone of the timestamp at which this {@link Event} was created.
+	 *
+	 * @return The zone, null if the timestamp is null
+	 */
+	public ZoneId getTimestampZone() {
+		return this.timestampZone;
+	}
+
 	/**
 	 * Sets the timestamp at which this {@link Event} was created.
 	 * <p>
-	 * By default, this is set to {@link ZonedDateTime#now()}.
+	 * By default, this is set to the time of the {@link #getClock() clock}.
 	 *
 	 * @param timestamp
-	 *            The timestamp, might be null.
+	 *            The timestamp, might be null; might <b>not</b> be before 1677 or after 2262, which exceeds the
+	 *            range of nanoseconds since the epoch.
 	 */
 	public void setTimestamp(ZonedDateTime timestamp) {
+		if (timestamp == null) {
+			this.timestampNanos = 0;
+			this.timestampZone = null;
+		} else {
+			try {
+				this.timestampNanos = Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(), NANOS_PER_SECOND),
+						timestamp.getNano());
+			} catch (ArithmeticException e) {
+				throw new IllegalArgumentException("Cannot set a timestamp outside of the range of nanoseconds since the epoch", e);
+			}
+			this.timestampZone = timestamp.getZone();
+		}
 		this.timestamp = timestamp;
 	}
 
+	/**
+	 * Sets the timestamp at which this {@link Event} was created.
+	 * <p>
+	 * By default, this is set to the time of the {@link #getClock() clock}.
+	 *
+	 * @param timestampNanos
+	 *            The nanoseconds since 1970-01-01T00:00:00Z.
+	 * @param timestampZone
+	 *            The zone of the timestamp; might <b>not</b> be null.
+	 */
+	public void setTimestamp(long timestampNanos, ZoneId timestampZone) {
+		if (timestampZone == null) {
+			throw new IllegalArgumentException("Cannot set a timestamp with a null zone");
+		}
+		this.timestampNanos = timestampNanos;
+		this.timestampZone = timestampZone;
+		this.timestamp = null;
+	}
+
 	/**
 	 * Returns the list of this {@link Event}'s {@link Measurement}.
 	 *
@@ -95,6 +201,25 @@ public class Event {
 		return measurements;
 	}
 
+	/**
+	 * Returns the first of this {@link Event}'s {@link Measurement}s with the given key.
+	 *
+	 * @param key
+	 *            The key to look up; might be null.
+	 * @return The measurement, might be null if there is none with the given key
+	 */
+	public Measurement getMeasurement(String key) {
+		List<Measurement> measurements = getMeasurements();
+		if (measurements != null) {
+			for (Measurement measurement : measurements) {
+				if (measurement != null && Objects.equals(key, measurement.getKey())) {
+					return measurement;
+				}
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Returns the list of this {@link Event}'s {@link Measurement}.
 	 *
@@ -105,23 +230,36 @@ public class Event {
 		this.measurements = measurements;
 	}
 
+	/**
+	 * Returns an immutable, compact copy of this {@link Event} that can be shared safely.
+	 *
+	 * @return A new {@link FrozenEvent}, or this {@link Event} if it already is frozen, never null
+	 * @throws IllegalArgumentException If this event is invalid in any way.
+	 * @see FrozenEvent
+	 */
+	public FrozenEvent freeze() {
+		return FrozenEvent.of(this);
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
+		if (!(o instanceof Event)) return false;
 		Event event = (Event) o;
-		return Objects.equals(identifier, event.identifier) &&
-				Objects.equals(timestamp, event.timestamp) &&
-				Objects.equals(measurements, event.measurements);
+		// the point in time and the zone determine the timestamp, which does not have to be materialized for that
+		return Objects.equals(getIdentifier(), event.getIdentifier()) &&
+				getTimestampNanos() == event.getTimestampNanos() &&
+				Objects.equals(getTimestampZone(), event.getTimestampZone()) &&
+				Objects.equals(getMeasurements(), event.getMeasurements());
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(identifier, timestamp, measurements);
+		return Objects.hash(getIdentifier(), getTimestampNanos(), getTimestampZone(), getMeasurements());
 	}
 
 	@Override
 	public String toString() {
-		return this.identifier + " (" + this.timestamp + ")";
+		return getIdentifier() + " (" + getTimestamp() + ")";
 	}
 }
@@ -0,0 +1,60 @@
+package com.mantledillusion.metrics.trail.api;
+
+import java.time.Duration;
+import java.time.ZoneId;
+
+/**
+ * Provides the timestamps of newly created {@link Event}s.
+ * <p>
+ * Set using {@link Event#setClock(EventClock)}. A timestamp is taken as nanoseconds since the epoch plus a
+ * {@link ZoneId} that is shared by all {@link Event}s, so creating an {@link Event} neither looks up the default zone
+ * nor allocates a {@link java.time.ZonedDateTime}.
+ */
+public interface EventClock {
+
+	/**
+	 * Returns the current time.
+	 *
+	 * @return The nanoseconds since 1970-01-01T00:00:00Z
+	 */
+	long epochNanos();
+
+	/**
+	 * Returns the zone timestamps are taken in.
+	 *
+	 * @return The zone, never null
+	 */
+	ZoneId zone();
+
+	/**
+	 * Returns a clock reading the system time on every call, in the system's default zone at the time this clock is
+	 * created.
+	 * <p>
+	 * This is the default clock.
+	 *
+	 * @return A new {@link EventClock}, never null
+	 */
+	static EventClock system() {
+		return new SystemEventClock(ZoneId.systemDefault());
+	}
+
+	/**
+	 * Returns a clock reading a cached time that is updated by a daemon thread once per the given resolution, in the
+	 * system's default zone at the time this clock is created.
+	 * <p>
+	 * Reading the clock costs a single volatile read, in exchange for timestamps that might be up to the resolution
+	 * behind; {@link Event}s created within the same resolution share the same timestamp. The thread ends as soon as
+	 * the clock is not referenced anymore.
+	 *
+	 * @param resolution The interval to update the cached time in; might <b>not</b> be null, zero or negative.
+	 * @return A new {@link EventClock}, never null
+	 */
+	static EventClock coarse(Duration resolution) {
+		if (resolution == null) {
+			throw new IllegalArgumentException("Cannot create a coarse clock using a null resolution");
+		} else if (resolution.isNegative() || resolution.isZero()) {
+			throw new IllegalArgumentException("Cannot create a coarse clock using a resolution <= 0");
+		}
+		return CoarseEventClock.start(resolution.toNanos(), ZoneId.systemDefault());
+	}
+}
@@ -33,6 +33,45 @@ public class Measurement {
 		this.type = type;
 	}
 
+	/**
+	 * Creates a {@link MeasurementType#LONG} measurement whose value is stored as a primitive.
+	 *
+	 * @param key
+	 *            The key of the measurement; might be null.
+	 * @param value
+	 *            The value of the measurement.
+	 * @return A new {@link PrimitiveMeasurement}, never null
+	 */
+	public static PrimitiveMeasurement ofLong(String key, long value) {
+		return new PrimitiveMeasurement(key, value, MeasurementType.LONG);
+	}
+
+	/**
+	 * Creates a {@link MeasurementType#DOUBLE} measurement whose value is stored as a primitive.
+	 *
+	 * @param key
+	 *            The key of the measurement; might be null.
+	 * @param value
+	 *            The value of the measurement.
+	 * @return A new {@link PrimitiveMeasurement}, never null
+	 */
+	public static PrimitiveMeasurement ofDouble(String key, double value) {
+		return new PrimitiveMeasurement(key, Double.doubleToRawLongBits(value), MeasurementType.DOUBLE);
+	}
+
+	/**
+	 * Creates a {@link MeasurementType#BOOLEAN} measurement whose value is stored as a primitive.
+	 *
+	 * @param key
+	 *            The key of the measurement; might be null.
+	 * @param value
+	 *            The value of the measurement.
+	 * @return A new {@link PrimitiveMeasurement}, never null
+	 */
+	public static PrimitiveMeasurement ofBoolean(String key, boolean value) {
+		return new PrimitiveMeasurement(key, value ? 1 : 0, MeasurementType.BOOLEAN);
+	}
+
 	/**
 	 * Returns the key of the measurement.
 	 * 
@@ -92,21 +131,21 @@ public class Measurement {
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
+		if (!(o instanceof Measurement)) return false;
 		Measurement that = (Measurement) o;
 		return Objects.equals(key, that.key) &&
-				Objects.equals(value, that.value) &&
+				Objects.equals(getValue(), that.getValue()) &&
 				Objects.equals(type, that.type);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(key, value, type);
+		return Objects.hash(key, getValue(), type);
 	}
 
 	@Override
 	public String toString() {
-		return this.key + "=" + this.value;
+		return this.key + "=" + getValue();
 	}
 
 	/**
@@ -119,6 +158,6 @@ public class Measurement {
 		if (this.type == null) {
 			throw new IllegalStateException("Cannot parse a typeless measurement");
 		}
-		return (T) this.type.parse(this.value);
+		return (T) this.type.parse(getValue());
 	}
 }
@@ -0,0 +1,468 @@
+package com.mantledillusion.metrics.trail.api;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQuery;
+
+/**
+ * Parses and formats the values of a {@link MeasurementType}.
+ * <p>
+ * Codecs are stateless and locale-independent; the formatters they use are immutable and shared. Checking whether
+ * a value is valid never throws; for all but the temporal types, whose formatters can only report an invalid value
+ * by throwing, it neither allocates nor relies on catching exceptions.
+ *
+ * @param <T> The type of the values.
+ */
+abstract class MeasurementCodec<T> {
+
+    static final MeasurementCodec<String> STRING = new MeasurementCodec<String>(String.class) {
+
+        @Override
+        String tryParse(String value) {
+            return value;
+        }
+    };
+
+    static final MeasurementCodec<Boolean> BOOLEAN = new MeasurementCodec<Boolean>(Boolean.class) {
+
+        @Override
+        Boolean tryParse(String value) {
+            if ("true".equals(value) || "TRUE".equals(value)) {
+                return Boolean.TRUE;
+            } else if ("false".equals(value) || "FALSE".equals(value)) {
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+    };
+
+    static final MeasurementCodec<Short> SHORT = new MeasurementCodec<Short>(Short.class) {
+
+        @Override
+        boolean valid(String value) {
+            return isInteger(value, Short.MIN_VALUE, Short.MAX_VALUE);
+        }
+
+        @Override
+        Short tryParse(String value) {
+            long negated = negatedInteger(value, Short.MIN_VALUE, Short.MAX_VALUE);
+            return negated > 0 ? null : Short.valueOf((short) signed(value, negated));
+        }
+    };
+
+    static final MeasurementCodec<Integer> INTEGER = new MeasurementCodec<Integer>(Integer.class) {
+
+        @Override
+        boolean valid(String value) {
+            return isInteger(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        @Override
+        Integer tryParse(String value) {
+            long negated = negatedInteger(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            return negated > 0 ? null : Integer.valueOf((int) signed(value, negated));
+        }
+    };
+
+    static final MeasurementCodec<Long> LONG = new MeasurementCodec<Long>(Long.class) {
+
+        @Override
+        boolean valid(String value) {
+            return isInteger(value, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        @Override
+        Long tryParse(String value) {
+            long negated = negatedInteger(value, Long.MIN_VALUE, Long.MAX_VALUE);
+            return negated > 0 ? null : Long.valueOf(signed(value, negated));
+        }
+    };
+
+    static final MeasurementCodec<Float> FLOAT = new MeasurementCodec<Float>(Float.class) {
+
+        @Override
+        boolean valid(String value) {
+            return isFloatingPoint(value);
+        }
+
+        @Override
+        Float tryParse(String value) {
+            return isFloatingPoint(value) ? Float.valueOf(value) : null;
+        }
+    };
+
+    static final MeasurementCodec<Double> DOUBLE = new MeasurementCodec<Double>(Double.class) {
+
+        @Override
+        boolean valid(String value) {
+            return isFloatingPoint(value);
+        }
+
+        @Override
+        Double tryParse(String value) {
+            return isFloatingPoint(value) ? Double.valueOf(value) : null;
+        }
+    };
+
+    static final MeasurementCodec<BigInteger> BIGINTEGER = new MeasurementCodec<BigInteger>(BigInteger.class) {
+
+        @Override
+        boolean valid(String value) {
+            return isInteger(value, Long.MIN_VALUE, Long.MAX_VALUE) || isBigInteger(value);
+        }
+
+        @Override
+        BigInteger tryParse(String value) {
+            long negated = negatedInteger(value, Long.MIN_VALUE, Long.MAX_VALUE);
+            if (negated <= 0) {
+                return BigInteger.valueOf(signed(value, negated));
+            }
+            return isBigInteger(value) ? new BigInteger(value) : null;
+        }
+    };
+
+    static final MeasurementCodec<BigDecimal> BIGDECIMAL = new MeasurementCodec<BigDecimal>(BigDecimal.class) {
+
+        @Override
+        boolean valid(String value) {
+            return isDecimal(value) && isInScale(value);
+        }
+
+        @Override
+        BigDecimal tryParse(String value) {
+            return valid(value) ? new BigDecimal(value) : null;
+        }
+
+        @Override
+        String format(BigDecimal value) {
+            return value.toPlainString();
+        }
+    };
+
+    static final MeasurementCodec<LocalDate> LOCAL_DATE = new TemporalCodec<>(LocalDate.class,
+            DateTimeFormatter.ISO_LOCAL_DATE, LocalDate::from);
+
+    static final MeasurementCodec<LocalTime> LOCAL_TIME = new TemporalCodec<>(LocalTime.class,
+            DateTimeFormatter.ISO_LOCAL_TIME, LocalTime::from);
+
+    static final MeasurementCodec<LocalDateTime> LOCAL_DATETIME = new TemporalCodec<>(LocalDateTime.class,
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME, LocalDateTime::from);
+
+    static final MeasurementCodec<ZonedDateTime> ZONED_DATETIME = new TemporalCodec<>(ZonedDateTime.class,
+            DateTimeFormatter.ISO_ZONED_DATE_TIME, ZonedDateTime::from);
+
+    private static final class TemporalCodec<T extends TemporalAccessor> extends MeasurementCodec<T> {
+
+        private final DateTimeFormatter formatter;
+        private final TemporalQuery<T> query;
+
+        private TemporalCodec(Class<T> valueType, DateTimeFormatter formatter, TemporalQuery<T> query) {
+            super(valueType);
+            this.formatter = formatter;
+            this.query = query;
+        }
+
+        @Override
+        T tryParse(String value) {
+            // every ISO representation starts with a digit or the sign of a year
+            if (value.isEmpty() || !(isDigit(value.charAt(0)) || value.charAt(0) == '+' || value.charAt(0) == '-')) {
+                return null;
+            }
+            try {
+                return this.formatter.parse(value, this.query);
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+
+        @Override
+        String format(T value) {
+            return this.formatter.format(value);
+        }
+    }
+
+    private final Class<T> valueType;
+
+    private MeasurementCodec(Class<T> valueType) {
+        this.valueType = valueType;
+    }
+
+    /**
+     * Returns the type of the values.
+     *
+     * @return The value type, never null
+     */
+    Class<T> getValueType() {
+        return this.valueType;
+    }
+
+    /**
+     * Returns whether the given value can be parsed.
+     *
+     * @param value The value to check; might <b>not</b> be null.
+     * @return True if the value is valid, false otherwise
+     */
+    boolean valid(String value) {
+        return tryParse(value) != null;
+    }
+
+    /**
+     * Parses the given value.
+     *
+     * @param value The value to parse; might <b>not</b> be null.
+     * @return The parsed value, null if the value is invalid
+     */
+    abstract T tryParse(String value);
+
+    /**
+     * Formats the given value so it can be parsed again.
+     *
+     * @param value The value to format; might <b>not</b> be null.
+     * @return The formatted value, never null
+     */
+    String format(T value) {
+        return value.toString();
+    }
+
+    /**
+     * Formats the given value so it can be parsed again.
+     *
+     * @param value The value to format; might <b>not</b> be null.
+     * @return The formatted value, never null
+     * @throws ClassCastException If the given value is not of the codec's {@link #getValueType()}.
+     */
+    String formatValue(Object value) {
+        return format(this.valueType.cast(value));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    /*
+     * An optional sign followed by digits, within the given range.
+     */
+    static boolean isInteger(String value, long min, long max) {
+        return negatedInteger(value, min, max) <= 0;
+    }
+
+    /*
+     * Parses an optional sign followed by digits, within the given range, in a single pass. Accumulates negatively,
+     * since the negative range is the larger one; the result is the negated absolute value, or 1 if the value is
+     * invalid.
+     */
+    private static long negatedInteger(String value, long min, long max) {
+        int length = value.length();
+        if (length == 0) {
+            return 1;
+        }
+
+        int i = 0;
+        boolean negative = false;
+        char first = value.charAt(0);
+        if (first == '-' || first == '+') {
+            if (length == 1) {
+                return 1;
+            }
+            negative = first == '-';
+            i++;
+        }
+
+        long limit = negative ? min : -max;
+        long multiplicationLimit = limit / 10;
+        long result = 0;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (!isDigit(c) || result < multiplicationLimit) {
+                return 1;
+            }
+            result *= 10;
+            int digit = c - '0';
+            if (result < limit + digit) {
+                return 1;
+            }
+            result -= digit;
+        }
+        return result;
+    }
+
+    private static long signed(String value, long negated) {
+        return value.charAt(0) == '-' ? negated : -negated;
+    }
+
+    private static boolean isBigInteger(String value) {
+        int length = value.length();
+        int i = length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+') ? 1 : 0;
+        if (i == length) {
+            return false;
+        }
+        for (; i < length; i++) {
+            if (!isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * An optional sign, digits with an optional decimal point and an optional exponent; the syntax of BigDecimal,
+     * which Float and Double parse as well.
+     */
+    static boolean isDecimal(String value) {
+        return scanDecimal(value, 0, value.length()) == value.length();
+    }
+
+    /*
+     * Scans a decimal between the given indices; returns the index after it, or -1 if there is none.
+     */
+    private static int scanDecimal(String value, int i, int length) {
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+
+        int digits = 0;
+        while (i < length && isDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            while (i < length && isDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return -1;
+        }
+
+        if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < length && isDigit(value.charAt(i))) {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return -1;
+            }
+        }
+        return i;
+    }
+
+    /*
+     * BigDecimal only supports exponents and scales within the range of an int; the scale of a decimal is the count
+     * of its fraction digits minus its exponent.
+     */
+    private static boolean isInScale(String value) {
+        int exponent = Math.max(value.indexOf('e'), value.indexOf('E'));
+        if (exponent < 0) {
+            return true;
+        }
+        int point = value.indexOf('.');
+        long fractionDigits = point < 0 ? 0 : exponent - point - 1;
+
+        int length = value.length();
+        int i = exponent + 1;
+        boolean negative = value.charAt(i) == '-';
+        if (negative || value.charAt(i) == '+') {
+            i++;
+        }
+        while (length - i > 10 && value.charAt(i) == '0') {
+            i++;
+        }
+        if (length - i > 10) {
+            return false;
+        }
+        long exponentValue = 0;
+        for (; i < length; i++) {
+            exponentValue = exponentValue * 10 + (value.charAt(i) - '0');
+        }
+        exponentValue = negative ? -exponentValue : exponentValue;
+        long scale = fractionDigits - exponentValue;
+        return (int) exponentValue == exponentValue && scale >= Integer.MIN_VALUE && scale <= Integer.MAX_VALUE;
+    }
+
+    /*
+     * The syntax Float and Double parse: optionally surrounded by whitespace, an optional sign and either NaN,
+     * Infinity, a decimal or a hexadecimal significand with a binary exponent, the latter both optionally followed by
+     * a type suffix.
+     */
+    static boolean isFloatingPoint(String value) {
+        int start = 0;
+        int length = value.length();
+        while (start < length && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (length > start && value.charAt(length - 1) <= ' ') {
+            length--;
+        }
+
+        int i = start;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        if (value.startsWith("NaN", i)) {
+            return i + 3 == length;
+        } else if (value.startsWith("Infinity", i)) {
+            return i + 8 == length;
+        } else if (value.startsWith("0x", i) || value.startsWith("0X", i)) {
+            i = scanHexadecimal(value, i + 2, length);
+        } else {
+            i = scanDecimal(value, start, length);
+        }
+        if (i < 0) {
+            return false;
+        }
+        if (i < length && "fFdD".indexOf(value.charAt(i)) >= 0) {
+            i++;
+        }
+        return i == length;
+    }
+
+    /*
+     * Scans hexadecimal digits with an optional point and the mandatory binary exponent between the given indices;
+     * returns the index after them, or -1 if there are none.
+     */
+    private static int scanHexadecimal(String value, int i, int length) {
+        int digits = 0;
+        while (i < length && isHexDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            while (i < length && isHexDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0 || i == length || (value.charAt(i) != 'p' && value.charAt(i) != 'P')) {
+            return -1;
+        }
+        i++;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        int exponentDigits = 0;
+        while (i < length && isDigit(value.charAt(i))) {
+            i++;
+            exponentDigits++;
+        }
+        return exponentDigits == 0 ? -1 : i;
+    }
+}
@@ -2,162 +2,99 @@ package com.mantledillusion.metrics.trail.api;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.text.DecimalFormat;
-import java.text.ParseException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.function.Function;
 
 /**
  * The types of data an {@link Measurement} is allowed to carry.
+ * <p>
+ * Values are parsed and formatted independently of the default locale.
  */
 public enum MeasurementType {
 
     /**
      * A {@link String}.
      */
-    STRING(val -> val),
+    STRING("a String", MeasurementCodec.STRING),
 
     /**
      * A {@link Boolean}.
      */
-    BOOLEAN(val -> {
-        if (val.matches("true|false|TRUE|FALSE")) {
-            return Boolean.parseBoolean(val);
-        } else {
-            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as a Boolean", val));
-        }
-    }),
+    BOOLEAN("a Boolean", MeasurementCodec.BOOLEAN),
 
     /**
      * A {@link Short}.
      */
-    SHORT(val -> {
-        try {
-            return Integer.parseInt(val);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as a Short", val), e);
-        }
-    }),
+    SHORT("a Short", MeasurementCodec.SHORT),
 
     /**
      * An {@link Integer}.
      */
-    INTEGER(val -> {
-        try {
-            return Integer.parseInt(val);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as an Integer", val), e);
-        }
-    }),
+    INTEGER("an Integer", MeasurementCodec.INTEGER),
 
     /**
      * An {@link Long}.
      */
-    LONG(val -> {
-        try {
-            return Long.parseLong(val);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as a Long", val), e);
-        }
-    }),
+    LONG("a Long", MeasurementCodec.LONG),
 
     /**
      * An {@link Float}.
      */
-    FLOAT(val -> {
-        try {
-            return Float.parseFloat(val);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as a Float", val), e);
-        }
-    }),
+    FLOAT("a Float", MeasurementCodec.FLOAT),
 
     /**
      * An {@link Double}.
      */
-    DOUBLE(val -> {
-        try {
-            return Double.parseDouble(val);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as a Double", val), e);
-        }
-    }),
+    DOUBLE("a Double", MeasurementCodec.DOUBLE),
 
     /**
      * A {@link BigInteger}
      */
-    BIGINTEGER(val -> {
-        try {
-            return BigInteger.valueOf(Long.parseLong(val));
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as a BigInteger", val), e);
-        }
-    }),
+    BIGINTEGER("a BigInteger", MeasurementCodec.BIGINTEGER),
 
     /**
-     * A {@link BigDecimal}
+     * A {@link BigDecimal} in the notation of {@link BigDecimal#BigDecimal(String)}.
      */
-    BIGDECIMAL(val -> {
-        try {
-            return new DecimalFormat().parse(val);
-        } catch (ParseException e) {
-            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as a BigDecimal", val), e);
-        }
-    }),
+    BIGDECIMAL("a BigDecimal", MeasurementCodec.BIGDECIMAL),
 
     /**
      * A {@link LocalDate} in {@link DateTimeFormatter#ISO_LOCAL_DATE}.
      */
-    LOCAL_DATE(val -> {
-        try {
-            return LocalDate.parse(val, DateTimeFormatter.ISO_LOCAL_DATE);
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as a LocalDate", val), e);
-        }
-    }),
+    LOCAL_DATE("a LocalDate", MeasurementCodec.LOCAL_DATE),
 
     /**
      * A {@link LocalTime} in {@link DateTimeFormatter#ISO_LOCAL_TIME}.
      */
-    LOCAL_TIME(val -> {
-        try {
-            return LocalTime.parse(val, DateTimeFormatter.ISO_LOCAL_TIME);
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as a LocalTime", val), e);
-        }
-    }),
+    LOCAL_TIME("a LocalTime", MeasurementCodec.LOCAL_TIME),
 
     /**
-     * A {@link LocalDateTime} in {@link DateTimeFormatter#ISO_DATE_TIME}.
+     * A {@link LocalDateTime} in {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME}.
      */
-    LOCAL_DATETIME(val -> {
-        try {
-            return LocalDateTime.parse(val, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as a LocalDateTime", val), e);
-        }
-    }),
+    LOCAL_DATETIME("a LocalDateTime", MeasurementCodec.LOCAL_DATETIME),
 
     /**
      * A {@link ZonedDateTime} in {@link DateTimeFormatter#ISO_ZONED_DATE_TIME}.
      */
-    ZONED_DATETIME(val -> {
-        try {
-            return ZonedDateTime.parse(val, DateTimeFormatter.ISO_ZONED_DATE_TIME);
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as a ZonedDateTime", val), e);
-        }
-    });
+    ZONED_DATETIME("a ZonedDateTime", MeasurementCodec.ZONED_DATETIME);
 
-    private final Function<String, ?> parser;
+    private final String name;
+    private final MeasurementCodec<?> codec;
 
-    MeasurementType(Function<String, ?> parser) {
-        this.parser = parser;
+    MeasurementType(String name, MeasurementCodec<?> codec) {
+        this.name = name;
+        this.codec = codec;
+    }
+
+    /**
+     * Returns the type of the values parsed as this element's type.
+     *
+     * @return The value type, never null
+     */
+    public Class<?> getValueType() {
+        return this.codec.getValueType();
     }
 
     /**
@@ -169,7 +106,41 @@ public enum MeasurementType {
      * @throws IllegalArgumentException If the given value is not parsable.
      */
     public <T> T parse(String measurementValue) {
-        return (T) this.parser.apply(measurementValue == null ? "" : measurementValue);
+        T value = tryParse(measurementValue);
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("Cannot parse measurement value %s as %s", measurementValue == null ? "" : measurementValue, this.name));
+        }
+        return value;
+    }
+
+    /**
+     * Parse the given measurement value as this element's type, without throwing if it is not parsable.
+     *
+     * @param <T> This elements type.
+     * @param measurementValue The value to parse; might be null.
+     * @return A value in this element's type, null if the given value is not parsable
+     */
+    public <T> T tryParse(String measurementValue) {
+        // the caller determines the type to return, which can only be checked by the caller itself
+        @SuppressWarnings("unchecked")
+        T value = (T) this.codec.tryParse(measurementValue == null ? "" : measurementValue);
+        return value;
+    }
+
+    /**
+     * Formats the given value of this element's type as a measurement value that can be parsed again.
+     *
+     * @param value The value to format; might be null.
+     * @return The measurement value, null if the given value is null
+     * @throws IllegalArgumentException If the given value is not of this element's {@link #getValueType()}.
+     */
+    public String format(Object value) {
+        if (value == null) {
+            return null;
+        } else if (!this.codec.getValueType().isInstance(value)) {
+            throw new IllegalArgumentException(String.format("Cannot format a %s as %s", value.getClass().getSimpleName(), this.name));
+        }
+        return this.codec.formatValue(value);
     }
 
     /**
@@ -179,11 +150,6 @@ public enum MeasurementType {
      * @return True if the value is valid, false otherwise
      */
     public boolean valid(String measurementValue) {
-        try {
-            parse(measurementValue);
-            return true;
-        } catch (IllegalArgumentException e) {
-            return false;
-        }
+        return this.codec.valid(measurementValue == null ? "" : measurementValue);
     }
 }
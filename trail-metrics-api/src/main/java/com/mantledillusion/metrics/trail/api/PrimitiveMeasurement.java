@@ -0,0 +1,113 @@
+package com.mantledillusion.metrics.trail.api;
+
+/**
+ * Represents a measurement of an {@link Event} whose {@link MeasurementType#LONG}, {@link MeasurementType#DOUBLE}
+ * or {@link MeasurementType#BOOLEAN} value is stored as a primitive instead of a {@link String}.
+ * <p>
+ * Created using {@link Measurement#ofLong(String, long)}, {@link Measurement#ofDouble(String, double)} and
+ * {@link Measurement#ofBoolean(String, boolean)}. The value is always valid for its type, so it does not have to be
+ * parsed for validation, and {@link #parseValue()} returns it without parsing. It is only rendered to a
+ * {@link String} when {@link #getValue()} is called, for example by a consumer writing text.
+ * <p>
+ * Setting the value or the type turns the measurement into a plain one with a {@link String} value.
+ */
+public class PrimitiveMeasurement extends Measurement {
+
+	private long bits;
+	private boolean primitive = true;
+
+	PrimitiveMeasurement(String key, long bits, MeasurementType type) {
+		super(key, null, type);
+		this.bits = bits;
+	}
+
+	/**
+	 * Returns whether the measurement's value is still stored as a primitive.
+	 *
+	 * @return True if the value is a primitive, false if it has been set as a {@link String}
+	 */
+	public boolean isPrimitive() {
+		return this.primitive;
+	}
+
+	/**
+	 * Returns the value of the measurement, rendering it if it has not been rendered yet.
+	 *
+	 * @return The value, might be null
+	 */
+	@Override
+	public String getValue() {
+		String value = super.getValue();
+		if (value == null && this.primitive) {
+			// rendering is idempotent, so threads racing to render only do the same work twice
+			value = render();
+			super.setValue(value);
+		}
+		return value;
+	}
+
+	private String render() {
+		switch (getType()) {
+			case LONG:
+				return Long.toString(this.bits);
+			case DOUBLE:
+				return Double.toString(Double.longBitsToDouble(this.bits));
+			default:
+				return Boolean.toString(this.bits != 0);
+		}
+	}
+
+	/**
+	 * Sets the value of the measurement, discarding the primitive value.
+	 *
+	 * @param value
+	 *            The value to set, might be null.
+	 */
+	@Override
+	public void setValue(String value) {
+		this.primitive = false;
+		super.setValue(value);
+	}
+
+	/**
+	 * Sets the type of the measurement's value, rendering the primitive value to keep it as a {@link String}.
+	 *
+	 * @param type The type to set, might be null.
+	 */
+	@Override
+	public void setType(MeasurementType type) {
+		if (this.primitive) {
+			setValue(getValue());
+		}
+		super.setType(type);
+	}
+
+	/**
+	 * Returns this measurement's value as a {@link Long}, {@link Double} or {@link Boolean} without parsing it if
+	 * it is still stored as a primitive.
+	 *
+	 * @param <T> The measurement value's type.
+	 * @return The value
+	 */
+	@Override
+	public <T> T parseValue() {
+		if (!this.primitive) {
+			return super.parseValue();
+		}
+		Object boxed;
+		switch (getType()) {
+			case LONG:
+				boxed = Long.valueOf(this.bits);
+				break;
+			case DOUBLE:
+				boxed = Double.valueOf(Double.longBitsToDouble(this.bits));
+				break;
+			default:
+				boxed = Boolean.valueOf(this.bits != 0);
+		}
+		// the value has the type's value type, just as if it was parsed; the caller determines which type it expects
+		@SuppressWarnings("unchecked")
+		T value = (T) boxed;
+		return value;
+	}
+}
@@ -0,0 +1,27 @@
+package com.mantledillusion.metrics.trail.api;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * An {@link EventClock} reading the system time on every call.
+ */
+final class SystemEventClock implements EventClock {
+
+	private final ZoneId zone;
+
+	SystemEventClock(ZoneId zone) {
+		this.zone = zone;
+	}
+
+	@Override
+	public long epochNanos() {
+		Instant now = Instant.now();
+		return now.getEpochSecond() * Event.NANOS_PER_SECOND + now.getNano();
+	}
+
+	@Override
+	public ZoneId zone() {
+		return this.zone;
+	}
+}
@@ -0,0 +1,78 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.EventClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+public class EventClockTest {
+
+    private static final String IDENTIFIER = "a.b.c";
+
+    @AfterEach
+    public void resetClock() {
+        Event.setClock(EventClock.system());
+    }
+
+    @Test
+    public void testMaterializeTimestamp() {
+        Event event = new Event(IDENTIFIER);
+        ZonedDateTime timestamp = event.getTimestamp();
+        Assertions.assertSame(timestamp, event.getTimestamp());
+        Assertions.assertEquals(ZoneId.systemDefault(), timestamp.getZone());
+        Assertions.assertEquals(event.getTimestampNanos(),
+                timestamp.toEpochSecond() * 1000000000L + timestamp.getNano());
+    }
+
+    @Test
+    public void testSetTimestamp() {
+        Event event = new Event(IDENTIFIER);
+        ZonedDateTime timestamp = ZonedDateTime.of(1969, 12, 31, 23, 59, 59, 5, ZoneOffset.UTC);
+        event.setTimestamp(timestamp);
+        Assertions.assertEquals(-999999995L, event.getTimestampNanos());
+        Assertions.assertEquals(ZoneOffset.UTC, event.getTimestampZone());
+
+        event.setTimestamp(-999999995L, ZoneOffset.UTC);
+        Assertions.assertEquals(timestamp, event.getTimestamp());
+
+        event.setTimestamp(null);
+        Assertions.assertNull(event.getTimestamp());
+        Assertions.assertNull(event.getTimestampZone());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EventValidator.validate(event));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> event.setTimestamp(0, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> event.setTimestamp(
+                ZonedDateTime.of(3000, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC)));
+    }
+
+    @Test
+    public void testEquality() {
+        Event event = new Event(IDENTIFIER);
+        Event copy = new Event(IDENTIFIER);
+        copy.setTimestamp(event.getTimestamp());
+        Assertions.assertEquals(event, copy);
+        Assertions.assertEquals(event.hashCode(), copy.hashCode());
+        Assertions.assertEquals(event, event.freeze());
+        Assertions.assertEquals(event.getTimestamp(), event.freeze().getTimestamp());
+    }
+
+    @Test
+    public void testCoarseClock() throws InterruptedException {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Event.setClock(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EventClock.coarse(Duration.ZERO));
+
+        EventClock clock = EventClock.coarse(Duration.ofMillis(1));
+        Event.setClock(clock);
+        long before = new Event(IDENTIFIER).getTimestampNanos();
+        Thread.sleep(50);
+        Event event = new Event(IDENTIFIER);
+        Assertions.assertTrue(event.getTimestampNanos() > before);
+        Assertions.assertSame(clock.zone(), event.getTimestampZone());
+    }
+}
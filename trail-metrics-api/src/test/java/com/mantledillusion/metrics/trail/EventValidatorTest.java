@@ -1,6 +1,10 @@
 package com.mantledillusion.metrics.trail;
 
+import com.mantledillusion.metrics.trail.api.DeferredMeasurement;
 import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.FrozenEvent;
+import com.mantledillusion.metrics.trail.api.Measurement;
+import com.mantledillusion.metrics.trail.api.MeasurementType;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -32,4 +36,33 @@ public class EventValidatorTest {
         event.getMeasurements().add(null);
         Assertions.assertThrows(IllegalArgumentException.class, () -> EventValidator.validate(event));
     }
+
+    @Test
+    public void testValidateMetricWithDeferredAttribute() {
+        Event event = new Event(IDENTIFIER);
+        DeferredMeasurement measurement = new DeferredMeasurement("key", () -> "abc", MeasurementType.INTEGER);
+        event.getMeasurements().add(measurement);
+        EventValidator.validate(event);
+        Assertions.assertFalse(measurement.isResolved());
+
+        Assertions.assertEquals("abc", measurement.getValue());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EventValidator.validate(event));
+    }
+
+    @Test
+    public void testValidateBooleanAttribute() {
+        EventValidator.validate(new Event(IDENTIFIER, new Measurement("key", "TRUE", MeasurementType.BOOLEAN)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EventValidator.validate(
+                new Event(IDENTIFIER, new Measurement("key", "True", MeasurementType.BOOLEAN))));
+    }
+
+    @Test
+    public void testValidateFrozenMetricOnce() {
+        FrozenEvent event = new Event(IDENTIFIER,
+                new DeferredMeasurement("key", () -> "abc", MeasurementType.INTEGER)).freeze();
+
+        // the frozen event has been validated when freezing it, so rendering the value does not validate it again
+        Assertions.assertEquals("abc", event.getValue(0));
+        EventValidator.validate(event);
+    }
 }
@@ -0,0 +1,98 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.DeferredMeasurement;
+import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.FrozenEvent;
+import com.mantledillusion.metrics.trail.api.Measurement;
+import com.mantledillusion.metrics.trail.api.MeasurementType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FrozenEventTest {
+
+    private static final String IDENTIFIER = "a.b.c";
+
+    @Test
+    public void testFreeze() {
+        Event event = new Event(IDENTIFIER,
+                new Measurement("a", "1", MeasurementType.INTEGER),
+                new Measurement("b", "x", MeasurementType.STRING),
+                new Measurement("c", null, MeasurementType.STRING));
+        FrozenEvent frozen = event.freeze();
+
+        Assertions.assertSame(frozen, frozen.freeze());
+        Assertions.assertEquals(event, frozen);
+        Assertions.assertEquals(frozen, event);
+        Assertions.assertEquals(event.hashCode(), frozen.hashCode());
+        Assertions.assertEquals(3, frozen.size());
+        Assertions.assertEquals(1, frozen.indexOf("b"));
+        Assertions.assertEquals(-1, frozen.indexOf("d"));
+        Assertions.assertEquals("1", frozen.getValue("a"));
+        Assertions.assertEquals(MeasurementType.INTEGER, frozen.getMeasurement("a").getType());
+        Assertions.assertNull(frozen.getValue(2));
+        Assertions.assertEquals(event.getMeasurement("b"), frozen.getMeasurement("b"));
+
+        // changing the original does not change the frozen event
+        event.getMeasurements().add(new Measurement("d", "y", MeasurementType.STRING));
+        Assertions.assertEquals(3, frozen.size());
+    }
+
+    @Test
+    public void testImmutable() {
+        FrozenEvent frozen = new Event(IDENTIFIER, new Measurement("a", "1", MeasurementType.INTEGER)).freeze();
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.setIdentifier(IDENTIFIER));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.setTimestamp(null));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.setMeasurements(null));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.getMeasurements().add(null));
+
+        frozen.getMeasurements().get(0).setValue("2");
+        Assertions.assertEquals("1", frozen.getValue(0));
+    }
+
+    @Test
+    public void testIndexed() {
+        Event event = new Event(IDENTIFIER);
+        for (int i = 0; i < 20; i++) {
+            event.getMeasurements().add(new Measurement("key" + i, String.valueOf(i), MeasurementType.INTEGER));
+        }
+        event.getMeasurements().add(new Measurement("key5", "duplicate", MeasurementType.STRING));
+        FrozenEvent frozen = event.freeze();
+
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals(i, frozen.indexOf("key" + i));
+        }
+        Assertions.assertEquals("5", frozen.getValue("key5"));
+        Assertions.assertEquals(-1, frozen.indexOf(null));
+        Assertions.assertEquals(-1, frozen.indexOf("key20"));
+    }
+
+    @Test
+    public void testDeferred() {
+        AtomicInteger rendered = new AtomicInteger();
+        FrozenEvent frozen = new Event(IDENTIFIER, new DeferredMeasurement("a", () -> {
+            rendered.incrementAndGet();
+            return "1";
+        }, MeasurementType.INTEGER)).freeze();
+        Assertions.assertEquals(0, rendered.get());
+        Assertions.assertTrue(frozen.isDeferred(0));
+
+        Assertions.assertEquals("1", frozen.getValue(0));
+        Assertions.assertEquals("1", frozen.getMeasurements().get(0).getValue());
+        Assertions.assertEquals(1, rendered.get());
+        Assertions.assertTrue(frozen.isDeferred(0));
+    }
+
+    @Test
+    public void testFreezeInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FrozenEvent.of(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Event(null).freeze());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Event(IDENTIFIER,
+                new Measurement("a", "abc", MeasurementType.INTEGER)).freeze());
+
+        Event event = new Event(IDENTIFIER);
+        event.getMeasurements().add(null);
+        Assertions.assertThrows(IllegalArgumentException.class, event::freeze);
+    }
+}
@@ -0,0 +1,93 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.MeasurementType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+
+public class MeasurementTypeTest {
+
+    @Test
+    public void testParseIntegers() {
+        Assertions.assertEquals(Short.valueOf((short) -32768), MeasurementType.SHORT.parse("-32768"));
+        Assertions.assertFalse(MeasurementType.SHORT.valid("32768"));
+        Assertions.assertEquals(Integer.valueOf(42), MeasurementType.INTEGER.parse("+42"));
+        Assertions.assertFalse(MeasurementType.INTEGER.valid("2147483648"));
+        Assertions.assertEquals(Long.valueOf(Long.MIN_VALUE), MeasurementType.LONG.parse(String.valueOf(Long.MIN_VALUE)));
+        Assertions.assertEquals(Long.valueOf(Long.MAX_VALUE), MeasurementType.LONG.parse(String.valueOf(Long.MAX_VALUE)));
+        Assertions.assertFalse(MeasurementType.LONG.valid("9223372036854775808"));
+        Assertions.assertFalse(MeasurementType.LONG.valid("-"));
+        Assertions.assertFalse(MeasurementType.LONG.valid("1.0"));
+        Assertions.assertFalse(MeasurementType.LONG.valid(null));
+        Assertions.assertEquals(new BigInteger("123456789012345678901234567890"),
+                MeasurementType.BIGINTEGER.parse("123456789012345678901234567890"));
+    }
+
+    @Test
+    public void testParseDecimals() {
+        Assertions.assertEquals(Double.valueOf(1.5e3), MeasurementType.DOUBLE.parse("1.5e3"));
+        Assertions.assertTrue(Double.isNaN(MeasurementType.DOUBLE.<Double>parse("NaN")));
+        Assertions.assertEquals(Float.valueOf(.5f), MeasurementType.FLOAT.parse(".5"));
+        Assertions.assertFalse(MeasurementType.DOUBLE.valid("1e"));
+
+        Assertions.assertEquals(new BigDecimal("1000.25"), MeasurementType.BIGDECIMAL.parse("1000.25"));
+        Assertions.assertFalse(MeasurementType.BIGDECIMAL.valid("1,000.25"));
+        Assertions.assertFalse(MeasurementType.BIGDECIMAL.valid("1e9999999999"));
+    }
+
+    @Test
+    public void testValidDecimalsLikeParsing() {
+        String[] values = {"1", "-1.5", "+.5", "1.", ".", "", " ", "1e5", "1E-5", "1e", "1e+", "1.5e3f", "2d", "2F",
+                "1f ", " 1.0 ", "NaN", "-NaN", "+Infinity", "-Infinity", "Infinityx", "nan", "infinity", "0x1p3",
+                "0X1.8P-2d", "0x.8p1", "0x1", "0xp1", "0x1p", "0x1g1p1", "1,5", "1.5.5", "e5", "1e99999999999",
+                "1e0000000000002", "0.1e-2147483648", "1e-2147483648", "1e-2147483649", "1e2147483648",
+                "\u0661", "1\u0661", "0x\uFF11p1"};
+        for (String value : values) {
+            Assertions.assertEquals(parses(() -> Double.parseDouble(value)), MeasurementType.DOUBLE.valid(value), value);
+            Assertions.assertEquals(parses(() -> Float.parseFloat(value)), MeasurementType.FLOAT.valid(value), value);
+            // other than BigDecimal itself, the codec only accepts ASCII digits
+            if (value.chars().allMatch(c -> c < 128)) {
+                Assertions.assertEquals(parses(() -> new BigDecimal(value)), MeasurementType.BIGDECIMAL.valid(value), value);
+            } else {
+                Assertions.assertFalse(MeasurementType.BIGDECIMAL.valid(value), value);
+            }
+        }
+    }
+
+    private static boolean parses(Runnable parsing) {
+        try {
+            parsing.run();
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testTryParse() {
+        Assertions.assertNull(MeasurementType.INTEGER.tryParse("abc"));
+        Assertions.assertNull(MeasurementType.BOOLEAN.tryParse("True"));
+        Assertions.assertNull(MeasurementType.LOCAL_DATE.tryParse("2020-13-01"));
+        Assertions.assertEquals(LocalDate.of(2020, 1, 31), MeasurementType.LOCAL_DATE.tryParse("2020-01-31"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MeasurementType.SHORT.parse("abc"));
+    }
+
+    @Test
+    public void testFormat() {
+        Object[] values = {"abc", true, (short) 1, 2, 3L, 4.5f, 6.5, new BigInteger("7"), new BigDecimal("8.9"),
+                LocalDate.now(), LocalTime.now(), LocalDateTime.now(), ZonedDateTime.now()};
+        for (MeasurementType type : MeasurementType.values()) {
+            Object value = values[type.ordinal()];
+            Assertions.assertEquals(value, type.parse(type.format(value)), type.name());
+        }
+        Assertions.assertEquals("100", MeasurementType.BIGDECIMAL.format(new BigDecimal("1E+2")));
+        Assertions.assertNull(MeasurementType.LONG.format(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MeasurementType.SHORT.format(1));
+    }
+}
@@ -0,0 +1,50 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.Measurement;
+import com.mantledillusion.metrics.trail.api.MeasurementType;
+import com.mantledillusion.metrics.trail.api.PrimitiveMeasurement;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PrimitiveMeasurementTest {
+
+    @Test
+    public void testParseWithoutRendering() {
+        PrimitiveMeasurement measurement = Measurement.ofLong("a", 42L);
+        EventValidator.validate(new Event("a.b.c", measurement));
+        Assertions.assertEquals(Long.valueOf(42L), measurement.parseValue());
+        Assertions.assertEquals(Double.valueOf(1.5), Measurement.ofDouble("b", 1.5).parseValue());
+        Assertions.assertEquals(Boolean.TRUE, Measurement.ofBoolean("c", true).parseValue());
+    }
+
+    @Test
+    public void testRender() {
+        Assertions.assertEquals(new Measurement("a", "42", MeasurementType.LONG), Measurement.ofLong("a", 42L));
+        Assertions.assertEquals(new Measurement("b", "1.5", MeasurementType.DOUBLE), Measurement.ofDouble("b", 1.5));
+        Assertions.assertEquals(new Measurement("c", "false", MeasurementType.BOOLEAN), Measurement.ofBoolean("c", false));
+        Assertions.assertTrue(MeasurementType.DOUBLE.valid(Measurement.ofDouble("d", Double.NaN).getValue()));
+    }
+
+    @Test
+    public void testChange() {
+        PrimitiveMeasurement measurement = Measurement.ofLong("a", 42L);
+        measurement.setValue("43");
+        Assertions.assertFalse(measurement.isPrimitive());
+        Assertions.assertEquals(Long.valueOf(43L), measurement.parseValue());
+
+        measurement = Measurement.ofLong("a", 42L);
+        measurement.setType(MeasurementType.STRING);
+        Assertions.assertFalse(measurement.isPrimitive());
+        Assertions.assertEquals("42", measurement.getValue());
+    }
+
+    @Test
+    public void testFreeze() {
+        Event event = new Event("a.b.c", Measurement.ofLong("a", 42L), Measurement.ofBoolean("b", true));
+        Event frozen = event.freeze();
+        Assertions.assertEquals(event, frozen);
+        Assertions.assertEquals(Long.valueOf(42L), frozen.getMeasurement("a").parseValue());
+        Assertions.assertEquals("true", frozen.getMeasurement("b").getValue());
+    }
+}
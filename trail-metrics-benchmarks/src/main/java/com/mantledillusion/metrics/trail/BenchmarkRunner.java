@@ -0,0 +1,36 @@
+package com.mantledillusion.metrics.trail;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs a benchmark once for each of the usual counts of concurrent committing threads.
+ */
+final class BenchmarkRunner {
+
+    static final int[] THREAD_COUNTS = {1, 8, 32, 128};
+
+    private BenchmarkRunner() {}
+
+    /**
+     * Runs all benchmarks of the given class with 1, 8, 32 and 128 threads.
+     *
+     * @param benchmark The benchmark class to run; might <b>not</b> be null.
+     * @param args Additional JMH command line options, like "-f 1" or "-wi 2"; might <b>not</b> be null.
+     * @throws RunnerException If running a benchmark fails.
+     * @throws CommandLineOptionException If the given options cannot be parsed.
+     */
+    static void runScaling(Class<?> benchmark, String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        for (int threads : THREAD_COUNTS) {
+            new Runner(new OptionsBuilder()
+                    .parent(options)
+                    .include(benchmark.getName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
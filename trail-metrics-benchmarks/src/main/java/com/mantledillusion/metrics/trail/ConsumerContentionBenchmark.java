@@ -0,0 +1,81 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.Measurement;
+import com.mantledillusion.metrics.trail.api.MeasurementType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput of committing {@link Event}s from many threads, each on its own {@link MetricsTrail}, to a
+ * single shared {@link MetricsTrailConsumer}.
+ * <p>
+ * Run with 1, 8, 32 and 128 committing threads using {@link #main(String[])}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djmh.shutdownTimeout=0")
+public class ConsumerContentionBenchmark {
+
+    private static final String FLUSH_IDENTIFIER = "benchmark.flush";
+
+    @State(Scope.Benchmark)
+    public static class SharedConsumer {
+
+        /**
+         * Whether the consumer delivers every {@link Event} directly, or holds them back until every 16th
+         * {@link Event} opens its gate.
+         */
+        @Param({"direct", "gated"})
+        public String mode;
+
+        private final LongAdder consumed = new LongAdder();
+        private MetricsTrailConsumer consumer;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            MetricsPredicate gate = "gated".equals(this.mode) ? event -> FLUSH_IDENTIFIER.equals(event.getIdentifier()) : null;
+            this.consumer = MetricsTrailConsumer.from("benchmark",
+                    (consumerId, correlationId, event) -> this.consumed.increment(), gate, null);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CommittingThread {
+
+        private MetricsTrail trail;
+        private MetricsTrailConsumer.MetricsTrailConsumerQueue queue;
+        private int committed;
+
+        @Setup(Level.Iteration)
+        public void setup(SharedConsumer shared) {
+            this.trail = new MetricsTrail(UUID.randomUUID());
+            this.queue = this.trail.hook(shared.consumer);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws InterruptedException {
+            this.trail.end();
+            // do not let the backlog of one iteration slow down the next
+            while (this.queue.isDelivering()) {
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    @Benchmark
+    public void commit(CommittingThread thread) {
+        String identifier = (++thread.committed & 15) == 0 ? FLUSH_IDENTIFIER : "benchmark.event";
+        thread.trail.commit(new Event(identifier,
+                new Measurement("benchmark.value", String.valueOf(thread.committed), MeasurementType.INTEGER)));
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner.runScaling(ConsumerContentionBenchmark.class, args);
+    }
+}
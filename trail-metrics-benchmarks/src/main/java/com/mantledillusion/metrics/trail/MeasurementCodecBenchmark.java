@@ -0,0 +1,82 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.MeasurementType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of parsing, validating and formatting a typical value of each {@link MeasurementType}, as well
+ * as of rejecting an invalid one.
+ * <p>
+ * Parsing is done for every measurement a sink converts into its own types, validating for every committed event;
+ * the cost does not depend on the count of threads, so {@link #main(String[])} runs with a single one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djmh.shutdownTimeout=0")
+public class MeasurementCodecBenchmark {
+
+    @State(Scope.Thread)
+    public static class TypedValue {
+
+        @Param({"BOOLEAN", "SHORT", "INTEGER", "LONG", "FLOAT", "DOUBLE", "BIGINTEGER", "BIGDECIMAL",
+                "LOCAL_DATE", "LOCAL_TIME", "LOCAL_DATETIME", "ZONED_DATETIME"})
+        public MeasurementType type;
+
+        private String value;
+        private Object parsed;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            switch (this.type) {
+                case BOOLEAN: this.value = "true"; break;
+                case SHORT: this.value = "1234"; break;
+                case INTEGER: this.value = "1234567"; break;
+                case LONG: this.value = "1700000000123"; break;
+                case FLOAT: this.value = "12.5"; break;
+                case DOUBLE: this.value = "1234.5678"; break;
+                case BIGINTEGER: this.value = "123456789012345678901234567890"; break;
+                case BIGDECIMAL: this.value = "12345.6789"; break;
+                case LOCAL_DATE: this.value = "2024-02-29"; break;
+                case LOCAL_TIME: this.value = "13:45:30.123"; break;
+                case LOCAL_DATETIME: this.value = "2024-02-29T13:45:30.123"; break;
+                default: this.value = "2024-02-29T13:45:30.123+01:00[Europe/Berlin]"; break;
+            }
+            this.parsed = this.type.parse(this.value);
+        }
+    }
+
+    @Benchmark
+    public Object parse(TypedValue value) {
+        return value.type.parse(value.value);
+    }
+
+    @Benchmark
+    public boolean valid(TypedValue value) {
+        return value.type.valid(value.value);
+    }
+
+    @Benchmark
+    public Object tryParseInvalid(TypedValue value) {
+        return value.type.tryParse("invalid");
+    }
+
+    @Benchmark
+    public String format(TypedValue value) {
+        return value.type.format(value.parsed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(MeasurementCodecBenchmark.class.getName())
+                .threads(1)
+                .build()).run();
+    }
+}
@@ -0,0 +1,134 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.Measurement;
+import com.mantledillusion.metrics.trail.api.MeasurementType;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput of committing {@link Event}s from many threads sharing a single bound
+ * {@link MetricsTrail}, depending on the count of {@link MetricsTrailConsumer}s hooked to it.
+ * <p>
+ * The {@link #lockedParallelStream(SharedTrail, CommittingThread)} benchmark reproduces committing under the
+ * trail's lock with a parallel stream for every {@link Event} as the baseline; comparing it with
+ * {@link #commit(SharedTrail, CommittingThread)} committing to the queues one after another and in parallel for the
+ * different fan-outs shows where {@link MetricsTrail#setParallelFanOutThreshold(int)} should be set on the hardware
+ * the benchmark runs on.
+ * <p>
+ * With a {@link MetricsCommitPipeline}, the committing threads only publish to the pipeline's ring buffer; running
+ * with {@code -bm sample} shows how the commit latency's percentiles stop depending on the fan-out.
+ * <p>
+ * Run with 1, 8, 32 and 128 committing threads using {@link #main(String[])}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djmh.shutdownTimeout=0")
+public class TrailCommitBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedTrail {
+
+        /**
+         * The count of {@link MetricsTrailConsumer}s hooked to the trail.
+         */
+        @Param({"1", "3", "16", "64", "256"})
+        public int fanOut;
+
+        /**
+         * Whether the trail commits to its queues in parallel, regardless of the fan-out.
+         */
+        @Param({"false", "true"})
+        public boolean parallel;
+
+        /**
+         * Whether the trail commits using a {@link MetricsCommitPipeline}.
+         */
+        @Param({"false", "true"})
+        public boolean pipelined;
+
+        private final LongAdder consumed = new LongAdder();
+        private final Object lock = new Object();
+        private final List<MetricsTrailConsumer> consumers = new ArrayList<>();
+        private final List<MetricsTrailConsumer.MetricsTrailConsumerQueue> queues = new ArrayList<>();
+        private MetricsTrail trail;
+
+        @Setup(Level.Trial)
+        public void setupConsumers() {
+            // all consumers share one scheduler, so the fan-out does not start a thread per consumer
+            MetricsDeliveryScheduler scheduler = MetricsDeliveryScheduler.from(Runtime.getRuntime().availableProcessors());
+            for (int i = 0; i < this.fanOut; i++) {
+                MetricsTrailConsumer consumer = MetricsTrailConsumer.from("benchmark" + i,
+                        (consumerId, correlationId, event) -> this.consumed.increment());
+                consumer.setDeliveryScheduler(scheduler, 1);
+                this.consumers.add(consumer);
+            }
+            MetricsTrail.setCommitPipeline(this.pipelined ? MetricsCommitPipeline.from(65536) : null);
+            MetricsTrail.setParallelFanOutThreshold(this.parallel ? 1 : Integer.MAX_VALUE);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDownPipeline() {
+            // shuts the pipeline down
+            MetricsTrail.setCommitPipeline(null);
+            MetricsTrail.setParallelFanOutThreshold(MetricsTrail.DEFAULT_PARALLEL_FAN_OUT_THRESHOLD);
+        }
+
+        @Setup(Level.Iteration)
+        public void setupTrail() {
+            this.trail = new MetricsTrail(UUID.randomUUID());
+            this.queues.clear();
+            this.consumers.forEach(consumer -> this.queues.add(this.trail.hook(consumer)));
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDownTrail() throws InterruptedException {
+            this.trail.end();
+            MetricsCommitPipeline pipeline = MetricsTrail.getCommitPipeline();
+            if (pipeline != null) {
+                pipeline.awaitIdle(Duration.ofMinutes(1));
+            }
+            // do not let the backlog of one iteration slow down the next
+            while (this.queues.stream().anyMatch(MetricsTrailConsumer.MetricsTrailConsumerQueue::isDelivering)) {
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CommittingThread {
+
+        private int committed;
+    }
+
+    @Benchmark
+    public void commit(SharedTrail shared, CommittingThread thread) {
+        shared.trail.commit(event(thread));
+    }
+
+    @Benchmark
+    public void lockedParallelStream(SharedTrail shared, CommittingThread thread) {
+        Event event = event(thread);
+        synchronized (shared.lock) {
+            EventValidator.validate(event);
+            shared.queues.parallelStream().forEach(queue -> queue.enqueue(event));
+        }
+    }
+
+    private static Event event(CommittingThread thread) {
+        return new Event("benchmark.event",
+                new Measurement("benchmark.value", String.valueOf(++thread.committed), MeasurementType.INTEGER));
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner.runScaling(TrailCommitBenchmark.class, args);
+    }
+}
@@ -0,0 +1,85 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.Measurement;
+import com.mantledillusion.metrics.trail.api.MeasurementType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput of request-like trails on {@link MetricsTrailSupport}: every operation begins a trail on
+ * the calling thread, commits an {@link Event} to it and ends it, announcing to the registered listeners and hooking
+ * a persistent {@link MetricsTrailConsumer}; or just begins and ends a trail that is never used.
+ * <p>
+ * Run with 1, 8, 32 and 128 committing threads using {@link #main(String[])}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djmh.shutdownTimeout=0")
+public class TrailLifecycleBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class RegisteredListeners {
+
+        /**
+         * The count of listeners registered in addition to the persistent hook.
+         */
+        @Param({"1", "4"})
+        public int listeners;
+
+        /**
+         * Whether trails are materialized lazily, see {@link MetricsTrailSupport#setLazyTrails(boolean)}.
+         */
+        @Param({"false", "true"})
+        public boolean lazy;
+
+        private final LongAdder announced = new LongAdder();
+        private final LongAdder consumed = new LongAdder();
+        private MetricsTrailConsumer consumer;
+        private MetricsTrailListener[] registered;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            MetricsTrailSupport.setLazyTrails(this.lazy);
+            this.consumer = MetricsTrailConsumer.from("benchmark", (consumerId, correlationId, event) -> this.consumed.increment());
+            MetricsTrailSupport.addPersistentHook(this.consumer, MetricsTrailListener.ReferenceMode.HARD);
+            this.registered = new MetricsTrailListener[this.listeners];
+            for (int i = 0; i < this.listeners; i++) {
+                this.registered[i] = (trail, eventType) -> this.announced.increment();
+                MetricsTrailSupport.addListener(this.registered[i], MetricsTrailListener.ReferenceMode.HARD);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            MetricsTrailSupport.setLazyTrails(false);
+            MetricsTrailSupport.removePersistentHook(this.consumer);
+            for (MetricsTrailListener listener : this.registered) {
+                MetricsTrailSupport.removeListener(listener);
+            }
+        }
+    }
+
+    @Benchmark
+    public void beginCommitEnd(RegisteredListeners listeners) {
+        MetricsTrailSupport.begin();
+        MetricsTrailSupport.commit(new Event("benchmark.event",
+                new Measurement("benchmark.value", "1", MeasurementType.INTEGER)));
+        MetricsTrailSupport.end();
+    }
+
+    @Benchmark
+    public void beginEnd(RegisteredListeners listeners) {
+        // a trail that is never used, like most requests that do not commit anything
+        MetricsTrailSupport.begin();
+        MetricsTrailSupport.end();
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner.runScaling(TrailLifecycleBenchmark.class, args);
+    }
+}
@@ -0,0 +1,14 @@
+package com.mantledillusion.metrics.trail;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Spring Boot auto configuration registering a {@link TrailMetricsDrainLifecycle} that drains all
+ * {@link MetricsTrailConsumer}s when the application shuts down.
+ */
+@Configuration
+@Import(TrailMetricsDrainLifecycle.class)
+public class TrailMetricsDrainAutoConfiguration {
+
+}
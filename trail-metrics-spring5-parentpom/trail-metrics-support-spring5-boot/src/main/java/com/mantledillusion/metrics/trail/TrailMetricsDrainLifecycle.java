@@ -0,0 +1,72 @@
+package com.mantledillusion.metrics.trail;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+
+/**
+ * {@link SmartLifecycle} draining all {@link MetricsTrailConsumer}s when the application context is stopped, using
+ * {@link MetricsTrailSupport#drain(Duration)}.
+ * <p>
+ * The drain runs in a late stop phase, after the web server has shut down gracefully and stopped, so the metrics of
+ * the last requests are delivered before the beans the consumers rely on are destroyed.
+ * <p>
+ * Use the {@value #PRTY_DRAIN_TIMEOUT} property to set the maximum duration in milliseconds to wait for the
+ * delivery, which is {@value #DEFAULT_DRAIN_TIMEOUT} by default.
+ */
+public class TrailMetricsDrainLifecycle implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrailMetricsDrainLifecycle.class);
+
+    public static final String PRTY_DRAIN_TIMEOUT = "trailMetrics.drain.timeout";
+    public static final long DEFAULT_DRAIN_TIMEOUT = 30000;
+
+    /**
+     * The phase the drain runs in; stops after the web server's graceful shutdown and stop phases and after all
+     * lifecycles in the default phase, but before any bean is destroyed.
+     */
+    public static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final Duration timeout;
+    private volatile boolean running;
+
+    /**
+     * Default constructor.
+     *
+     * @param timeout The maximum duration in milliseconds to wait for the delivery; might <b>not</b> be negative.
+     */
+    public TrailMetricsDrainLifecycle(@Value("${"+PRTY_DRAIN_TIMEOUT+":"+DEFAULT_DRAIN_TIMEOUT+"}") long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Cannot drain using a negative timeout");
+        }
+        this.timeout = Duration.ofMillis(timeout);
+    }
+
+    @Override
+    public void start() {
+        this.running = true;
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+        for (MetricsDrainReport report : MetricsTrailSupport.drain(this.timeout)) {
+            if (!report.isComplete()) {
+                LOGGER.warn(report.toString());
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,12 @@
+package com.mantledillusion.metrics.trail;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class SpringBootTestApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(SpringBootTestApplication.class);
+    }
+}
@@ -0,0 +1,66 @@
+package com.mantledillusion.metrics.trail;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TrailMetricsDrainLifecycleTest {
+
+    // the phase of Spring Boot's WebServerStartStopLifecycle
+    private static final int WEB_SERVER_PHASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 1;
+
+    @Test
+    public void testStopDrains() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from("stopConsumer", (consumerId, correlationId, event) -> {});
+        AtomicBoolean stopped = new AtomicBoolean();
+
+        new TrailMetricsDrainLifecycle(1000).stop(() -> stopped.set(true));
+        Assertions.assertTrue(consumer.isDrained());
+        Assertions.assertTrue(stopped.get());
+    }
+
+    @Test
+    public void testStopsAfterWebServer() {
+        Assertions.assertTrue(TrailMetricsDrainLifecycle.PHASE < WEB_SERVER_PHASE);
+        Assertions.assertTrue(TrailMetricsDrainLifecycle.PHASE < WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE);
+
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from("orderConsumer", (consumerId, correlationId, event) -> {});
+        AtomicBoolean drainedBeforeWebServer = new AtomicBoolean(true);
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean(TrailMetricsDrainLifecycle.class, () -> new TrailMetricsDrainLifecycle(1000));
+        context.registerBean("webServer", SmartLifecycle.class, () -> new SmartLifecycle() {
+
+            private volatile boolean running;
+
+            @Override
+            public void start() {
+                this.running = true;
+            }
+
+            @Override
+            public void stop() {
+                this.running = false;
+                drainedBeforeWebServer.set(consumer.isDrained());
+            }
+
+            @Override
+            public boolean isRunning() {
+                return this.running;
+            }
+
+            @Override
+            public int getPhase() {
+                return WEB_SERVER_PHASE;
+            }
+        });
+        context.refresh();
+        context.close();
+
+        Assertions.assertFalse(drainedBeforeWebServer.get());
+        Assertions.assertTrue(consumer.isDrained());
+    }
+}
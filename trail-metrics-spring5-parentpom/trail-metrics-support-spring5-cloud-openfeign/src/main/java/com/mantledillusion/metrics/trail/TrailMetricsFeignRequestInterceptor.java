@@ -6,7 +6,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.util.StringUtils;
 
-import java.util.UUID;
 
 /**
  * {@link RequestInterceptor} that will add the calling {@link Thread} {@link MetricsTrail}'s ID as a HTTP header to
@@ -104,7 +103,7 @@ public class TrailMetricsFeignRequestInterceptor implements RequestInterceptor {
                 case STRICT:
                     throw new IllegalStateException("Cannot send a request without a trail");
                 case LENIENT:
-                    requestTemplate.header(this.headerName, UUID.randomUUID().toString());
+                    requestTemplate.header(this.headerName, MetricsTrail.generateCorrelationId().toString());
             }
         }
     }
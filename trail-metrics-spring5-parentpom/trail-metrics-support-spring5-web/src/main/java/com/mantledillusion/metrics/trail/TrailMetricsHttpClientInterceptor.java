@@ -9,7 +9,6 @@ import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
-import java.util.UUID;
 
 /**
  * {@link ClientHttpRequestInterceptor} that will add the calling {@link Thread} {@link MetricsTrail}'s ID as a HTTP
@@ -107,7 +106,7 @@ public class TrailMetricsHttpClientInterceptor implements ClientHttpRequestInter
                 case STRICT:
                     throw new IllegalStateException("Cannot send a request without a trail");
                 case LENIENT:
-                    request.getHeaders().add(this.headerName, UUID.randomUUID().toString());
+                    request.getHeaders().add(this.headerName, MetricsTrail.generateCorrelationId().toString());
             }
         }
         return execution.execute(request, body);
@@ -1,5 +1,6 @@
 package com.mantledillusion.metrics.trail;
 
+import com.mantledillusion.metrics.trail.api.DeferredMeasurement;
 import com.mantledillusion.metrics.trail.api.Event;
 import com.mantledillusion.metrics.trail.api.Measurement;
 import com.mantledillusion.metrics.trail.api.MeasurementType;
@@ -166,25 +167,28 @@ abstract class AbstractTrailMetricsHttpServerHandler {
         return true;
     }
 
+    private String template(String uri) {
+        for (String pattern: this.idMatchers) {
+            uri = uri.replaceAll(pattern, URI_PLACEHOLDER);
+        }
+        return uri;
+    }
+
     protected void dispatchMetric(ServletRequest request, ServletResponse response) {
         if (matches(this.requestPatterns, request)) {
             ((HttpServletResponse) response).addHeader(this.headerName, MetricsTrailSupport.id().toString());
 
-            if (this.dispatchEvent && matches(this.dispatchPatterns, request)) {
+            if (this.dispatchEvent && MetricsTrailSupport.isInterested(MID_REQUEST) && matches(this.dispatchPatterns, request)) {
                 String uri = ((HttpServletRequest) request).getRequestURI();
-                for (String pattern: this.idMatchers) {
-                    uri = uri.replaceAll(pattern, URI_PLACEHOLDER);
-                }
 
                 Event event = new Event(MID_REQUEST,
-                        new Measurement(
+                        new DeferredMeasurement(
                                 AKEY_ENDPOINT,
-                                uri,
+                                () -> template(uri),
                                 MeasurementType.STRING),
-                        new Measurement(
+                        Measurement.ofLong(
                                 AKEY_DURATION,
-                                String.valueOf(System.currentTimeMillis()-REQUEST_DURATION.get()),
-                                MeasurementType.LONG)
+                                System.currentTimeMillis()-REQUEST_DURATION.get())
                 );
 
                 if (((HttpServletRequest) request).getHeader(this.headerName) != null) {
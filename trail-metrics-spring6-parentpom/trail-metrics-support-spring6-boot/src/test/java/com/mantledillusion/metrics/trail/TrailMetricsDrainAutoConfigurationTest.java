@@ -0,0 +1,18 @@
+package com.mantledillusion.metrics.trail;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+public class TrailMetricsDrainAutoConfigurationTest {
+
+    @Autowired
+    private TrailMetricsDrainLifecycle lifecycle;
+
+    @Test
+    public void test() {
+        Assertions.assertTrue(this.lifecycle.isRunning());
+    }
+}
@@ -189,7 +189,7 @@ public class TrailMetricsJmsMessageConverterWrapper implements MessageConverter
                 case STRICT:
                     throw new MessageConversionException("The current thread does not have a trail whose ID could be used as JMS correlationId");
                 case LENIENT:
-                    message.setJMSCorrelationID(UUID.randomUUID().toString());
+                    message.setJMSCorrelationID(MetricsTrail.generateCorrelationId().toString());
             }
         }
         return message;
@@ -24,7 +24,7 @@ import java.util.UUID;
  * {@value #DEFAULT_INCOMING_MODE}/{@value #DEFAULT_OUTGOING_MODE} by default.
  * <p>
  * If the header of an incoming message is set and contains a UUID, it will be used to begin the {@link MetricsTrail}
- * with; if not, a {@link UUID#randomUUID()} is used.
+ * with; if not, a {@link MetricsTrail#generateCorrelationId() generated} one is used.
  */
 public class TrailMetricsMessagingChannelInterceptor implements ChannelInterceptor {
 
@@ -131,7 +131,7 @@ public class TrailMetricsMessagingChannelInterceptor implements ChannelIntercept
                 case STRICT:
                     throw new IllegalStateException();
                 case LENIENT:
-                    message.getHeaders().put(this.headerName, UUID.randomUUID().toString());
+                    message.getHeaders().put(this.headerName, MetricsTrail.generateCorrelationId().toString());
             }
         }
         return message;
@@ -143,7 +143,7 @@ public class TrailMetricsMessagingChannelInterceptor implements ChannelIntercept
         try {
             correlationId = UUID.fromString(Objects.toString(message.getHeaders().get(this.headerName)));
         } catch (NullPointerException | IllegalArgumentException e) {
-            correlationId = UUID.randomUUID();
+            correlationId = MetricsTrail.generateCorrelationId();
         }
         MetricsTrailSupport.begin(correlationId);
         return message;
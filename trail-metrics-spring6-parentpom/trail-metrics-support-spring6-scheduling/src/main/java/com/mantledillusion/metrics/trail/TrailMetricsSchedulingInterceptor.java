@@ -154,7 +154,7 @@ public class TrailMetricsSchedulingInterceptor {
         }
         MetricsTrailSupport.begin();
 
-        if (this.dispatchBeginTask) {
+        if (this.dispatchBeginTask && MetricsTrailSupport.isInterested(MID_BEGIN)) {
             Event event = new Event(MID_BEGIN,
                     new Measurement(AKEY_CLASS_NAME, joinPoint.getSignature().getDeclaringTypeName(), MeasurementType.STRING),
                     new Measurement(AKEY_METHOD_NAME, joinPoint.getSignature().getName(), MeasurementType.STRING));
@@ -183,13 +183,11 @@ public class TrailMetricsSchedulingInterceptor {
     }
 
     private void dispatchEndMetric() {
-        if (this.dispatchEndTask) {
+        if (this.dispatchEndTask && MetricsTrailSupport.isInterested(MID_END)) {
             MetricsTrailSupport.commit(new Event(MID_END,
-                    new Measurement(
+                    Measurement.ofLong(
                             AKEY_DURATION,
-                            String.valueOf(System.currentTimeMillis()-TASK_DURATION.get()),
-                            MeasurementType.LONG
-                    )), false);
+                            System.currentTimeMillis()-TASK_DURATION.get())), false);
         }
         TASK_DURATION.set(null);
     }
@@ -63,8 +63,8 @@ public class TrailMetricsSecurityAuthenticationManagerInterceptor {
             event.setIdentifier(MID_AUTHENTICATION);
             event.getMeasurements().add(new Measurement(AKEY_AUTHENTICATION_PROVIDER, joinPoint.getThis().getClass().getName(), MeasurementType.STRING));
             event.getMeasurements().add(new Measurement(AKEY_PRINCIPAL_NAME, authentication.getName(), MeasurementType.STRING));
-            event.getMeasurements().add(new Measurement(AKEY_DURATION, String.valueOf(System.currentTimeMillis()-THREAD_LOCAL.get()), MeasurementType.LONG));
-            event.getMeasurements().add(new Measurement(AKEY_SUCCESS, String.valueOf(success), MeasurementType.BOOLEAN));
+            event.getMeasurements().add(Measurement.ofLong(AKEY_DURATION, System.currentTimeMillis()-THREAD_LOCAL.get()));
+            event.getMeasurements().add(Measurement.ofBoolean(AKEY_SUCCESS, success));
             event.getMeasurements().addAll(Arrays.asList(measurements));
 
             MetricsTrailSupport.commit(event);
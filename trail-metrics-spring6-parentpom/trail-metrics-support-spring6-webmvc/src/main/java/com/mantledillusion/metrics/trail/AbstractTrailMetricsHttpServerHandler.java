@@ -171,16 +171,15 @@ abstract class AbstractTrailMetricsHttpServerHandler {
         if (matches(this.requestPatterns, request)) {
             ((HttpServletResponse) response).addHeader(this.headerName, MetricsTrailSupport.id().toString());
 
-            if (this.dispatchEvent && matches(this.dispatchPatterns, request)) {
+            if (this.dispatchEvent && MetricsTrailSupport.isInterested(MID_REQUEST) && matches(this.dispatchPatterns, request)) {
                 Event event = new Event(MID_REQUEST,
                         new Measurement(
                                 AKEY_METHOD,
                                 ((HttpServletRequest) request).getMethod(),
                                 MeasurementType.STRING),
-                        new Measurement(
+                        Measurement.ofLong(
                                 AKEY_DURATION,
-                                String.valueOf(System.currentTimeMillis()-REQUEST_DURATION.get()),
-                                MeasurementType.LONG)
+                                System.currentTimeMillis()-REQUEST_DURATION.get())
                 );
 
                 String uri = ((HttpServletRequest) request).getRequestURI();
@@ -2,7 +2,10 @@ package com.mantledillusion.metrics.trail;
 
 import com.mantledillusion.metrics.trail.api.Event;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.function.Supplier;
@@ -17,8 +20,51 @@ public final class MetricsTrailSupport {
      */
     public static final String DEFAULT_TRAIL_ID_KEY = "correlation-id";
 
-    private static final ThreadLocal<MetricsTrail> THREAD_LOCAL = new ThreadLocal<>();
+    /*
+     * Holds either the bound MetricsTrail or, for a lazily begun trail that has not been used yet, just its UUID.
+     */
+    private static final ThreadLocal<Object> THREAD_LOCAL = new ThreadLocal<>();
     private static final Map<Integer, Supplier<MetricsTrailListener>> TRAIL_LISTENERS = new HashMap<>();
+    private static final ReferenceQueue<MetricsTrailListener> CLEARED_LISTENERS = new ReferenceQueue<>();
+
+    /*
+     * Copy-on-write snapshot of the registered listeners; changing the registration requires the TRAIL_LISTENERS
+     * monitor, announcing to the listeners just reads the current snapshot without locking.
+     */
+    private static volatile List<Supplier<MetricsTrailListener>> listenerSnapshot = Collections.emptyList();
+    private static volatile boolean lazyTrails = false;
+
+    private static final class PersistentHook implements MetricsTrailListener {
+
+        private final MetricsTrailConsumer consumer;
+        private final boolean lazily;
+
+        private PersistentHook(MetricsTrailConsumer consumer, boolean lazily) {
+            this.consumer = consumer;
+            this.lazily = lazily;
+        }
+
+        @Override
+        public void announce(MetricsTrail trail, EventType eventType) {
+            if (eventType == EventType.BEGIN) {
+                if (this.lazily) {
+                    trail.hookLazily(this.consumer);
+                } else {
+                    trail.hook(this.consumer);
+                }
+            }
+        }
+    }
+
+    private static final class ListenerReference extends WeakReference<MetricsTrailListener> implements Supplier<MetricsTrailListener> {
+
+        private final Integer id;
+
+        private ListenerReference(Integer id, MetricsTrailListener listener) {
+            super(listener, CLEARED_LISTENERS);
+            this.id = id;
+        }
+    }
 
     private MetricsTrailSupport() {}
 
@@ -43,19 +89,33 @@ public final class MetricsTrailSupport {
 
     /**
      * Adds the given consumer as a permanent consumer to hook to all trails occurring.
+     * <p>
+     * The consumer is hooked to every trail as soon as it begins.
      *
      * @param consumer The consumer to add; might <b>not</b> be null.
      * @param mode The mode in which the listener should be statically referenced; might <b>not</b> be null.
      */
     public static void addPersistentHook(MetricsTrailConsumer consumer, MetricsTrailListener.ReferenceMode mode) {
+        addPersistentHook(consumer, mode, false);
+    }
+
+    /**
+     * Adds the given consumer as a permanent consumer to hook to all trails occurring.
+     * <p>
+     * If hooked lazily, the consumer is {@link MetricsTrail#hookLazily(MetricsTrailConsumer) hooked lazily} to every
+     * trail, so its queue is only created for trails committing an {@link Event} it is
+     * {@link MetricsTrailConsumer#setInterests(String...) interested in}.
+     *
+     * @param consumer The consumer to add; might <b>not</b> be null.
+     * @param mode The mode in which the listener should be statically referenced; might <b>not</b> be null.
+     * @param lazily True if the consumer should be hooked lazily, false if it should be hooked as soon as a trail
+     *               begins.
+     */
+    public static void addPersistentHook(MetricsTrailConsumer consumer, MetricsTrailListener.ReferenceMode mode, boolean lazily) {
         if (consumer == null) {
             throw new IllegalArgumentException("Cannot hook a null consumer");
         }
-        registerListener(System.identityHashCode(consumer), (trail, eventType) -> {
-            if (eventType == MetricsTrailListener.EventType.BEGIN) {
-                trail.hook(consumer);
-            }
-        }, mode);
+        registerListener(System.identityHashCode(consumer), new PersistentHook(consumer, lazily), mode);
     }
 
     /**
@@ -80,20 +140,73 @@ public final class MetricsTrailSupport {
                     listenerSupplier = () -> listener;
                     break;
                 case WEAK:
-                    WeakReference<MetricsTrailListener> weakReference =  new WeakReference<>(listener);
-                    listenerSupplier = weakReference::get;
+                    listenerSupplier = new ListenerReference(id, listener);
                     break;
                 default:
                     throw new IllegalStateException("Unexpected reference mode: " + mode);
             }
             TRAIL_LISTENERS.put(id, listenerSupplier);
+            updateListenerSnapshot();
         }
     }
 
     private static void unregisterListener(Integer id) {
         synchronized (TRAIL_LISTENERS) {
             TRAIL_LISTENERS.remove(id);
+            updateListenerSnapshot();
+        }
+    }
+
+    private static void updateListenerSnapshot() {
+        // weakly referenced listeners that have been garbage collected are removed along with every change
+        Reference<? extends MetricsTrailListener> cleared;
+        while ((cleared = CLEARED_LISTENERS.poll()) != null) {
+            ListenerReference reference = (ListenerReference) cleared;
+            TRAIL_LISTENERS.remove(reference.id, reference);
+        }
+        listenerSnapshot = Collections.unmodifiableList(new ArrayList<>(TRAIL_LISTENERS.values()));
+    }
+
+    /**
+     * Returns whether trails begun using {@link #begin()} or {@link #begin(UUID)} are materialized lazily.
+     *
+     * @return True if trails are materialized lazily, false otherwise
+     */
+    public static boolean isLazyTrails() {
+        return lazyTrails;
+    }
+
+    /**
+     * Sets whether trails begun using {@link #begin()} or {@link #begin(UUID)} are materialized lazily.
+     * <p>
+     * A lazily begun trail only binds its {@link UUID} to the current {@link Thread}. The {@link MetricsTrail} is
+     * created and the {@link MetricsTrailListener.EventType#BEGIN} event is dispatched to the listeners, which also
+     * hooks all persistent consumers, once the trail is actually used by {@link #commit(Event)}, {@link #hook(MetricsTrailConsumer)},
+     * {@link #get()}, {@link #find()} or {@link #release()}. A trail that is ended without ever having been used
+     * dispatches no events at all, so listeners relying on every trail's begin, like a logging context, will not
+     * see it.
+     * <p>
+     * False by default.
+     *
+     * @param lazyTrails True if trails should be materialized lazily, false otherwise.
+     */
+    public static void setLazyTrails(boolean lazyTrails) {
+        MetricsTrailSupport.lazyTrails = lazyTrails;
+    }
+
+    private static UUID idOf(Object bound) {
+        return bound instanceof UUID ? (UUID) bound : ((MetricsTrail) bound).getCorrelationId();
+    }
+
+    private static MetricsTrail materialize() {
+        Object bound = THREAD_LOCAL.get();
+        if (bound instanceof UUID) {
+            MetricsTrail metricsTrail = new MetricsTrail((UUID) bound);
+            THREAD_LOCAL.set(metricsTrail);
+            announce(metricsTrail, MetricsTrailListener.EventType.BEGIN);
+            return metricsTrail;
         }
+        return (MetricsTrail) bound;
     }
 
     /**
@@ -106,16 +219,18 @@ public final class MetricsTrailSupport {
     }
 
     /**
-     * Begins a {@link MetricsTrail} on the current thread using a random {@link UUID}.
+     * Begins a {@link MetricsTrail} on the current thread using a {@link UUID} generated by the
+     * {@link MetricsTrail#getCorrelationIdGenerator() current generator}.
      * <p>
-     * Will cause a {@link MetricsTrailListener.EventType#BEGIN} event to be dispatched.
+     * Will cause a {@link MetricsTrailListener.EventType#BEGIN} event to be dispatched; when the trail is used for the
+     * first time if {@link #setLazyTrails(boolean) lazy trails} are enabled.
      *
-     * @return The random UUID of the newly created {@link MetricsTrail}, never null
+     * @return The generated UUID of the newly created {@link MetricsTrail}, never null
      * @throws IllegalStateException If the current {@link Thread} already is identified by a {@link MetricsTrail},
      * which can be checked using {@link #has()}.
      */
-    public static synchronized UUID begin() throws IllegalStateException {
-        UUID correlationId = UUID.randomUUID();
+    public static UUID begin() throws IllegalStateException {
+        UUID correlationId = MetricsTrail.generateCorrelationId();
         begin(correlationId);
         return correlationId;
     }
@@ -123,7 +238,8 @@ public final class MetricsTrailSupport {
     /**
      * Begins a {@link MetricsTrail} on the current thread using the given {@link UUID}.
      * <p>
-     * Will cause a {@link MetricsTrailListener.EventType#BEGIN} event to be dispatched.
+     * Will cause a {@link MetricsTrailListener.EventType#BEGIN} event to be dispatched; when the trail is used for the
+     * first time if {@link #setLazyTrails(boolean) lazy trails} are enabled.
      *
      * @param correlationId The {@link UUID} to identify the new {@link MetricsTrail} by; might <b>not</b> be null.
      * @throws IllegalStateException If the current {@link Thread} is already identified by a {@link MetricsTrail},
@@ -132,8 +248,12 @@ public final class MetricsTrailSupport {
     public static void begin(UUID correlationId) throws IllegalStateException {
         if (correlationId == null) {
             throw new IllegalArgumentException("Cannot begin trail using a null thread id");
+        } else if (lazyTrails) {
+            checkUnbound(correlationId);
+            THREAD_LOCAL.set(correlationId);
+        } else {
+            bind(new MetricsTrail(correlationId), MetricsTrailListener.EventType.BEGIN);
         }
-        bind(new MetricsTrail(correlationId), MetricsTrailListener.EventType.BEGIN);
     }
 
     /**
@@ -152,15 +272,20 @@ public final class MetricsTrailSupport {
     private static void bind(MetricsTrail metricsTrail, MetricsTrailListener.EventType eventType) {
         if (metricsTrail == null) {
             throw new IllegalArgumentException("Cannot hook a null metrics trail.");
-        } else if (THREAD_LOCAL.get() != null) {
-            throw new IllegalStateException("Cannot begin trail " + metricsTrail.getCorrelationId() + " for thread " +
-                    Thread.currentThread() + "; the current thread is already identified by trail " +
-                    THREAD_LOCAL.get().getCorrelationId());
         }
+        checkUnbound(metricsTrail.getCorrelationId());
         THREAD_LOCAL.set(metricsTrail);
         announce(metricsTrail, eventType);
     }
 
+    private static void checkUnbound(UUID correlationId) {
+        if (THREAD_LOCAL.get() != null) {
+            throw new IllegalStateException("Cannot begin trail " + correlationId + " for thread " +
+                    Thread.currentThread() + "; the current thread is already identified by trail " +
+                    idOf(THREAD_LOCAL.get()));
+        }
+    }
+
     /**
      * Returns the {@link UUID} of the {@link MetricsTrail} that identifies the current {@link Thread}.
      *
@@ -168,7 +293,10 @@ public final class MetricsTrailSupport {
      * @throws IllegalStateException If the current {@link Thread} is not identified by a {@link MetricsTrail}.
      */
     public static UUID id() throws IllegalStateException {
-        return get().getCorrelationId();
+        if (THREAD_LOCAL.get() == null) {
+            throw new IllegalStateException("Cannot retrieve the ID of the current trail; current thread is not identified by one");
+        }
+        return idOf(THREAD_LOCAL.get());
     }
 
     /**
@@ -178,7 +306,7 @@ public final class MetricsTrailSupport {
      * @throws IllegalStateException If the current {@link Thread} is not identified by a {@link MetricsTrail}.
      */
     public static Optional<MetricsTrail> find() throws IllegalStateException {
-        return Optional.ofNullable(THREAD_LOCAL.get());
+        return Optional.ofNullable(materialize());
     }
 
     /**
@@ -208,7 +336,7 @@ public final class MetricsTrailSupport {
         if (THREAD_LOCAL.get() == null) {
             throw new IllegalStateException("Cannot retrieve whether the current trail has gated metrics; current thread is not identified by one");
         }
-        return THREAD_LOCAL.get().hook(consumer);
+        return materialize().hook(consumer);
     }
 
     /**
@@ -241,16 +369,80 @@ public final class MetricsTrailSupport {
      */
     public static void commit(Event event, TrailBehaviourMode mode) throws IllegalStateException {
         if (has()) {
-            THREAD_LOCAL.get().commit(event);
+            materialize().commit(event);
         } else if (mode == null || mode == TrailBehaviourMode.LENIENT) {
             begin();
-            THREAD_LOCAL.get().commit(event);
+            materialize().commit(event);
             end();
         } else if (mode == TrailBehaviourMode.STRICT) {
             throw new IllegalStateException("Cannot commit the given metric to the current trail; current thread is not identified by one");
         }
     }
 
+    /**
+     * Commits the given {@link Event}s to all {@link MetricsTrailConsumer.MetricsTrailConsumerQueue}s hooked to the current {@link Thread}'s {@link MetricsTrail}.
+     * <p>
+     * Convenience method for {@link #commitAll(Collection, TrailBehaviourMode)} with {@link TrailBehaviourMode#LENIENT}.
+     *
+     * @param events The metrics to commit; might <b>not</b> be null, might <b>not</b> contain nulls.
+     */
+    public static void commitAll(Collection<Event> events) throws IllegalStateException {
+        commitAll(events, TrailBehaviourMode.LENIENT);
+    }
+
+    /**
+     * Commits the given {@link Event}s to all {@link MetricsTrailConsumer.MetricsTrailConsumerQueue}s hooked to the current {@link Thread}'s {@link MetricsTrail}, using {@link MetricsTrail#commitAll(Collection)}.
+     *
+     * @param events The metrics to commit; might <b>not</b> be null, might <b>not</b> contain nulls.
+     * @param mode The {@link TrailBehaviourMode} just for the given {@link Event}s; might <b>not</b> be null. In case of {@link TrailBehaviourMode#LENIENT} starts a new {@link MetricsTrail}, it ends immediately after dispatching the events.
+     */
+    public static void commitAll(Collection<Event> events, TrailBehaviourMode mode) throws IllegalStateException {
+        if (has()) {
+            materialize().commitAll(events);
+        } else if (mode == null || mode == TrailBehaviourMode.LENIENT) {
+            begin();
+            materialize().commitAll(events);
+            end();
+        } else if (mode == TrailBehaviourMode.STRICT) {
+            throw new IllegalStateException("Cannot commit the given metrics to the current trail; current thread is not identified by one");
+        }
+    }
+
+    /**
+     * Returns whether any {@link MetricsTrailConsumer} would receive an {@link Event} with the given identifier
+     * committed on the current {@link Thread}.
+     * <p>
+     * If the current {@link Thread} is identified by a {@link MetricsTrail}, the consumers hooked to it are checked
+     * using {@link MetricsTrail#isInterested(String)}. Otherwise, or if the trail has not been materialized yet, the
+     * consumers added using {@link #addPersistentHook(MetricsTrailConsumer, MetricsTrailListener.ReferenceMode)} are
+     * checked, since they are the ones the trail would be hooked to.
+     * <p>
+     * Since any other {@link MetricsTrailListener} might hook arbitrary consumers to a trail when it begins, the
+     * identifier is always considered interesting before materialization if such a listener is registered.
+     * <p>
+     * Allows instrumentation to skip building an {@link Event} altogether if nobody would receive it.
+     *
+     * @param identifier The identifier to check; might be null.
+     * @return True if at least one consumer is interested, false otherwise
+     */
+    public static boolean isInterested(String identifier) {
+        Object bound = THREAD_LOCAL.get();
+        if (bound instanceof MetricsTrail) {
+            return ((MetricsTrail) bound).isInterested(identifier);
+        }
+        for (Supplier<MetricsTrailListener> listenerSupplier : listenerSnapshot) {
+            MetricsTrailListener listener = listenerSupplier.get();
+            if (listener instanceof PersistentHook) {
+                if (((PersistentHook) listener).consumer.isInterestedIn(identifier)) {
+                    return true;
+                }
+            } else if (listener != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns whether there are {@link Event}s that are enqueued and waiting for any of the current {@link Thread}
      * {@link MetricsTrail}'s {@link MetricsTrailConsumer.MetricsTrailConsumerQueue} gates to open so they can be delivered.
@@ -262,7 +454,8 @@ public final class MetricsTrailSupport {
         if (THREAD_LOCAL.get() == null) {
             throw new IllegalStateException("Cannot retrieve whether the current trail has gated metrics; current thread is not identified by one");
         }
-        return THREAD_LOCAL.get().hasGated();
+        // a trail that has not been materialized yet has no queues that could hold gated events
+        return THREAD_LOCAL.get() instanceof MetricsTrail && ((MetricsTrail) THREAD_LOCAL.get()).hasGated();
     }
 
     /**
@@ -276,7 +469,20 @@ public final class MetricsTrailSupport {
         if (THREAD_LOCAL.get() == null) {
             throw new IllegalStateException("Cannot retrieve whether the current trail is currently delivering metrics; current thread is not identified by one");
         }
-        return THREAD_LOCAL.get().isDelivering();
+        return THREAD_LOCAL.get() instanceof MetricsTrail && ((MetricsTrail) THREAD_LOCAL.get()).isDelivering();
+    }
+
+    /**
+     * Drains all {@link MetricsTrailConsumer}s of the JVM gracefully, for example before the application shuts down.
+     * <p>
+     * Every consumer refuses further {@link Event}s, flushes the gated {@link Event}s of all trails still running and
+     * delivers everything pending until the given deadline is reached; see {@link MetricsTrailConsumer#drain(Duration)}.
+     *
+     * @param deadline The maximum duration to wait for the delivery; might <b>not</b> be null or negative.
+     * @return A report for every drained consumer, never null
+     */
+    public static List<MetricsDrainReport> drain(Duration deadline) {
+        return MetricsTrailConsumer.drainAll(deadline);
     }
 
     /**
@@ -291,7 +497,13 @@ public final class MetricsTrailSupport {
         if (THREAD_LOCAL.get() == null) {
             throw new IllegalStateException("Cannot end trail; current thread is not identified by one");
         }
-        MetricsTrail metricsTrail = THREAD_LOCAL.get();
+        Object bound = THREAD_LOCAL.get();
+        if (bound instanceof UUID) {
+            // the trail has never been used, so there is nothing to end
+            THREAD_LOCAL.set(null);
+            return (UUID) bound;
+        }
+        MetricsTrail metricsTrail = (MetricsTrail) bound;
         end(metricsTrail);
         THREAD_LOCAL.set(null);
         return metricsTrail.getCorrelationId();
@@ -325,7 +537,7 @@ public final class MetricsTrailSupport {
         if (THREAD_LOCAL.get() == null) {
             throw new IllegalStateException("Cannot end trail; current thread is not identified by one");
         }
-        MetricsTrail metricsTrail = THREAD_LOCAL.get();
+        MetricsTrail metricsTrail = materialize();
         release(metricsTrail);
         THREAD_LOCAL.set(null);
         return metricsTrail;
@@ -399,19 +611,15 @@ public final class MetricsTrailSupport {
     }
 
     private static void announce(MetricsTrail metricsTrail, MetricsTrailListener.EventType eventType) {
-        synchronized (TRAIL_LISTENERS) {
-            Iterator<Supplier<MetricsTrailListener>> iterator = TRAIL_LISTENERS.values().iterator();
-            while (iterator.hasNext()) {
-                MetricsTrailListener listener = iterator.next().get();
-                if (listener == null) {
-                    iterator.remove();
-                } else {
-                    try {
-                        listener.announce(metricsTrail, eventType);
-                    } catch (Exception e) {
-                        System.out.println("Encountered an error while trying to announce a " + eventType.name() +
-                                " trail " + metricsTrail.getCorrelationId() + " to listener " + listener + ": " + e.getMessage());
-                    }
+        for (Supplier<MetricsTrailListener> listenerSupplier : listenerSnapshot) {
+            MetricsTrailListener listener = listenerSupplier.get();
+            // garbage collected listeners are skipped; they are removed when the registration changes the next time
+            if (listener != null) {
+                try {
+                    listener.announce(metricsTrail, eventType);
+                } catch (Exception e) {
+                    System.out.println("Encountered an error while trying to announce a " + eventType.name() +
+                            " trail " + metricsTrail.getCorrelationId() + " to listener " + listener + ": " + e.getMessage());
                 }
             }
         }
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MetricsTrailSupportTest {
 
@@ -18,6 +19,7 @@ public class MetricsTrailSupportTest {
         if (MetricsTrailSupport.has()) {
             MetricsTrailSupport.end();
         }
+        MetricsTrailSupport.setLazyTrails(false);
     }
     
     @Test
@@ -130,4 +132,142 @@ public class MetricsTrailSupportTest {
         correlationId = MetricsTrailSupport.begin();
         Assertions.assertFalse(trails.containsKey(correlationId));
     }
+
+    @Test
+    public void removeListenerWhileAnnouncing() {
+        Map<UUID, MetricsTrailListener.EventType> trails = new HashMap<>();
+        MetricsTrailListener listener = new MetricsTrailListener() {
+
+            @Override
+            public void announce(MetricsTrail trail, EventType eventType) {
+                trails.put(trail.getCorrelationId(), eventType);
+                MetricsTrailSupport.removeListener(this);
+            }
+        };
+
+        MetricsTrailSupport.addListener(listener, MetricsTrailListener.ReferenceMode.HARD);
+        UUID correlationId = MetricsTrailSupport.begin();
+        Assertions.assertEquals(MetricsTrailListener.EventType.BEGIN, trails.get(correlationId));
+        MetricsTrailSupport.end();
+        Assertions.assertEquals(MetricsTrailListener.EventType.BEGIN, trails.get(correlationId));
+    }
+
+    @Test
+    public void lazyTrail() {
+        Map<UUID, MetricsTrailListener.EventType> trails = new HashMap<>();
+        MetricsTrailListener listener = (trail, eventType) -> trails.put(trail.getCorrelationId(), eventType);
+        MetricsTrailSupport.addListener(listener, MetricsTrailListener.ReferenceMode.HARD);
+        MetricsTrailSupport.setLazyTrails(true);
+        try {
+            UUID correlationId = MetricsTrailSupport.begin();
+            Assertions.assertTrue(MetricsTrailSupport.has());
+            Assertions.assertEquals(correlationId, MetricsTrailSupport.id());
+            Assertions.assertFalse(MetricsTrailSupport.hasGated());
+            Assertions.assertFalse(trails.containsKey(correlationId));
+            Assertions.assertEquals(correlationId, MetricsTrailSupport.end());
+            Assertions.assertFalse(trails.containsKey(correlationId));
+
+            MetricsTrailSupport.begin(TRAIL_ID);
+            Assertions.assertThrows(IllegalStateException.class, () -> MetricsTrailSupport.begin(UUID.randomUUID()));
+            MetricsTrailSupport.commit(new Event("test.event"));
+            Assertions.assertEquals(MetricsTrailListener.EventType.BEGIN, trails.get(TRAIL_ID));
+            Assertions.assertEquals(TRAIL_ID, MetricsTrailSupport.get().getCorrelationId());
+            MetricsTrailSupport.end();
+            Assertions.assertEquals(MetricsTrailListener.EventType.END, trails.get(TRAIL_ID));
+        } finally {
+            MetricsTrailSupport.removeListener(listener);
+        }
+    }
+
+    @Test
+    public void isInterested() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from("testConsumer", (consumerId, correlationId, event) -> {});
+        consumer.setInterests("test.*");
+        MetricsTrailSupport.addPersistentHook(consumer, MetricsTrailListener.ReferenceMode.HARD);
+        MetricsTrailSupport.setLazyTrails(true);
+        try {
+            MetricsTrailSupport.begin();
+            Assertions.assertTrue(MetricsTrailSupport.isInterested("test.event"));
+            Assertions.assertFalse(MetricsTrailSupport.isInterested("other.event"));
+
+            MetricsTrailSupport.get();
+            Assertions.assertTrue(MetricsTrailSupport.isInterested("test.event"));
+            Assertions.assertFalse(MetricsTrailSupport.isInterested("other.event"));
+            MetricsTrailSupport.end();
+        } finally {
+            MetricsTrailSupport.removePersistentHook(consumer);
+        }
+        Assertions.assertFalse(MetricsTrailSupport.isInterested("test.event"));
+    }
+
+    @Test
+    public void isInterestedWithListener() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from("testConsumer", (consumerId, correlationId, event) -> {});
+        consumer.setInterests("test.*");
+        MetricsTrailListener listener = (trail, eventType) -> {
+            if (eventType == MetricsTrailListener.EventType.BEGIN) {
+                trail.hook(consumer);
+            }
+        };
+        MetricsTrailSupport.addListener(listener, MetricsTrailListener.ReferenceMode.HARD);
+        MetricsTrailSupport.setLazyTrails(true);
+        try {
+            MetricsTrailSupport.begin();
+            Assertions.assertTrue(MetricsTrailSupport.isInterested("test.event"));
+            Assertions.assertTrue(MetricsTrailSupport.isInterested("other.event"));
+
+            MetricsTrailSupport.get();
+            Assertions.assertTrue(MetricsTrailSupport.isInterested("test.event"));
+            Assertions.assertFalse(MetricsTrailSupport.isInterested("other.event"));
+            MetricsTrailSupport.end();
+        } finally {
+            MetricsTrailSupport.removeListener(listener);
+        }
+        Assertions.assertFalse(MetricsTrailSupport.isInterested("test.event"));
+    }
+
+    @Test
+    public void addPersistentHook() {
+        AtomicInteger eagerQueues = new AtomicInteger();
+        MetricsTrailConsumer eagerConsumer = MetricsTrailConsumer.from("eagerConsumer",
+                (consumerId, correlationId, event) -> {}, countingGate(eagerQueues), null);
+        AtomicInteger lazyQueues = new AtomicInteger();
+        MetricsTrailConsumer lazyConsumer = MetricsTrailConsumer.from("lazyConsumer",
+                (consumerId, correlationId, event) -> {}, countingGate(lazyQueues), null);
+        // every queue clones the gate, and so does the consumer itself
+        Assertions.assertEquals(1, eagerQueues.get());
+        Assertions.assertEquals(1, lazyQueues.get());
+
+        MetricsTrailSupport.addPersistentHook(eagerConsumer, MetricsTrailListener.ReferenceMode.HARD);
+        MetricsTrailSupport.addPersistentHook(lazyConsumer, MetricsTrailListener.ReferenceMode.HARD, true);
+        try {
+            MetricsTrailSupport.begin(TRAIL_ID);
+            Assertions.assertEquals(2, eagerQueues.get());
+            Assertions.assertEquals(1, lazyQueues.get());
+
+            MetricsTrailSupport.commit(new Event("test.event"));
+            Assertions.assertEquals(2, eagerQueues.get());
+            Assertions.assertEquals(2, lazyQueues.get());
+            MetricsTrailSupport.end();
+        } finally {
+            MetricsTrailSupport.removePersistentHook(eagerConsumer);
+            MetricsTrailSupport.removePersistentHook(lazyConsumer);
+        }
+    }
+
+    private static MetricsPredicate countingGate(AtomicInteger clones) {
+        return new MetricsPredicate() {
+
+            @Override
+            public boolean test(Event event) {
+                return true;
+            }
+
+            @Override
+            public MetricsPredicate functionalClone() {
+                clones.incrementAndGet();
+                return this;
+            }
+        };
+    }
 }
@@ -1,5 +1,6 @@
 package com.mantledillusion.metrics.trail;
 
+import com.mantledillusion.metrics.trail.api.DeferredMeasurement;
 import com.mantledillusion.metrics.trail.api.Event;
 import com.mantledillusion.metrics.trail.api.Measurement;
 import com.mantledillusion.metrics.trail.api.MeasurementType;
@@ -24,17 +25,26 @@ abstract class AbstractMetricsWrappingErrorHandler<H> {
     }
 
     protected void commit(Throwable t) {
-        StringWriter out = new StringWriter();
-        PrintWriter writer = new PrintWriter(out);
-        t.printStackTrace(writer);
+        MetricsTrail trail = this.trailSupplier.get();
+        if (!trail.isInterested(GeneralVaadinMetrics.ERROR.getIdentifier())) {
+            // printing the stack trace is expensive, so nothing is built if nobody would receive it
+            return;
+        }
 
         Event event = GeneralVaadinMetrics.ERROR.build(
                 new Measurement(ATTRIBUTE_KEY_SIMPLE_TYPE, t.getClass().getSimpleName(), MeasurementType.STRING),
                 new Measurement(ATTRIBUTE_KEY_TYPE, t.getClass().getName(), MeasurementType.STRING),
                 new Measurement(ATTRIBUTE_KEY_MESSAGE, t.getMessage(), MeasurementType.STRING),
-                new Measurement(ATTRIBUTE_KEY_STACKTRACE, out.toString(), MeasurementType.STRING));
+                new DeferredMeasurement(ATTRIBUTE_KEY_STACKTRACE, () -> printStackTrace(t), MeasurementType.STRING));
+
+        trail.commit(event);
+    }
 
-        this.trailSupplier.get().commit(event);
+    private static String printStackTrace(Throwable t) {
+        StringWriter out = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+        t.printStackTrace(writer);
+        return out.toString();
     }
 
     /**
@@ -23,19 +23,19 @@ abstract class AbstractVaadinMetricsTrailSupport<ServiceType, SessionType> {
 
         // SESSION INIT
         Consumer<SessionType> sessionInitListener = session -> {
-            MetricsTrail trail = new MetricsTrail(UUID.randomUUID());
+            MetricsTrail trail = new MetricsTrail(MetricsTrail.generateCorrelationId());
             AbstractVaadinMetricsTrailSupport.this.consumers.forEach(consumer -> trail.hook(consumer));
             hookSession(session, trail);
 
-            trail.commit(GeneralVaadinMetrics.SESSION_BEGIN.build(
-                    new Measurement(ATTRIBUTE_KEY_SESSION_ID, getSessionId(session), MeasurementType.STRING)));
-
             BrowserInfo browserInfo = getSessionBrowserInfo(session);
-            trail.commit(GeneralVaadinMetrics.BROWSER_INFO.build(
-                    new Measurement(BrowserInfo.ATTRIBUTE_KEY_APPLICATION, browserInfo.getApplication(), MeasurementType.STRING),
-                    new Measurement(BrowserInfo.ATTRIBUTE_KEY_TYPE, browserInfo.getBrowser().name(), MeasurementType.STRING),
-                    new Measurement(BrowserInfo.ATTRIBUTE_KEY_VERSION, browserInfo.getVersion(), MeasurementType.STRING),
-                    new Measurement(BrowserInfo.ATTRIBUTE_KEY_ENVIRONMENT, browserInfo.getEnvironment().name(), MeasurementType.STRING)));
+            trail.commitAll(Arrays.asList(
+                    GeneralVaadinMetrics.SESSION_BEGIN.build(
+                            new Measurement(ATTRIBUTE_KEY_SESSION_ID, getSessionId(session), MeasurementType.STRING)),
+                    GeneralVaadinMetrics.BROWSER_INFO.build(
+                            new Measurement(BrowserInfo.ATTRIBUTE_KEY_APPLICATION, browserInfo.getApplication(), MeasurementType.STRING),
+                            new Measurement(BrowserInfo.ATTRIBUTE_KEY_TYPE, browserInfo.getBrowser().name(), MeasurementType.STRING),
+                            new Measurement(BrowserInfo.ATTRIBUTE_KEY_VERSION, browserInfo.getVersion(), MeasurementType.STRING),
+                            new Measurement(BrowserInfo.ATTRIBUTE_KEY_ENVIRONMENT, browserInfo.getEnvironment().name(), MeasurementType.STRING))));
         };
 
         // NAVIGATION
@@ -0,0 +1,58 @@
+package com.mantledillusion.metrics.trail;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates the {@link UUID}s new {@link MetricsTrail}s are identified by.
+ * <p>
+ * The generator used for new trails is set using {@link MetricsTrail#setCorrelationIdGenerator(CorrelationIdGenerator)}.
+ */
+@FunctionalInterface
+public interface CorrelationIdGenerator {
+
+    /**
+     * Generates a new correlation ID.
+     *
+     * @return A new {@link UUID}, never null
+     */
+    UUID generate();
+
+    /**
+     * Returns a generator of random version 4 {@link UUID}s drawn from a {@link ThreadLocalRandom}.
+     * <p>
+     * Other than {@link #secure()}, the generator never contends or blocks, but its IDs are not suitable for
+     * anything requiring them to be unpredictable.
+     *
+     * @return The generator, never null
+     */
+    static CorrelationIdGenerator random() {
+        return () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return new UUID((random.nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x0000000000004000L,
+                    (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+        };
+    }
+
+    /**
+     * Returns a generator of cryptographically strong random version 4 {@link UUID}s using {@link UUID#randomUUID()}.
+     *
+     * @return The generator, never null
+     */
+    static CorrelationIdGenerator secure() {
+        return UUID::randomUUID;
+    }
+
+    /**
+     * Returns a generator of time-ordered version 7 {@link UUID}s, whose most significant bits are the Unix
+     * timestamp in milliseconds.
+     * <p>
+     * The IDs generated by the same generator strictly increase, so indexes on them are always appended to instead
+     * of being split randomly.
+     *
+     * @return A new generator, never null
+     */
+    static CorrelationIdGenerator timeOrdered() {
+        return new TimeOrderedCorrelationIdGenerator();
+    }
+}
@@ -0,0 +1,299 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A circuit breaker that stops a {@link MetricsTrailConsumer} from calling its {@link MetricsConsumer} while the
+ * consumer is failing or responding slowly.
+ * <p>
+ * The breaker is {@link State#CLOSED} as long as the rate of failed or slow calls among the most recent calls stays
+ * below their thresholds. When exceeded, it becomes {@link State#OPEN} for the configured duration, during which no
+ * calls are made at all; {@link Event}s are either buffered or shed, depending on the {@link OpenPolicy}. After the
+ * duration has passed, the breaker becomes {@link State#HALF_OPEN}, letting a single probe call through that decides
+ * whether it closes again or stays open for another duration.
+ */
+public final class MetricsCircuitBreaker {
+
+    /**
+     * The state of a {@link MetricsCircuitBreaker}.
+     */
+    public enum State {
+
+        /**
+         * Calls are permitted.
+         */
+        CLOSED,
+
+        /**
+         * Calls are not permitted.
+         */
+        OPEN,
+
+        /**
+         * A single probe call is permitted.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Determines what happens to the {@link Event}s a {@link MetricsTrailConsumer} would deliver while its
+     * {@link MetricsCircuitBreaker} does not permit calls.
+     */
+    public enum OpenPolicy {
+
+        /**
+         * The {@link Event}s are kept and delivered once the breaker has closed again.
+         */
+        BUFFER,
+
+        /**
+         * The {@link Event}s are dropped.
+         */
+        SHED
+    }
+
+    private final double failureRateThreshold;
+    private final long openDuration;
+
+    private volatile double slowCallRateThreshold = 1;
+    private volatile long slowCallDuration = TimeUnit.MINUTES.toMillis(1);
+    private volatile OpenPolicy openPolicy = OpenPolicy.BUFFER;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openUntil;
+
+    private boolean[] failedCalls = new boolean[20];
+    private boolean[] slowCalls = new boolean[20];
+    private int minimumCalls = 10;
+    private int index, calls, failed, slow;
+
+    private MetricsCircuitBreaker(double failureRateThreshold, long openDuration) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Returns the current state of the breaker.
+     *
+     * @return The state, never null
+     */
+    public State getState() {
+        return this.state;
+    }
+
+    /**
+     * Returns the rate of failed calls that causes the breaker to open.
+     *
+     * @return The failure rate threshold, always &gt;0 and &lt;=1
+     */
+    public double getFailureRateThreshold() {
+        return this.failureRateThreshold;
+    }
+
+    /**
+     * Returns the duration in milliseconds the breaker stays open before letting a probe call through.
+     *
+     * @return The open duration, always &gt;=0
+     */
+    public long getOpenDuration() {
+        return this.openDuration;
+    }
+
+    /**
+     * Returns the rate of slow calls that causes the breaker to open.
+     *
+     * @return The slow call rate threshold, always &gt;0 and &lt;=1
+     */
+    public double getSlowCallRateThreshold() {
+        return this.slowCallRateThreshold;
+    }
+
+    /**
+     * Returns the duration in milliseconds after which a call is regarded as slow.
+     *
+     * @return The slow call duration, always &gt;=0
+     */
+    public long getSlowCallDuration() {
+        return this.slowCallDuration;
+    }
+
+    /**
+     * Sets when calls are regarded as slow and which rate of slow calls causes the breaker to open.
+     * <p>
+     * By default, a call is slow after 1 minute and the breaker opens when all recent calls were slow.
+     *
+     * @param rateThreshold The rate of slow calls; might <b>not</b> be &lt;=0 or &gt;1.
+     * @param duration The duration in milliseconds after which a call is slow; might <b>not</b> be negative.
+     */
+    public void setSlowCalls(double rateThreshold, long duration) {
+        if (rateThreshold <= 0 || rateThreshold > 1) {
+            throw new IllegalArgumentException("Cannot set a slow call rate threshold <= 0 or > 1");
+        } else if (duration < 0) {
+            throw new IllegalArgumentException("Cannot set a slow call duration < 0");
+        }
+        this.slowCallRateThreshold = rateThreshold;
+        this.slowCallDuration = duration;
+    }
+
+    /**
+     * Returns what happens to {@link Event}s while the breaker does not permit calls.
+     *
+     * @return The open policy, never null
+     */
+    public OpenPolicy getOpenPolicy() {
+        return this.openPolicy;
+    }
+
+    /**
+     * Sets what happens to {@link Event}s while the breaker does not permit calls.
+     * <p>
+     * {@link OpenPolicy#BUFFER} by default.
+     *
+     * @param openPolicy The open policy; might <b>not</b> be null.
+     */
+    public void setOpenPolicy(OpenPolicy openPolicy) {
+        if (openPolicy == null) {
+            throw new IllegalArgumentException("Cannot set a null open policy");
+        }
+        this.openPolicy = openPolicy;
+    }
+
+    /**
+     * Returns the count of most recent calls the failure and slow call rates are determined from.
+     *
+     * @return The window size, always &gt;0
+     */
+    public synchronized int getWindowSize() {
+        return this.failedCalls.length;
+    }
+
+    /**
+     * Returns the count of calls that have to be made before the breaker is able to open.
+     *
+     * @return The minimum count of calls, always &gt;0
+     */
+    public synchronized int getMinimumCalls() {
+        return this.minimumCalls;
+    }
+
+    /**
+     * Sets how many of the most recent calls the failure and slow call rates are determined from.
+     * <p>
+     * By default, the rates are determined from the 20 most recent calls, with at least 10 calls required.
+     *
+     * @param windowSize The count of recent calls; might <b>not</b> be &lt;1.
+     * @param minimumCalls The count of calls required to determine the rates; might <b>not</b> be &lt;1 or greater
+     *                     than the window size.
+     */
+    public synchronized void setWindow(int windowSize, int minimumCalls) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Cannot set a window size < 1");
+        } else if (minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Cannot set a minimum call count < 1 or > the window size");
+        }
+        this.failedCalls = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        reset();
+    }
+
+    boolean isCallPermitted() {
+        State state = this.state;
+        return state == State.CLOSED || (state == State.OPEN && System.nanoTime() - this.openUntil >= 0);
+    }
+
+    long getRemainingOpenNanos() {
+        return Math.max(0, this.openUntil - System.nanoTime());
+    }
+
+    synchronized boolean tryAcquire() {
+        switch (this.state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - this.openUntil >= 0) {
+                    this.state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Records the result of a call that has been permitted by {@link #tryAcquire()}.
+     *
+     * @param success Whether the call succeeded.
+     * @param duration The duration of the call in nanoseconds.
+     * @return True if the call was the probe of a half-open breaker, false otherwise
+     */
+    synchronized boolean onResult(boolean success, long duration) {
+        boolean slow = duration > TimeUnit.MILLISECONDS.toNanos(this.slowCallDuration);
+        switch (this.state) {
+            case HALF_OPEN:
+                if (success && !slow) {
+                    this.state = State.CLOSED;
+                    reset();
+                } else {
+                    open();
+                }
+                return true;
+            case CLOSED:
+                int window = this.failedCalls.length;
+                if (this.calls == window) {
+                    this.failed -= this.failedCalls[this.index] ? 1 : 0;
+                    this.slow -= this.slowCalls[this.index] ? 1 : 0;
+                } else {
+                    this.calls++;
+                }
+                this.failedCalls[this.index] = !success;
+                this.slowCalls[this.index] = slow;
+                this.failed += success ? 0 : 1;
+                this.slow += slow ? 1 : 0;
+                this.index = (this.index + 1) % window;
+
+                if (this.calls >= this.minimumCalls && (this.failed >= this.calls * this.failureRateThreshold
+                        || this.slow >= this.calls * this.slowCallRateThreshold)) {
+                    open();
+                }
+                return false;
+            default:
+                // a call permitted before the breaker opened
+                return false;
+        }
+    }
+
+    private void open() {
+        this.openUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.openDuration);
+        this.state = State.OPEN;
+        reset();
+    }
+
+    private void reset() {
+        this.index = 0;
+        this.calls = 0;
+        this.failed = 0;
+        this.slow = 0;
+    }
+
+    /**
+     * Creates a new {@link MetricsCircuitBreaker}.
+     *
+     * @param failureRateThreshold The rate of failed calls among the most recent calls that causes the breaker to
+     *                             open; might <b>not</b> be &lt;=0 or &gt;1.
+     * @param openDuration The duration in milliseconds the breaker stays open before letting a probe call through;
+     *                     might <b>not</b> be negative.
+     * @return A new {@link MetricsCircuitBreaker}, never null
+     */
+    public static MetricsCircuitBreaker from(double failureRateThreshold, long openDuration) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("Cannot create a circuit breaker with a failure rate threshold <= 0 or > 1");
+        } else if (openDuration < 0) {
+            throw new IllegalArgumentException("Cannot create a circuit breaker with an open duration < 0");
+        }
+        return new MetricsCircuitBreaker(failureRateThreshold, openDuration);
+    }
+}
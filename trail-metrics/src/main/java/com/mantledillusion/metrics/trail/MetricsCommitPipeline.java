@@ -0,0 +1,312 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A pipeline that takes committing {@link Event}s off the committing threads.
+ * <p>
+ * When set using {@link MetricsTrail#setCommitPipeline(MetricsCommitPipeline)}, the {@link MetricsTrail}s created
+ * afterwards commit asynchronously: the committing thread only publishes the raw {@link Event} into a preallocated
+ * ring buffer, while validating, routing and evaluating the consumers' gates and filters happens on the pipeline's
+ * own daemon thread. As a result, the time a commit takes does not depend on how many consumers and predicates are
+ * configured.
+ * <p>
+ * The {@link Event}s of a trail are processed in the order they were committed, including the trail's end. A
+ * committing thread only has to wait if the ring buffer is full, until the pipeline has caught up. Since the
+ * pipeline validates the {@link Event}s, invalid ones cannot be reported to the committing thread; they are
+ * dropped and counted as {@link #getRejectedCount() rejected}.
+ * <p>
+ * A pipeline that is not needed anymore has to be {@link #shutdown() shut down} to stop its thread; replacing it
+ * using {@link MetricsTrail#setCommitPipeline(MetricsCommitPipeline)} does so automatically.
+ */
+public final class MetricsCommitPipeline {
+
+    // committing threads waiting for a free slot spin a little before parking
+    private static final int SPINS = 100;
+    private static final long STALL_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    // added to the claimed sequence when shutting down, so every later claim knows it is too late
+    private static final long SHUT_DOWN = 1L << 62;
+
+    private static final List<MetricsCommitPipeline> PIPELINES = new ArrayList<>();
+
+    private static final class Slot {
+
+        private MetricsTrail trail;
+        private Event event;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder stalledCount = new LongAdder();
+    private final Thread thread;
+    private volatile long processed;
+    private volatile long end = Long.MAX_VALUE;
+    private volatile boolean sleeping;
+
+    private MetricsCommitPipeline(int capacity) {
+        this.slots = new Slot[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.slots[i] = new Slot();
+            this.published.set(i, -1);
+        }
+        this.mask = capacity - 1;
+        this.thread = new Thread(this::run, "trail-metrics-commit-pipeline");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Returns the count of {@link Event}s the pipeline's ring buffer is able to hold.
+     *
+     * @return The capacity, always &gt;0
+     */
+    public int getCapacity() {
+        return this.slots.length;
+    }
+
+    /**
+     * Returns the count of {@link Event}s that have been dropped because committing them failed, for example
+     * because they were invalid.
+     *
+     * @return The count of rejected {@link Event}s, always &gt;=0
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount.sum();
+    }
+
+    /**
+     * Returns how many times a committing thread had to wait because the ring buffer was full.
+     *
+     * @return The count of stalled commits, always &gt;=0
+     */
+    public long getStalledCount() {
+        return this.stalledCount.sum();
+    }
+
+    /**
+     * Returns whether all {@link Event}s published to the pipeline have been committed to their trail.
+     *
+     * @return True if there is nothing left to process, false otherwise
+     */
+    public boolean isIdle() {
+        return this.processed == target();
+    }
+
+    boolean isPending(long sequence) {
+        return this.processed <= sequence;
+    }
+
+    /**
+     * Returns whether the pipeline has been shut down using {@link #shutdown()}.
+     *
+     * @return True if the pipeline does not accept {@link Event}s anymore, false otherwise
+     */
+    public boolean isShutdown() {
+        return this.claimed.get() >= SHUT_DOWN;
+    }
+
+    /**
+     * Waits until all {@link Event}s published to the pipeline so far have been committed to their trail.
+     *
+     * @param timeout The maximum duration to wait; might <b>not</b> be null or negative.
+     * @return True if the pipeline has caught up, false if the timeout elapsed before
+     */
+    public boolean awaitIdle(Duration timeout) {
+        if (timeout == null) {
+            throw new IllegalArgumentException("Cannot await a pipeline using a null timeout");
+        } else if (timeout.isNegative()) {
+            throw new IllegalArgumentException("Cannot await a pipeline using a negative timeout");
+        }
+        return awaitIdle(System.nanoTime() + Math.min(timeout.toNanos(), Long.MAX_VALUE / 2));
+    }
+
+    private boolean awaitIdle(long deadlineNanos) {
+        long target = target();
+        while (this.processed < target) {
+            if (deadlineNanos - System.nanoTime() <= 0) {
+                return false;
+            } else if (Thread.currentThread() == this.thread) {
+                // the pipeline cannot wait for itself
+                return false;
+            }
+            LockSupport.parkNanos(STALL_NANOS);
+        }
+        return true;
+    }
+
+    private long target() {
+        long claimed = this.claimed.get();
+        if (claimed < SHUT_DOWN) {
+            return claimed;
+        }
+        // the last sequence to process is only known once the shutdown has published it
+        long end;
+        while ((end = this.end) == Long.MAX_VALUE) {
+            Thread.yield();
+        }
+        return end;
+    }
+
+    /**
+     * Shuts the pipeline down.
+     * <p>
+     * The {@link Event}s already published to the pipeline are committed to their trails before the pipeline's
+     * thread ends; the method waits until then. Afterwards, the trails that used the pipeline commit synchronously
+     * on the committing thread, as if they never used a pipeline.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (isShutdown()) {
+                return;
+            }
+            this.end = this.claimed.getAndAdd(SHUT_DOWN);
+        }
+        LockSupport.unpark(this.thread);
+        synchronized (PIPELINES) {
+            PIPELINES.remove(this);
+        }
+        if (Thread.currentThread() != this.thread) {
+            try {
+                this.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static void awaitAll(long deadlineNanos) {
+        List<MetricsCommitPipeline> pipelines;
+        synchronized (PIPELINES) {
+            pipelines = new ArrayList<>(PIPELINES);
+        }
+        pipelines.forEach(pipeline -> pipeline.awaitIdle(deadlineNanos));
+    }
+
+    void commit(MetricsTrail trail, Event event) {
+        publish(trail, event);
+    }
+
+    void end(MetricsTrail trail) {
+        // a slot without an event ends its trail
+        publish(trail, null);
+    }
+
+    private void publish(MetricsTrail trail, Event event) {
+        if (Thread.currentThread() == this.thread) {
+            // committing from within the pipeline, for example from a predicate, must not wait for the pipeline
+            process(trail, event);
+            return;
+        }
+
+        long sequence = this.claimed.getAndIncrement();
+        if (sequence >= SHUT_DOWN) {
+            // the events published before the shutdown come first
+            awaitIdle(System.nanoTime() + Long.MAX_VALUE / 2);
+            if (event == null) {
+                trail.endNow();
+            } else {
+                trail.commitNow(event);
+            }
+            return;
+        }
+        trail.published(sequence);
+        if (sequence - this.processed >= this.slots.length) {
+            this.stalledCount.increment();
+            int spins = 0;
+            while (sequence - this.processed >= this.slots.length) {
+                if (spins++ < SPINS) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(STALL_NANOS);
+                }
+            }
+        }
+
+        int index = (int) sequence & this.mask;
+        Slot slot = this.slots[index];
+        slot.trail = trail;
+        slot.event = event;
+        this.published.set(index, sequence);
+        if (this.sleeping) {
+            LockSupport.unpark(this.thread);
+        }
+    }
+
+    private void run() {
+        long sequence = 0;
+        int spins = 0;
+        while (sequence < this.end) {
+            int index = (int) sequence & this.mask;
+            if (this.published.get(index) == sequence) {
+                Slot slot = this.slots[index];
+                MetricsTrail trail = slot.trail;
+                Event event = slot.event;
+                slot.trail = null;
+                slot.event = null;
+                process(trail, event);
+                this.processed = ++sequence;
+                spins = 0;
+            } else if (spins++ < SPINS) {
+                Thread.yield();
+            } else {
+                /*
+                 * The committing threads check whether the pipeline sleeps after publishing, the pipeline checks
+                 * whether something has been published after announcing it sleeps; one of both always notices.
+                 */
+                this.sleeping = true;
+                if (this.published.get(index) != sequence && sequence < this.end) {
+                    LockSupport.park(this);
+                }
+                this.sleeping = false;
+            }
+        }
+    }
+
+    private void process(MetricsTrail trail, Event event) {
+        try {
+            if (event == null) {
+                trail.endNow();
+            } else {
+                trail.commitNow(event);
+            }
+        } catch (RuntimeException e) {
+            // there is no committing thread to report to; the pipeline has to keep serving the others
+            this.rejectedCount.increment();
+        }
+    }
+
+    /**
+     * Creates a new {@link MetricsCommitPipeline} and starts its thread.
+     *
+     * @param capacity The count of {@link Event}s the ring buffer is able to hold, which is rounded up to the next
+     *                 power of 2; might <b>not</b> be &lt;1 or &gt;2^30.
+     * @return A new {@link MetricsCommitPipeline}, never null
+     */
+    public static MetricsCommitPipeline from(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cannot create a commit pipeline with a capacity < 1");
+        } else if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Cannot create a commit pipeline with a capacity > 2^30");
+        }
+        // a power of 2 allows finding a sequence's slot by masking
+        int powerOf2 = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        MetricsCommitPipeline pipeline = new MetricsCommitPipeline(powerOf2);
+        synchronized (PIPELINES) {
+            PIPELINES.add(pipeline);
+        }
+        pipeline.thread.start();
+        return pipeline;
+    }
+}
@@ -0,0 +1,129 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.MetricsTrailConsumer.MetricsTrailConsumerQueue;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The retries of a single {@link MetricsDeliveryStripe}; batches that failed to be delivered are scheduled to become
+ * due after a backing off interval, after which the stripe's drain picks them up again.
+ * <p>
+ * Scheduling, expediting and discarding retries is thread safe; a retry is handed on exactly once, no matter which of
+ * them races for it.
+ */
+final class MetricsDeliveryRetries {
+
+    /**
+     * A batch that failed to be delivered and waits to be retried.
+     */
+    static final class Batch {
+
+        final List<MetricsTrailConsumerQueue> queues;
+        final List<MetricsBatchConsumer.BatchedEvent> batch;
+        final int tries;
+        private volatile ScheduledFuture<?> future;
+
+        Batch(List<MetricsTrailConsumerQueue> queues, List<MetricsBatchConsumer.BatchedEvent> batch, int tries) {
+            this.queues = queues;
+            this.batch = batch;
+            this.tries = tries;
+        }
+
+        long bytes() {
+            return this.batch.stream().mapToLong(batchedEvent -> MetricsTrailConsumer.estimateSize(batchedEvent.getEvent())).sum();
+        }
+    }
+
+    private final Queue<Batch> due = new ConcurrentLinkedQueue<>();
+    private final Set<Batch> scheduled = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService timer;
+    private final Consumer<Batch> onDue;
+
+    /**
+     * @param timer The timer to schedule retries on; might <b>not</b> be null.
+     * @param onDue The callback a scheduled retry is handed to once its interval has passed; might <b>not</b> be null.
+     */
+    MetricsDeliveryRetries(ScheduledExecutorService timer, Consumer<Batch> onDue) {
+        this.timer = timer;
+        this.onDue = onDue;
+    }
+
+    void add(Batch retry) {
+        this.due.add(retry);
+    }
+
+    Batch poll() {
+        return this.due.poll();
+    }
+
+    boolean hasDue() {
+        return !this.due.isEmpty();
+    }
+
+    /**
+     * Schedules the given retry to become due after the interval of its try, shortened by a random jitter.
+     *
+     * @param retry The retry to schedule; might <b>not</b> be null.
+     * @param intervals The intervals in milliseconds by try, the last one applying to all further tries; might
+     *                  <b>not</b> be null or empty.
+     * @param jitter The maximum share of the interval to shorten it by.
+     * @param draining Whether the consumer is draining, in which case retries do not back off any further.
+     */
+    void schedule(Batch retry, long[] intervals, double jitter, boolean draining) {
+        if (draining && retry.tries == 1) {
+            // a batch failing for the first time while draining is retried right away, like the expedited ones
+            this.due.add(retry);
+            return;
+        }
+        long interval = intervals[draining ? 0 : Math.min(retry.tries - 1, intervals.length - 1)];
+        interval -= (long) (interval * jitter * ThreadLocalRandom.current().nextDouble());
+        this.scheduled.add(retry);
+        retry.future = this.timer.schedule(() -> {
+            // the retry might have been expedited in the meantime
+            if (this.scheduled.remove(retry)) {
+                this.onDue.accept(retry);
+            }
+        }, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Makes all scheduled retries due right away.
+     */
+    void expedite() {
+        for (Batch retry : this.scheduled) {
+            if (this.scheduled.remove(retry)) {
+                ScheduledFuture<?> future = retry.future;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                this.due.add(retry);
+            }
+        }
+    }
+
+    /**
+     * Removes all due and scheduled retries.
+     *
+     * @param discarder The callback every removed retry is handed to; might <b>not</b> be null.
+     */
+    void discard(Consumer<Batch> discarder) {
+        Batch retry;
+        while ((retry = this.due.poll()) != null) {
+            discarder.accept(retry);
+        }
+        for (Batch scheduled : this.scheduled) {
+            if (this.scheduled.remove(scheduled)) {
+                discarder.accept(scheduled);
+            }
+        }
+    }
+}
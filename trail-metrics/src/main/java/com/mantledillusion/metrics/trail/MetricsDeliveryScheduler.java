@@ -0,0 +1,303 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+
+import java.util.*;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A pool of delivery threads that can be shared by many {@link MetricsTrailConsumer}s instead of each of them
+ * running a thread pool of its own.
+ * <p>
+ * The threads are started lazily when there is something to deliver and are daemon threads, so an idle scheduler
+ * costs nothing and never keeps the JVM from ending.
+ * <p>
+ * Consumers are scheduled weighted fair: every consumer is charged for the time the threads spend delivering its
+ * {@link Event}s, divided by its weight, and the consumer charged least is served next. As a bulkhead, a single
+ * consumer never occupies more threads than the scheduler's bulkhead allows, so one slow consumer cannot starve
+ * all others.
+ */
+public final class MetricsDeliveryScheduler {
+
+    private static volatile MetricsDeliveryScheduler shared;
+
+    /**
+     * The tasks of a single {@link MetricsTrailConsumer} on a {@link MetricsDeliveryScheduler}.
+     */
+    final class Lane extends AbstractExecutorService {
+
+        private final int weight;
+        private final long sequence;
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        private int maxConcurrency;
+        private int active;
+        private long pass;
+        private boolean queued;
+        private volatile boolean shutdown;
+
+        private Lane(int weight, int maxConcurrency, long sequence) {
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+            this.sequence = sequence;
+        }
+
+        void setMaxConcurrency(int maxConcurrency) {
+            lock.lock();
+            try {
+                this.maxConcurrency = maxConcurrency;
+                ready(this);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean isRunnable() {
+            return !this.tasks.isEmpty() && this.active < Math.min(this.maxConcurrency, bulkhead);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            lock.lock();
+            try {
+                if (this.shutdown) {
+                    throw new RejectedExecutionException("Cannot execute a task on a lane that has been shut down");
+                }
+                this.tasks.add(command);
+                if (!this.queued && this.active == 0) {
+                    // a lane that has been idle does not bank the time it was not served
+                    this.pass = Math.max(this.pass, virtualTime);
+                }
+                ready(this);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            lock.lock();
+            try {
+                this.shutdown = true;
+                terminated.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            lock.lock();
+            try {
+                this.shutdown = true;
+                List<Runnable> tasks = new ArrayList<>(this.tasks);
+                this.tasks.clear();
+                if (this.queued) {
+                    runnable.remove(this);
+                    this.queued = false;
+                }
+                terminated.signalAll();
+                return tasks;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return this.shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            lock.lock();
+            try {
+                return this.shutdown && this.tasks.isEmpty() && this.active == 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long remaining = unit.toNanos(timeout);
+            lock.lock();
+            try {
+                while (!isTerminated()) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = terminated.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final int threads;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = this.lock.newCondition();
+    private final Condition terminated = this.lock.newCondition();
+    private final PriorityQueue<Lane> runnable = new PriorityQueue<>(Comparator
+            .<Lane>comparingLong(lane -> lane.pass)
+            .thenComparingLong(lane -> lane.sequence));
+
+    private volatile int bulkhead;
+    private long virtualTime;
+    private long lanes;
+    private int started;
+    private int waiting;
+
+    private MetricsDeliveryScheduler(int threads) {
+        this.threads = threads;
+        this.bulkhead = Math.max(1, threads - 1);
+    }
+
+    /**
+     * Returns the count of threads delivering {@link Event}s.
+     *
+     * @return The count of threads, always &gt;0
+     */
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * Returns the maximum count of threads that might deliver the {@link Event}s of a single consumer at once.
+     *
+     * @return The bulkhead, always &gt;0
+     */
+    public int getBulkhead() {
+        return this.bulkhead;
+    }
+
+    /**
+     * Sets the maximum count of threads that might deliver the {@link Event}s of a single consumer at once.
+     * <p>
+     * By default, a consumer might occupy all threads but one, so there is always a thread left for the others.
+     *
+     * @param bulkhead The maximum count of threads per consumer; might <b>not</b> be &lt;1.
+     */
+    public void setBulkhead(int bulkhead) {
+        if (bulkhead < 1) {
+            throw new IllegalArgumentException("Cannot set a bulkhead < 1");
+        }
+        // consumers already at the bulkhead are reconsidered as soon as one of their threads becomes free
+        this.bulkhead = bulkhead;
+    }
+
+    Lane lane(int weight, int maxConcurrency) {
+        this.lock.lock();
+        try {
+            return new Lane(weight, maxConcurrency, this.lanes++);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    int getStartedThreads() {
+        this.lock.lock();
+        try {
+            return this.started;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void ready(Lane lane) {
+        if (!lane.queued && lane.isRunnable()) {
+            lane.queued = true;
+            this.runnable.add(lane);
+            if (this.waiting > 0) {
+                this.available.signal();
+            } else if (this.started < this.threads) {
+                Thread worker = new Thread(this::work, "trail-metrics-scheduler-" + this.started++);
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Lane lane;
+            Runnable task;
+            this.lock.lock();
+            try {
+                while (this.runnable.isEmpty()) {
+                    this.waiting++;
+                    this.available.awaitUninterruptibly();
+                    this.waiting--;
+                }
+                lane = this.runnable.poll();
+                lane.queued = false;
+                task = lane.tasks.poll();
+                lane.active++;
+                this.virtualTime = Math.max(this.virtualTime, lane.pass);
+                // the lane might be able to occupy another thread
+                ready(lane);
+            } finally {
+                this.lock.unlock();
+            }
+
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // the consumer has already dealt with it; the thread has to keep serving the others
+            }
+            long elapsed = System.nanoTime() - start;
+
+            this.lock.lock();
+            try {
+                lane.active--;
+                if (lane.queued) {
+                    this.runnable.remove(lane);
+                    lane.queued = false;
+                }
+                lane.pass += Math.max(1, elapsed / lane.weight);
+                ready(lane);
+                if (lane.shutdown && lane.active == 0 && lane.tasks.isEmpty()) {
+                    this.terminated.signalAll();
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link MetricsDeliveryScheduler} shared by the whole JVM, whose count of threads equals the
+     * count of available processors.
+     *
+     * @return The shared scheduler, never null
+     */
+    public static MetricsDeliveryScheduler shared() {
+        if (shared == null) {
+            synchronized (MetricsDeliveryScheduler.class) {
+                if (shared == null) {
+                    shared = new MetricsDeliveryScheduler(Runtime.getRuntime().availableProcessors());
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Creates a new {@link MetricsDeliveryScheduler}.
+     *
+     * @param threads The count of threads delivering {@link Event}s; might <b>not</b> be &lt;1.
+     * @return A new {@link MetricsDeliveryScheduler}, never null
+     */
+    public static MetricsDeliveryScheduler from(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Cannot create a delivery scheduler with a thread count < 1");
+        }
+        return new MetricsDeliveryScheduler(threads);
+    }
+}
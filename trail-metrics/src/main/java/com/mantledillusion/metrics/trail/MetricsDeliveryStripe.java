@@ -0,0 +1,503 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.MetricsTrailConsumer.DeliveryOrdering;
+import com.mantledillusion.metrics.trail.MetricsTrailConsumer.MetricsTrailConsumerQueue;
+import com.mantledillusion.metrics.trail.api.Event;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * A single lane of delivery of a {@link MetricsTrailConsumer}; all {@link Event}s published to the same stripe are
+ * delivered by one drain at a time in the order they were published in.
+ * <p>
+ * A failed batch does not block the stripe; it is retried later while the stripe keeps delivering. Only with
+ * {@link DeliveryOrdering#PER_TRAIL}, the later {@link Event}s of the failed batch's trails are held back until the
+ * retry succeeded.
+ * <p>
+ * With spillover enabled, the stripe moves its pending {@link Event}s to its {@link MetricsSpillLog} as soon as the
+ * {@link Event}s it keeps on the heap exceed its share of the threshold; from then on, all {@link Event}s go through
+ * the log and are replayed from it one batch at a time, until the log has been delivered completely.
+ */
+final class MetricsDeliveryStripe {
+
+    // the count of batches a drain delivers on a shared scheduler before giving other consumers a turn
+    private static final int DRAIN_QUANTUM = 16;
+
+    private static final int IDLE = 0;
+    private static final int DRAINING = 1;
+    private static final int LINGERING = 2;
+    private static final int SUSPENDED = 3;
+    // a drain has been submitted, but has not started yet; it can still be taken over when shutting down
+    private static final int QUEUED = 4;
+
+    private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "trail-metrics-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final MetricsTrailConsumer consumer;
+    private final MpscChunkedQueue<MetricsTrailConsumerQueue, Event> pending = new MpscChunkedQueue<>();
+    private final MetricsDeliveryRetries retries = new MetricsDeliveryRetries(TIMER, this::due);
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private volatile MetricsSpillLog spillLog;
+
+    // only accessed by the current drain
+    private final Map<MetricsTrailConsumerQueue, Deque<Event>> held = new IdentityHashMap<>();
+    private final Deque<Map.Entry<MetricsTrailConsumerQueue, Event>> released = new ArrayDeque<>();
+    private final Deque<MetricsTrailConsumerQueue> spilled = new ArrayDeque<>();
+    private final Deque<Map.Entry<MetricsTrailConsumerQueue, Event>> unspilled = new ArrayDeque<>();
+    private int retained;
+    private long retainedBytes;
+    private ScheduledFuture<?> lingering;
+
+    MetricsDeliveryStripe(MetricsTrailConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    MetricsSpillLog getSpillLog() {
+        return this.spillLog;
+    }
+
+    void setSpillLog(MetricsSpillLog spillLog) {
+        this.spillLog = spillLog;
+        if (!spillLog.isEmpty()) {
+            // recovered events are delivered right away
+            wake(true);
+        }
+    }
+
+    void publish(MetricsTrailConsumerQueue queue, Event event) {
+        queue.delivering(1);
+        this.pending.offer(queue, event);
+        // past the threshold, the drain has to move the pending events to disk, even if lingering or suspended
+        wake(this.spillLog != null && this.pendingBytes.addAndGet(MetricsTrailConsumer.estimateSize(event)) > spilloverThreshold());
+    }
+
+    void publish(MetricsTrailConsumerQueue queue, List<Event> events) {
+        queue.delivering(events.size());
+        boolean spilling = this.spillLog != null;
+        long bytes = 0;
+        for (Event event : events) {
+            this.pending.offer(queue, event);
+            if (spilling) {
+                bytes += MetricsTrailConsumer.estimateSize(event);
+            }
+        }
+        // the whole batch wakes the drain only once
+        wake(spilling && this.pendingBytes.addAndGet(bytes) > spilloverThreshold());
+    }
+
+    void wake(boolean force) {
+        /*
+         * Committing threads never wait for each other; only the one that finds the drain idle (or lingering on a
+         * batch that just became full) starts a new drain.
+         */
+        int state;
+        while ((state = this.state.get()) == IDLE || (force && state == SUSPENDED) || (state == LINGERING
+                && (force || this.pending.size() >= this.consumer.getBatchMaxSize()))) {
+            if (this.state.compareAndSet(state, QUEUED)) {
+                if (!this.consumer.submit(this::start) && this.state.compareAndSet(QUEUED, DRAINING)) {
+                    // the consumer has been shut down in the meantime
+                    discard();
+                }
+                break;
+            }
+        }
+    }
+
+    private void start() {
+        // the stripe might have been taken over while the drain was waiting for a thread
+        if (this.state.compareAndSet(QUEUED, DRAINING)) {
+            drain();
+        }
+    }
+
+    private void resume() {
+        if (this.state.compareAndSet(LINGERING, DRAINING)) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        int delivered = 0;
+        while (true) {
+            if (delivered >= DRAIN_QUANTUM && this.consumer.delivererService instanceof MetricsDeliveryScheduler.Lane) {
+                // the drain stays running, it just continues in a new turn
+                this.state.set(QUEUED);
+                if (this.consumer.submit(this::start) || !this.state.compareAndSet(QUEUED, DRAINING)) {
+                    return;
+                }
+                delivered = 0;
+            }
+
+            if (this.consumer.delivererService.isShutdown()) {
+                discard();
+                return;
+            }
+
+            MetricsSpillLog spillLog = this.spillLog;
+            if (spillLog != null) {
+                spill(spillLog);
+            }
+
+            MetricsCircuitBreaker breaker = this.consumer.getCircuitBreaker();
+            if (breaker != null && breaker.getOpenPolicy() == MetricsCircuitBreaker.OpenPolicy.BUFFER
+                    && !breaker.isCallPermitted() && suspend(breaker)) {
+                return;
+            }
+
+            MetricsDeliveryRetries.Batch retry = this.retries.poll();
+            if (retry != null) {
+                this.retained--;
+                this.retainedBytes -= retry.bytes();
+                deliver(retry.queues, retry.batch, retry.tries);
+                delivered++;
+                continue;
+            }
+
+            int batchMaxSize = this.consumer.getBatchMaxSize();
+            List<MetricsTrailConsumerQueue> queues = new ArrayList<>();
+            List<MetricsBatchConsumer.BatchedEvent> batch = new ArrayList<>();
+            if (!this.released.isEmpty()) {
+                while (batch.size() < batchMaxSize && !this.released.isEmpty()) {
+                    Map.Entry<MetricsTrailConsumerQueue, Event> entry = this.released.poll();
+                    take(entry.getKey(), entry.getValue(), queues, batch);
+                }
+            } else if (spillLog != null && isReplaying(spillLog)) {
+                if (this.retained > 0) {
+                    // replayed events are only acknowledged once resolved, so replaying waits for all retries
+                    if (idle()) {
+                        return;
+                    }
+                    continue;
+                }
+                replay(spillLog, batchMaxSize, queues, batch);
+            } else {
+                int size = this.pending.size();
+                if (size == 0) {
+                    if (idle()) {
+                        return;
+                    }
+                    continue;
+                } else if (size < batchMaxSize && linger()) {
+                    return;
+                }
+                this.pending.drain(Math.min(size, batchMaxSize), (queue, event) -> {
+                    unpend(event);
+                    take(queue, event, queues, batch);
+                });
+            }
+
+            if (!batch.isEmpty()) {
+                deliver(queues, batch, 0);
+                delivered++;
+            }
+        }
+    }
+
+    private boolean idle() {
+        this.state.set(IDLE);
+        // a metric or retry might have come in after checking, but before becoming idle
+        return (this.pending.isEmpty() && !this.retries.hasDue()) || !this.state.compareAndSet(IDLE, DRAINING);
+    }
+
+    private void take(MetricsTrailConsumerQueue queue, Event event, List<MetricsTrailConsumerQueue> queues,
+                      List<MetricsBatchConsumer.BatchedEvent> batch) {
+        Deque<Event> held = this.held.get(queue);
+        if (held != null) {
+            // the trail waits for a retry, so its later events have to wait as well
+            held.add(event);
+            this.retainedBytes += MetricsTrailConsumer.estimateSize(event);
+        } else {
+            queues.add(queue);
+            batch.add(new MetricsBatchConsumer.BatchedEvent(queue.getCorrelationId(), event));
+        }
+    }
+
+    private void unpend(Event event) {
+        if (this.spillLog != null) {
+            this.pendingBytes.addAndGet(-MetricsTrailConsumer.estimateSize(event));
+        }
+    }
+
+    private boolean isReplaying(MetricsSpillLog spillLog) {
+        return !spillLog.isEmpty() || !this.unspilled.isEmpty() || spillLog.hasUnacknowledged();
+    }
+
+    private void spill(MetricsSpillLog spillLog) {
+        if (isReplaying(spillLog) || this.pendingBytes.get() + this.retainedBytes > spilloverThreshold()) {
+            this.pending.drain(Integer.MAX_VALUE, (queue, event) -> {
+                unpend(event);
+                if (this.unspilled.isEmpty()) {
+                    try {
+                        spillLog.append(queue.getCorrelationId(), event);
+                        this.spilled.add(queue);
+                        return;
+                    } catch (IOException e) {
+                        // the event is kept on the heap instead, behind the ones on disk
+                    }
+                }
+                this.unspilled.add(new AbstractMap.SimpleImmutableEntry<>(queue, event));
+            });
+        }
+    }
+
+    private void replay(MetricsSpillLog spillLog, int batchMaxSize, List<MetricsTrailConsumerQueue> queues,
+                        List<MetricsBatchConsumer.BatchedEvent> batch) {
+        // all events replayed so far have been resolved
+        spillLog.acknowledge();
+        if (!spillLog.isEmpty()) {
+            spillLog.read(batchMaxSize, (correlationId, event) -> {
+                // recovered events come first and have no queue of their own
+                MetricsTrailConsumerQueue queue = this.spilled.size() > spillLog.size()
+                        ? this.spilled.poll() : recover(correlationId);
+                take(queue, event, queues, batch);
+            });
+        } else {
+            while (batch.size() < batchMaxSize && !this.unspilled.isEmpty()) {
+                Map.Entry<MetricsTrailConsumerQueue, Event> entry = this.unspilled.poll();
+                take(entry.getKey(), entry.getValue(), queues, batch);
+            }
+        }
+    }
+
+    private MetricsTrailConsumerQueue recover(UUID correlationId) {
+        MetricsTrailConsumerQueue queue = this.consumer.recoveredQueueFor(correlationId);
+        queue.delivering(1);
+        return queue;
+    }
+
+    private long spilloverThreshold() {
+        return this.consumer.getSpilloverThreshold() / this.consumer.getDeliveryParallelism();
+    }
+
+    private boolean linger() {
+        if (this.consumer.isDrained()) {
+            // a draining consumer does not wait for batches to fill up
+            return false;
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(this.consumer.getBatchMaxLinger())
+                - (System.nanoTime() - this.pending.peekStamp());
+        if (remaining <= 0) {
+            return false;
+        }
+        this.state.set(LINGERING);
+        if (this.lingering != null) {
+            this.lingering.cancel(false);
+        }
+        this.lingering = TIMER.schedule(() -> this.consumer.submit(this::resume), remaining, TimeUnit.NANOSECONDS);
+        // the batch might have become full before lingering was visible to the committing threads
+        return this.pending.size() < this.consumer.getBatchMaxSize() || !this.state.compareAndSet(LINGERING, DRAINING);
+    }
+
+    private boolean suspend(MetricsCircuitBreaker breaker) {
+        this.state.set(SUSPENDED);
+        switch (breaker.getState()) {
+            case OPEN:
+                TIMER.schedule(() -> wake(true), breaker.getRemainingOpenNanos(), TimeUnit.NANOSECONDS);
+                return true;
+            case HALF_OPEN:
+                // the stripe delivering the probe wakes all others when done
+                return true;
+            default:
+                // the breaker closed before the suspension was visible
+                return !this.state.compareAndSet(SUSPENDED, DRAINING);
+        }
+    }
+
+    private void deliver(List<MetricsTrailConsumerQueue> queues, List<MetricsBatchConsumer.BatchedEvent> batch, int tries) {
+        MetricsCircuitBreaker breaker = this.consumer.getCircuitBreaker();
+        if (breaker != null && !breaker.tryAcquire()) {
+            if (breaker.getOpenPolicy() == MetricsCircuitBreaker.OpenPolicy.SHED) {
+                queues.forEach(MetricsTrailConsumerQueue::resolved);
+                this.consumer.droppedCount.add(batch.size());
+                release(queues);
+            } else {
+                // the batch is buffered until the breaker permits calls again, without counting as a try
+                hold(queues);
+                MetricsDeliveryRetries.Batch retry = new MetricsDeliveryRetries.Batch(queues, batch, tries);
+                retain(retry);
+                this.retries.add(retry);
+            }
+            return;
+        }
+
+        // with virtual threads, the drains are cheap, but the consumer's resources might not be
+        Semaphore inFlight = this.consumer.inFlight;
+        if (inFlight != null) {
+            inFlight.acquireUninterruptibly();
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            this.consumer.consumer.consume(this.consumer.consumerId, Collections.unmodifiableList(batch));
+            success = true;
+            queues.forEach(MetricsTrailConsumerQueue::resolved);
+            release(queues);
+        } catch (Exception e) {
+            /*
+             * If a consumer is not able to consume its delivery, the batch is retried later; the metrics it was able
+             * to acknowledge are delivered though and will not be retried.
+             */
+            List<MetricsTrailConsumerQueue> remainingQueues = new ArrayList<>(queues.size());
+            List<MetricsBatchConsumer.BatchedEvent> remainingBatch = new ArrayList<>(batch.size());
+            Set<MetricsTrailConsumerQueue> failedQueues = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.get(i).isAcknowledged()) {
+                    queues.get(i).resolved();
+                } else {
+                    remainingQueues.add(queues.get(i));
+                    remainingBatch.add(batch.get(i));
+                    failedQueues.add(queues.get(i));
+                }
+            }
+            hold(failedQueues);
+            release(queues.stream().filter(queue -> !failedQueues.contains(queue)).collect(Collectors.toList()));
+            if (!remainingBatch.isEmpty()) {
+                scheduleRetry(new MetricsDeliveryRetries.Batch(remainingQueues, remainingBatch, tries + 1));
+            }
+        } catch (Throwable t) {
+            /*
+             * When something so destructive happens, we unregister the consumer to make
+             * sure not to create inconsistent data
+             */
+            shutdown(queues);
+            throw t;
+        } finally {
+            if (inFlight != null) {
+                inFlight.release();
+            }
+        }
+        if (breaker != null && breaker.onResult(success, System.nanoTime() - start)) {
+            for (MetricsDeliveryStripe stripe : this.consumer.stripes) {
+                stripe.wake(true);
+            }
+        }
+    }
+
+    private void hold(Collection<MetricsTrailConsumerQueue> queues) {
+        if (this.consumer.getDeliveryOrdering() == DeliveryOrdering.PER_TRAIL) {
+            queues.forEach(queue -> this.held.computeIfAbsent(queue, q -> new ArrayDeque<>()));
+        }
+    }
+
+    private void release(List<MetricsTrailConsumerQueue> queues) {
+        if (!this.held.isEmpty()) {
+            for (MetricsTrailConsumerQueue queue : queues) {
+                Deque<Event> held = this.held.remove(queue);
+                if (held != null) {
+                    for (Event event : held) {
+                        this.released.add(new AbstractMap.SimpleImmutableEntry<>(queue, event));
+                        this.retainedBytes -= MetricsTrailConsumer.estimateSize(event);
+                    }
+                }
+            }
+        }
+    }
+
+    private void retain(MetricsDeliveryRetries.Batch retry) {
+        this.retained++;
+        this.retainedBytes += retry.bytes();
+    }
+
+    private void scheduleRetry(MetricsDeliveryRetries.Batch retry) {
+        retain(retry);
+        boolean closed = this.consumer.isDrained();
+        this.retries.schedule(retry, this.consumer.consumerRetryIntervals, this.consumer.consumerRetryJitter, closed);
+        if (!closed && this.consumer.isDrained()) {
+            // the drain began after the interval was chosen, so it might have missed the retry when expediting
+            expedite();
+        }
+    }
+
+    private void due(MetricsDeliveryRetries.Batch retry) {
+        if (this.consumer.delivererService.isShutdown()) {
+            retry.queues.forEach(MetricsTrailConsumerQueue::failed);
+        } else {
+            this.retries.add(retry);
+            wake(true);
+        }
+    }
+
+    void expedite() {
+        this.retries.expedite();
+        wake(true);
+    }
+
+    private void shutdown(List<MetricsTrailConsumerQueue> queues) {
+        queues.forEach(MetricsTrailConsumerQueue::failed);
+        this.consumer.delivererService.shutdownNow();
+        discard();
+        /*
+         * Stripes that are currently draining discard their metrics on their own, all others (including those whose
+         * drain is still waiting for a thread) are taken over to discard theirs.
+         */
+        for (MetricsDeliveryStripe stripe : this.consumer.stripes) {
+            if (stripe != this && stripe.acquire()) {
+                stripe.discard();
+            }
+        }
+    }
+
+    /**
+     * Takes the stripe over from any drain that is not currently running.
+     *
+     * @return True if the stripe has been taken over, false if a drain is currently running
+     */
+    boolean acquire() {
+        int state;
+        while ((state = this.state.get()) != DRAINING) {
+            if (this.state.compareAndSet(state, DRAINING)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void discard() {
+        discard(new ArrayList<>());
+    }
+
+    /**
+     * Discards all {@link Event}s of the stripe that have not been delivered yet; spilled {@link Event}s are kept on
+     * disk, so they can be recovered.
+     *
+     * @param undelivered The list to add the discarded {@link Event}s to; might <b>not</b> be null.
+     */
+    void discard(List<MetricsBatchConsumer.BatchedEvent> undelivered) {
+        this.pending.drain(Integer.MAX_VALUE, (queue, event) -> discard(queue, event, undelivered));
+        this.retries.discard(retry -> {
+            for (int i = 0; i < retry.batch.size(); i++) {
+                retry.queues.get(i).failed();
+                undelivered.add(retry.batch.get(i));
+            }
+        });
+        this.held.forEach((queue, events) -> events.forEach(event -> discard(queue, event, undelivered)));
+        this.held.clear();
+        this.released.forEach(entry -> discard(entry.getKey(), entry.getValue(), undelivered));
+        this.released.clear();
+        this.spilled.forEach(MetricsTrailConsumerQueue::failed);
+        this.spilled.clear();
+        this.unspilled.forEach(entry -> discard(entry.getKey(), entry.getValue(), undelivered));
+        this.unspilled.clear();
+    }
+
+    private void discard(MetricsTrailConsumerQueue queue, Event event, List<MetricsBatchConsumer.BatchedEvent> undelivered) {
+        queue.failed();
+        undelivered.add(new MetricsBatchConsumer.BatchedEvent(queue.getCorrelationId(), event));
+    }
+}
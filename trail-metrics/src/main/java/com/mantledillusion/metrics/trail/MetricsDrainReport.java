@@ -0,0 +1,93 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reports the outcome of draining a {@link MetricsTrailConsumer} using {@link MetricsTrailConsumer#drain(Duration)}.
+ */
+public final class MetricsDrainReport {
+
+    private final String consumerId;
+    private final long undeliveredCount;
+    private final long spilledCount;
+    private final long refusedCount;
+    private final List<MetricsBatchConsumer.BatchedEvent> undelivered;
+
+    MetricsDrainReport(String consumerId, long undeliveredCount, long spilledCount, long refusedCount,
+                       List<MetricsBatchConsumer.BatchedEvent> undelivered) {
+        this.consumerId = consumerId;
+        this.undeliveredCount = undeliveredCount;
+        this.spilledCount = spilledCount;
+        this.refusedCount = refusedCount;
+        this.undelivered = Collections.unmodifiableList(undelivered);
+    }
+
+    /**
+     * Returns the ID of the drained consumer.
+     *
+     * @return The consumer's ID, never null
+     */
+    public String getConsumerId() {
+        return this.consumerId;
+    }
+
+    /**
+     * Returns whether all {@link Event}s committed before the drain began have been delivered.
+     *
+     * @return True if there are no undelivered {@link Event}s, false otherwise
+     */
+    public boolean isComplete() {
+        return this.undeliveredCount == 0;
+    }
+
+    /**
+     * Returns the count of {@link Event}s that were committed before the drain began, but could not be delivered
+     * before the deadline.
+     * <p>
+     * The count might exceed the size of {@link #getUndelivered()}, since {@link Event}s that were being delivered
+     * at the deadline or that are kept on disk cannot be listed.
+     *
+     * @return The count of undelivered {@link Event}s, always &gt;=0
+     */
+    public long getUndeliveredCount() {
+        return this.undeliveredCount;
+    }
+
+    /**
+     * Returns the count of undelivered {@link Event}s that are kept in the consumer's spillover directory, so they
+     * are recovered the next time spillover is enabled on it.
+     *
+     * @return The count of spilled {@link Event}s, always &gt;=0
+     */
+    public long getSpilledCount() {
+        return this.spilledCount;
+    }
+
+    /**
+     * Returns the count of {@link Event}s that were committed after the drain began and have not been accepted.
+     *
+     * @return The count of refused {@link Event}s, always &gt;=0
+     */
+    public long getRefusedCount() {
+        return this.refusedCount;
+    }
+
+    /**
+     * Returns the undelivered {@link Event}s that could be taken back from the consumer.
+     *
+     * @return The undelivered {@link Event}s with their trail's ID, never null
+     */
+    public List<MetricsBatchConsumer.BatchedEvent> getUndelivered() {
+        return this.undelivered;
+    }
+
+    @Override
+    public String toString() {
+        return "Drain of consumer '" + this.consumerId + "': " + this.undeliveredCount + " undelivered ("
+                + this.spilledCount + " spilled), " + this.refusedCount + " refused";
+    }
+}
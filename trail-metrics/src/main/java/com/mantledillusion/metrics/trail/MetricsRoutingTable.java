@@ -0,0 +1,114 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes {@link Event}s by their identifier to the {@link MetricsTrailConsumer}s interested in them.
+ * <p>
+ * The interests of all consumers are precompiled into a single table, so committing an {@link Event} takes one
+ * lookup of its identifier instead of testing the interests of every hooked consumer. The resulting
+ * {@link Route}s are cached by identifier; changing the interests of any consumer replaces the table.
+ */
+final class MetricsRoutingTable {
+
+    // the count of identifiers routes are cached for; identifiers are usually a small, fixed set
+    private static final int MAX_CACHED_ROUTES = 4096;
+
+    /**
+     * The {@link MetricsTrailConsumer}s interested in {@link Event}s of a specific identifier.
+     */
+    static final class Route {
+
+        private final BitSet restricted;
+        private final BitSet interested;
+
+        private Route(BitSet restricted, BitSet interested) {
+            this.restricted = restricted;
+            this.interested = interested;
+        }
+
+        /**
+         * Returns whether the consumer with the given routing index accepts {@link Event}s of this route.
+         *
+         * @param index The consumer's routing index.
+         * @return True if the consumer has no interests or is interested in the route's identifier, false otherwise
+         */
+        boolean accepts(int index) {
+            return !this.restricted.get(index) || this.interested.get(index);
+        }
+    }
+
+    private static final class Table {
+
+        private final BitSet restricted = new BitSet();
+        private final Map<String, BitSet> identifiers = new HashMap<>();
+        private final Map<String, BitSet> prefixes = new HashMap<>();
+        private final ConcurrentHashMap<String, Route> routes = new ConcurrentHashMap<>();
+
+        private Route route(String identifier) {
+            BitSet interested = new BitSet();
+            if (identifier != null) {
+                BitSet exact = this.identifiers.get(identifier);
+                if (exact != null) {
+                    interested.or(exact);
+                }
+                for (Map.Entry<String, BitSet> prefix : this.prefixes.entrySet()) {
+                    if (identifier.startsWith(prefix.getKey())) {
+                        interested.or(prefix.getValue());
+                    }
+                }
+            }
+            return new Route(this.restricted, interested);
+        }
+    }
+
+    private final Map<MetricsTrailConsumer, Boolean> restricted = new WeakHashMap<>();
+    private volatile Table table = new Table();
+
+    /**
+     * Returns the {@link Route} of {@link Event}s with the given identifier.
+     *
+     * @param identifier The identifier to route; might be null.
+     * @return The route, never null
+     */
+    Route route(String identifier) {
+        Table table = this.table;
+        if (identifier == null) {
+            return table.route(null);
+        }
+        Route route = table.routes.get(identifier);
+        if (route == null) {
+            route = table.route(identifier);
+            if (table.routes.size() < MAX_CACHED_ROUTES) {
+                table.routes.put(identifier, route);
+            }
+        }
+        return route;
+    }
+
+    /**
+     * Recompiles the table after the interests of the given consumer have changed.
+     *
+     * @param consumer The consumer whose interests have changed; might <b>not</b> be null.
+     */
+    synchronized void update(MetricsTrailConsumer consumer) {
+        if (consumer.hasInterests()) {
+            this.restricted.put(consumer, Boolean.TRUE);
+        } else {
+            this.restricted.remove(consumer);
+        }
+
+        Table table = new Table();
+        for (MetricsTrailConsumer restricted : this.restricted.keySet()) {
+            int index = restricted.getRoutingIndex();
+            table.restricted.set(index);
+            restricted.forEachInterest(
+                    identifier -> table.identifiers.computeIfAbsent(identifier, id -> new BitSet()).set(index),
+                    prefix -> table.prefixes.computeIfAbsent(prefix, p -> new BitSet()).set(index));
+        }
+        this.table = table;
+    }
+}
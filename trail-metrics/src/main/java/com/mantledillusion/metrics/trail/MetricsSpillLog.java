@@ -0,0 +1,303 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.Measurement;
+import com.mantledillusion.metrics.trail.api.MeasurementType;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A segmented, memory mapped log of {@link Event}s on disk.
+ * <p>
+ * Every segment starts with a header holding the offset of its first unacknowledged record, followed by the records,
+ * each prefixed with its length; a length of 0 marks the end of the segment. Segments are deleted as soon as all of
+ * their records are acknowledged, so a log whose records could not be acknowledged before the JVM ended can be
+ * recovered from its segments.
+ * <p>
+ * The log is not thread safe; it has to be used by a single {@link Thread} at a time.
+ */
+final class MetricsSpillLog {
+
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final int HEADER_SIZE = 4;
+    private static final int LENGTH_SIZE = 4;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final MeasurementType[] TYPES = MeasurementType.values();
+
+    private static final class Segment {
+
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int writeOffset;
+        private int readOffset;
+
+        private Segment(Path path, int size) throws IOException {
+            this.path = path;
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                if (file.length() < size) {
+                    file.setLength(size);
+                }
+                this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+            }
+            this.readOffset = Math.max(HEADER_SIZE, this.buffer.getInt(0));
+            this.writeOffset = this.readOffset;
+        }
+
+        private int recover() {
+            int records = 0;
+            int length;
+            while (this.writeOffset + LENGTH_SIZE <= this.buffer.capacity()
+                    && (length = this.buffer.getInt(this.writeOffset)) > 0
+                    && this.writeOffset + LENGTH_SIZE + length <= this.buffer.capacity()) {
+                this.writeOffset += LENGTH_SIZE + length;
+                records++;
+            }
+            return records;
+        }
+
+        private boolean fits(int length) {
+            // there always has to be room for the end marker
+            return this.writeOffset + LENGTH_SIZE + length + LENGTH_SIZE <= this.buffer.capacity();
+        }
+    }
+
+    private final Path directory;
+    private final String prefix;
+    private final int segmentSize;
+    private final List<Segment> segments = new ArrayList<>();
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+    private long sequence;
+    private int readIndex;
+    private long size;
+    private boolean acknowledged = true;
+
+    /**
+     * Constructor.
+     *
+     * @param directory The directory to write the segments to; might <b>not</b> be null.
+     * @param prefix The prefix of the segment's file names; might <b>not</b> be null.
+     * @param segmentSize The size of a segment in bytes.
+     * @param recover The segments of a previous log to recover, in the order they were written; might <b>not</b> be null.
+     * @throws IOException If recovering the segments fails.
+     */
+    MetricsSpillLog(Path directory, String prefix, int segmentSize, List<Path> recover) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        for (Path path : recover) {
+            this.sequence = Math.max(this.sequence, sequenceOf(path) + 1);
+            if (Files.size(path) < HEADER_SIZE) {
+                // the JVM ended while the segment was created, before anything could have been written to it
+                Files.delete(path);
+                continue;
+            }
+            Segment segment = new Segment(path, 0);
+            this.size += segment.recover();
+            // recovered segments are never written to again
+            segment.writeOffset = segment.buffer.capacity();
+            this.segments.add(segment);
+        }
+    }
+
+    static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('-') + 1, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Returns the count of records that have not been read yet.
+     *
+     * @return The count of unread records
+     */
+    long size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Appends the given {@link Event} to the log.
+     *
+     * @param correlationId The ID of the trail the event occurred in; might <b>not</b> be null.
+     * @param event The event to append; might <b>not</b> be null.
+     * @throws IOException If creating a new segment fails.
+     */
+    void append(UUID correlationId, Event event) throws IOException {
+        ByteBuffer record = encode(correlationId, event);
+        int length = record.remaining();
+
+        Segment segment = this.segments.isEmpty() ? null : this.segments.get(this.segments.size() - 1);
+        if (segment == null || !segment.fits(length)) {
+            segment = new Segment(this.directory.resolve(this.prefix + '-' + String.format("%020d", this.sequence++)
+                    + SEGMENT_SUFFIX), Math.max(this.segmentSize, HEADER_SIZE + LENGTH_SIZE + length + LENGTH_SIZE));
+            this.segments.add(segment);
+        }
+
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.position(segment.writeOffset + LENGTH_SIZE);
+        buffer.put(record);
+        // the length is written last, so a torn record is never mistaken for a complete one
+        buffer.putInt(segment.writeOffset, length);
+        segment.writeOffset += LENGTH_SIZE + length;
+        this.size++;
+    }
+
+    /**
+     * Reads up to the given count of unread records from the log.
+     *
+     * @param max The maximum count of records to read.
+     * @param drainer The drainer to hand the read records to; might <b>not</b> be null.
+     * @return The count of records read
+     */
+    int read(int max, MpscChunkedQueue.Drainer<UUID, Event> drainer) {
+        int count = 0;
+        while (count < max && this.size > 0) {
+            Segment segment = this.segments.get(this.readIndex);
+            if (segment.readOffset >= segment.writeOffset
+                    || segment.readOffset + LENGTH_SIZE > segment.buffer.capacity()
+                    || segment.buffer.getInt(segment.readOffset) == 0) {
+                this.readIndex++;
+                continue;
+            }
+
+            int length = segment.buffer.getInt(segment.readOffset);
+            ByteBuffer record = segment.buffer.duplicate();
+            record.position(segment.readOffset + LENGTH_SIZE);
+            record.limit(segment.readOffset + LENGTH_SIZE + length);
+            segment.readOffset += LENGTH_SIZE + length;
+            this.size--;
+            this.acknowledged = false;
+
+            UUID correlationId = new UUID(record.getLong(), record.getLong());
+            drainer.accept(correlationId, decode(record));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether there are records that have been read, but not acknowledged yet.
+     *
+     * @return True if there are unacknowledged records, false otherwise
+     */
+    boolean hasUnacknowledged() {
+        return !this.acknowledged;
+    }
+
+    /**
+     * Acknowledges all records read so far, deleting all segments that have been read completely.
+     */
+    void acknowledge() {
+        while (this.readIndex > 0 || (!this.segments.isEmpty() && this.size == 0)) {
+            Segment segment = this.segments.remove(0);
+            this.readIndex = Math.max(0, this.readIndex - 1);
+            // a segment that cannot be deleted is at least not recovered again
+            segment.buffer.putInt(0, segment.readOffset);
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                // the segment is left behind empty
+            }
+        }
+        if (!this.segments.isEmpty()) {
+            Segment segment = this.segments.get(0);
+            segment.buffer.putInt(0, segment.readOffset);
+        }
+        this.acknowledged = true;
+    }
+
+    private ByteBuffer encode(UUID correlationId, Event event) {
+        while (true) {
+            ByteBuffer buffer = this.scratch;
+            buffer.clear();
+            try {
+                buffer.putLong(correlationId.getMostSignificantBits());
+                buffer.putLong(correlationId.getLeastSignificantBits());
+                putString(buffer, event.getIdentifier());
+                ZoneId zone = event.getTimestampZone();
+                if (zone == null) {
+                    buffer.putLong(NO_TIMESTAMP);
+                } else {
+                    buffer.putLong(Math.floorDiv(event.getTimestampNanos(), NANOS_PER_SECOND));
+                    buffer.putInt((int) Math.floorMod(event.getTimestampNanos(), NANOS_PER_SECOND));
+                    putString(buffer, zone.getId());
+                }
+                List<Measurement> measurements = event.getMeasurements();
+                buffer.putInt(measurements == null ? -1 : measurements.size());
+                if (measurements != null) {
+                    for (Measurement measurement : measurements) {
+                        putString(buffer, measurement.getKey());
+                        putString(buffer, measurement.getValue());
+                        buffer.put((byte) (measurement.getType() == null ? -1 : measurement.getType().ordinal()));
+                    }
+                }
+                buffer.flip();
+                return buffer;
+            } catch (BufferOverflowException e) {
+                this.scratch = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    private static Event decode(ByteBuffer buffer) {
+        Event event = new Event();
+        event.setIdentifier(getString(buffer));
+        long epochSecond = buffer.getLong();
+        if (epochSecond == NO_TIMESTAMP) {
+            event.setTimestamp(null);
+        } else {
+            int nano = buffer.getInt();
+            event.setTimestamp(epochSecond * NANOS_PER_SECOND + nano, ZoneId.of(getString(buffer)));
+        }
+        int count = buffer.getInt();
+        if (count < 0) {
+            event.setMeasurements(null);
+        } else {
+            List<Measurement> measurements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String key = getString(buffer);
+                String value = getString(buffer);
+                byte type = buffer.get();
+                measurements.add(new Measurement(key, value, type < 0 ? null : TYPES[type]));
+            }
+            event.setMeasurements(measurements);
+        }
+        return event;
+    }
+
+    private static void putString(ByteBuffer buffer, String s) {
+        if (s == null) {
+            buffer.putInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
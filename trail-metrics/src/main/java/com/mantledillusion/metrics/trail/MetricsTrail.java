@@ -3,15 +3,35 @@ package com.mantledillusion.metrics.trail;
 import com.mantledillusion.metrics.trail.api.Event;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A {@link MetricsTrail} is a stream of {@link Event}s that occurs during a single process of any kind.
  */
 public final class MetricsTrail {
 
+    /**
+     * The default of {@link #getParallelFanOutThreshold()}.
+     */
+    public static final int DEFAULT_PARALLEL_FAN_OUT_THRESHOLD = 64;
+
+    private static final MetricsTrailConsumer.MetricsTrailConsumerQueue[] NO_QUEUES = {};
+    private static final MetricsTrailConsumer[] NO_CONSUMERS = {};
+
+    private static volatile CorrelationIdGenerator correlationIdGenerator = CorrelationIdGenerator.random();
+    private static volatile MetricsCommitPipeline commitPipeline;
+    private static volatile int parallelFanOutThreshold = DEFAULT_PARALLEL_FAN_OUT_THRESHOLD;
+
     private final UUID correlationId;
-    private final Set<MetricsTrailConsumer.MetricsTrailConsumerQueue> queues =
-            Collections.newSetFromMap(new IdentityHashMap<>());
+    private final MetricsCommitPipeline pipeline = commitPipeline;
+    // the latest sequence this trail has published to its pipeline
+    private final AtomicLong lastPublished = new AtomicLong(-1);
+    /*
+     * Copy-on-write: hooking and ending replace the array under the trail's lock, committing just reads the current
+     * one without locking, so threads sharing a bound trail do not block each other.
+     */
+    private volatile MetricsTrailConsumer.MetricsTrailConsumerQueue[] queues = NO_QUEUES;
+    private volatile MetricsTrailConsumer[] deferred = NO_CONSUMERS;
 
     /**
      * {@link java.lang.reflect.Constructor}.
@@ -25,6 +45,105 @@ public final class MetricsTrail {
         this.correlationId = correlationId;
     }
 
+    /**
+     * Returns the {@link CorrelationIdGenerator} generating the IDs of new {@link MetricsTrail}s.
+     *
+     * @return The generator, never null
+     */
+    public static CorrelationIdGenerator getCorrelationIdGenerator() {
+        return correlationIdGenerator;
+    }
+
+    /**
+     * Sets the {@link CorrelationIdGenerator} generating the IDs of new {@link MetricsTrail}s.
+     * <p>
+     * By default, {@link CorrelationIdGenerator#random()} is used.
+     *
+     * @param generator The generator to use; might <b>not</b> be null.
+     */
+    public static void setCorrelationIdGenerator(CorrelationIdGenerator generator) {
+        if (generator == null) {
+            throw new IllegalArgumentException("Cannot generate correlation IDs using a null generator");
+        }
+        correlationIdGenerator = generator;
+    }
+
+    /**
+     * Generates a new correlation ID using the current {@link CorrelationIdGenerator}.
+     *
+     * @return A new {@link UUID}, never null
+     */
+    public static UUID generateCorrelationId() {
+        return correlationIdGenerator.generate();
+    }
+
+    /**
+     * Returns the {@link MetricsCommitPipeline} {@link MetricsTrail}s commit asynchronously with.
+     *
+     * @return The pipeline, might be null if trails commit synchronously on the committing thread
+     */
+    public static MetricsCommitPipeline getCommitPipeline() {
+        return commitPipeline;
+    }
+
+    /**
+     * Sets the {@link MetricsCommitPipeline} {@link MetricsTrail}s commit asynchronously with.
+     * <p>
+     * Only trails created afterwards use the given pipeline; a trail keeps the way it commits all its life, so its
+     * {@link Event}s and its end are always processed in order.
+     * <p>
+     * A pipeline that is replaced is {@link MetricsCommitPipeline#shutdown() shut down}; the trails still using it
+     * commit synchronously from then on.
+     * <p>
+     * By default, trails commit synchronously on the committing thread.
+     *
+     * @param pipeline The pipeline to commit with; might be null to commit synchronously.
+     */
+    public static void setCommitPipeline(MetricsCommitPipeline pipeline) {
+        if (pipeline != null && pipeline.isShutdown()) {
+            throw new IllegalArgumentException("Cannot commit using a pipeline that has been shut down");
+        }
+        MetricsCommitPipeline previous;
+        synchronized (MetricsTrail.class) {
+            previous = commitPipeline;
+            commitPipeline = pipeline;
+        }
+        if (previous != null && previous != pipeline) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Returns the count of hooked {@link MetricsTrailConsumer.MetricsTrailConsumerQueue}s from which on an
+     * {@link Event} is committed to the queues in parallel instead of one after another.
+     *
+     * @return The threshold, always &gt;0
+     */
+    public static int getParallelFanOutThreshold() {
+        return parallelFanOutThreshold;
+    }
+
+    /**
+     * Sets the count of hooked {@link MetricsTrailConsumer.MetricsTrailConsumerQueue}s from which on an
+     * {@link Event} is committed to the queues in parallel instead of one after another.
+     * <p>
+     * Enqueueing is cheap, so handing the fan-out to the common {@link java.util.concurrent.ForkJoinPool} only pays
+     * off for a lot of queues. Where exactly depends on the hardware and on what else uses the common pool, like
+     * other parallel streams or, in some setups, delivering virtual threads; the default of
+     * {@link #DEFAULT_PARALLEL_FAN_OUT_THRESHOLD} is an estimate, not a measured crossover. The TrailCommitBenchmark
+     * of the trail-metrics-benchmarks module compares both ways of fanning out for different counts of queues.
+     * <p>
+     * {@link Integer#MAX_VALUE} always commits one queue after another.
+     *
+     * @param threshold The count of queues; might <b>not</b> be &lt;1.
+     */
+    public static void setParallelFanOutThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Cannot fan out in parallel from a threshold < 1");
+        }
+        parallelFanOutThreshold = threshold;
+    }
+
     /**
      * Returns the ID that identifies this trail.
      *
@@ -51,18 +170,178 @@ public final class MetricsTrail {
             throw new IllegalArgumentException("Cannot hook a null consumer to a trail");
         }
         MetricsTrailConsumer.MetricsTrailConsumerQueue queue = consumer.queueFor(this.correlationId);
-        this.queues.add(queue);
+        MetricsTrailConsumer.MetricsTrailConsumerQueue[] queues = Arrays.copyOf(this.queues, this.queues.length + 1);
+        queues[queues.length - 1] = queue;
+        this.queues = queues;
         return queue;
     }
 
+    /**
+     * Hooks the given {@link MetricsTrailConsumer} this {@link MetricsTrail} lazily.
+     * <p>
+     * Other than {@link #hook(MetricsTrailConsumer)}, the consumer's {@link MetricsTrailConsumer.MetricsTrailConsumerQueue}
+     * is not created before the first {@link Event} the consumer is
+     * {@link MetricsTrailConsumer#isInterestedIn(String) interested in} is committed, so trails that never commit
+     * such an {@link Event} do not cost the consumer anything.
+     *
+     * @param consumer The {@link MetricsTrailConsumer} hook; might <b>not</b> be null.
+     */
+    public synchronized void hookLazily(MetricsTrailConsumer consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Cannot hook a null consumer to a trail");
+        }
+        MetricsTrailConsumer[] deferred = Arrays.copyOf(this.deferred, this.deferred.length + 1);
+        deferred[deferred.length - 1] = consumer;
+        this.deferred = deferred;
+    }
+
+    private void hookInterested(MetricsTrailConsumer[] deferred, MetricsRoutingTable.Route route) {
+        for (MetricsTrailConsumer consumer : deferred) {
+            if (route.accepts(consumer.getRoutingIndex())) {
+                synchronized (this) {
+                    // another thread might have hooked the consumer or ended the trail in the meantime
+                    int index = Arrays.asList(this.deferred).indexOf(consumer);
+                    if (index >= 0) {
+                        MetricsTrailConsumer[] remaining = new MetricsTrailConsumer[this.deferred.length - 1];
+                        System.arraycopy(this.deferred, 0, remaining, 0, index);
+                        System.arraycopy(this.deferred, index + 1, remaining, index, remaining.length - index);
+                        this.deferred = remaining;
+                        hook(consumer);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Commits the given {@link Event} to all {@link MetricsTrailConsumer.MetricsTrailConsumerQueue}s hooked this {@link MetricsTrail}.
+     * <p>
+     * Committing does not lock the trail; {@link Event}s committed concurrently by multiple threads sharing the trail
+     * are delivered in the order they reach the queues.
+     * <p>
+     * If the trail commits using a {@link MetricsCommitPipeline}, the {@link Event} is only handed to the pipeline;
+     * an invalid {@link Event} is then dropped by the pipeline instead of causing an {@link IllegalArgumentException}.
      *
      * @param event The metric to commit; might <b>not</b> be null.
      */
-    public synchronized void commit(Event event) {
+    public void commit(Event event) {
+        if (this.pipeline != null) {
+            if (event == null) {
+                throw new IllegalArgumentException("Cannot dispatch a null event");
+            }
+            this.pipeline.commit(this, event);
+        } else {
+            commitNow(event);
+        }
+    }
+
+    void commitNow(Event event) {
         EventValidator.validate(event);
-        this.queues.parallelStream().forEach(queue -> queue.enqueue(event));
+        // a single lookup determines which of the hooked consumers are interested in the event at all
+        MetricsRoutingTable.Route route = MetricsTrailConsumer.ROUTING_TABLE.route(event.getIdentifier());
+        MetricsTrailConsumer[] deferred = this.deferred;
+        if (deferred.length > 0) {
+            hookInterested(deferred, route);
+        }
+        MetricsTrailConsumer.MetricsTrailConsumerQueue[] queues = this.queues;
+        if (queues.length < parallelFanOutThreshold) {
+            for (MetricsTrailConsumer.MetricsTrailConsumerQueue queue : queues) {
+                if (route.accepts(queue.getRoutingIndex())) {
+                    queue.accept(event);
+                }
+            }
+        } else {
+            Arrays.stream(queues).parallel()
+                    .filter(queue -> route.accepts(queue.getRoutingIndex()))
+                    .forEach(queue -> queue.accept(event));
+        }
+    }
+
+    /**
+     * Commits the given {@link Event}s to all {@link MetricsTrailConsumer.MetricsTrailConsumerQueue}s hooked this
+     * {@link MetricsTrail}, in the order of the given {@link Collection}.
+     * <p>
+     * All {@link Event}s are validated before any of them is committed. Every queue then receives the {@link Event}s
+     * it is interested in within a single pass, so a batch costs far less than committing its {@link Event}s one by
+     * one.
+     * <p>
+     * If the trail commits using a {@link MetricsCommitPipeline}, the {@link Event}s are handed to the pipeline one
+     * by one, which validates and drops them individually.
+     *
+     * @param events The metrics to commit; might <b>not</b> be null, might <b>not</b> contain nulls.
+     */
+    public void commitAll(Collection<Event> events) {
+        if (events == null) {
+            throw new IllegalArgumentException("Cannot commit a null collection of events");
+        } else if (this.pipeline != null) {
+            if (events.contains(null)) {
+                throw new IllegalArgumentException("Cannot dispatch a null event");
+            }
+            events.forEach(event -> this.pipeline.commit(this, event));
+            return;
+        }
+        events.forEach(EventValidator::validate);
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Event[] batch = events.toArray(new Event[0]);
+        MetricsRoutingTable.Route[] routes = new MetricsRoutingTable.Route[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            routes[i] = MetricsTrailConsumer.ROUTING_TABLE.route(batch[i].getIdentifier());
+            MetricsTrailConsumer[] deferred = this.deferred;
+            if (deferred.length > 0) {
+                hookInterested(deferred, routes[i]);
+            }
+        }
+
+        MetricsTrailConsumer.MetricsTrailConsumerQueue[] queues = this.queues;
+        if (queues.length < parallelFanOutThreshold) {
+            for (MetricsTrailConsumer.MetricsTrailConsumerQueue queue : queues) {
+                enqueueAll(queue, batch, routes);
+            }
+        } else {
+            Arrays.stream(queues).parallel().forEach(queue -> enqueueAll(queue, batch, routes));
+        }
+    }
+
+    private static void enqueueAll(MetricsTrailConsumer.MetricsTrailConsumerQueue queue, Event[] batch,
+                                   MetricsRoutingTable.Route[] routes) {
+        int index = queue.getRoutingIndex();
+        List<Event> accepted = new ArrayList<>(batch.length);
+        for (int i = 0; i < batch.length; i++) {
+            if (routes[i].accepts(index)) {
+                accepted.add(batch[i]);
+            }
+        }
+        if (!accepted.isEmpty()) {
+            queue.acceptAll(accepted);
+        }
+    }
+
+    /**
+     * Returns whether any of the {@link MetricsTrailConsumer}s hooked to this {@link MetricsTrail} is
+     * {@link MetricsTrailConsumer#isInterestedIn(String) interested in} {@link Event}s with the given identifier.
+     * <p>
+     * Allows skipping building an {@link Event} altogether if nobody would receive it; filters of the consumers are
+     * not taken into account, since they can only test an already built {@link Event}.
+     *
+     * @param identifier The identifier to check; might be null.
+     * @return True if at least one hooked consumer is interested, false otherwise
+     */
+    public boolean isInterested(String identifier) {
+        MetricsRoutingTable.Route route = MetricsTrailConsumer.ROUTING_TABLE.route(identifier);
+        for (MetricsTrailConsumer.MetricsTrailConsumerQueue queue : this.queues) {
+            if (route.accepts(queue.getRoutingIndex())) {
+                return true;
+            }
+        }
+        for (MetricsTrailConsumer consumer : this.deferred) {
+            if (route.accepts(consumer.getRoutingIndex())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -71,28 +350,56 @@ public final class MetricsTrail {
      *
      * @return True if there is at least one {@link Event} currently gated, false otherwise
      */
-    public synchronized boolean hasGated() {
-        return this.queues.stream().anyMatch(queue -> queue.hasGated());
+    public boolean hasGated() {
+        return Arrays.stream(this.queues).anyMatch(queue -> queue.hasGated());
     }
 
     /**
      * Returns whether there are {@link Event}s of this {@link MetricsTrail}'s
      * {@link MetricsTrailConsumer.MetricsTrailConsumerQueue} currently being delivered to their consumer by asynchronous tasks.
      *
+     * <p>
+     * If the trail commits using a {@link MetricsCommitPipeline}, this trail's {@link Event}s still waiting in the
+     * pipeline count as being delivered as well; {@link Event}s of other trails waiting in the same pipeline do not.
+     *
      * @return True if there is at least one {@link Event} currently being delivered, false otherwise
      */
-    public synchronized boolean isDelivering() {
-        return this.queues.stream().anyMatch(queue -> queue.isDelivering());
+    public boolean isDelivering() {
+        return (this.pipeline != null && this.pipeline.isPending(this.lastPublished.get()))
+                || Arrays.stream(this.queues).anyMatch(queue -> queue.isDelivering());
+    }
+
+    void published(long sequence) {
+        // threads sharing the trail might publish concurrently, so the latest sequence has to win
+        this.lastPublished.accumulateAndGet(sequence, Math::max);
     }
 
     /**
      * Ends the {@link MetricsTrail}.
+     * <p>
+     * If the trail commits using a {@link MetricsCommitPipeline}, the trail is ended by the pipeline as well, right
+     * after the {@link Event}s committed before.
      *
      * @return The {@link UUID} of the current {@link Thread}'s trail, never null
      */
-    public synchronized UUID end() {
-        this.queues.forEach(queue -> queue.onTrailEnd());
-        this.queues.clear();
+    public UUID end() {
+        if (this.pipeline != null) {
+            this.pipeline.end(this);
+        } else {
+            endNow();
+        }
         return this.correlationId;
     }
+
+    void endNow() {
+        MetricsTrailConsumer.MetricsTrailConsumerQueue[] queues;
+        synchronized (this) {
+            queues = this.queues;
+            this.queues = NO_QUEUES;
+            this.deferred = NO_CONSUMERS;
+        }
+        for (MetricsTrailConsumer.MetricsTrailConsumerQueue queue : queues) {
+            queue.onTrailEnd();
+        }
+    }
 }
@@ -1,15 +1,35 @@
 package com.mantledillusion.metrics.trail;
 
+import com.mantledillusion.metrics.trail.api.DeferredMeasurement;
 import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.FrozenEvent;
+import com.mantledillusion.metrics.trail.api.Measurement;
+import com.mantledillusion.metrics.trail.api.PrimitiveMeasurement;
 
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Represents a {@link MetricsConsumer} that can consume {@link Event}s from a {@link MetricsTrail}.
  */
 public final class MetricsTrailConsumer {
 
+    /**
+     * The wildcard an interest ends with to match all {@link Event} identifiers starting with it.
+     */
+    public static final String INTEREST_WILDCARD = "*";
+
     private static final long[] CONSUMER_DELIVERY_RETRY_INTERVALS = {
             // 5 Seconds
             5000,
@@ -22,43 +42,26 @@ public final class MetricsTrailConsumer {
             // 30 Minutes
             1800000};
 
+    private static final double CONSUMER_DELIVERY_RETRY_JITTER = 0.2;
+
+    // 16 Megabytes
+    private static final int CONSUMER_SPILLOVER_SEGMENT_SIZE = 16 * 1024 * 1024;
+
     /**
      * Represents a queue that retrieves {@link Event}s from a {@link MetricsTrail} to deliver them to a {@link MetricsTrailConsumer}.
      */
     public class MetricsTrailConsumerQueue {
 
-        private class LinkedMetric {
-
-            private final Event event;
-            private LinkedMetric next;
-
-            private LinkedMetric(Event event) {
-                this.event = event;
-            }
-
-            private void delivered() {
-                synchronized (MetricsTrailConsumerQueue.this) {
-                    if (MetricsTrailConsumerQueue.this.first != null) {
-                        MetricsTrailConsumerQueue.this.first = this.next;
-                        if (MetricsTrailConsumerQueue.this.first == null) {
-                            MetricsTrailConsumerQueue.this.last = null;
-                        }
-                    }
-                }
-            }
-
-            private void failed() {
-                MetricsTrailConsumerQueue.this.clearQueue();
-            }
-        }
-
         private final UUID correlationId;
         private final MetricsPredicate gate;
         private final MetricsPredicate filter;
 
-        private LinkedMetric first;
-        private LinkedMetric current;
-        private LinkedMetric last;
+        private final Queue<Event> gated = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger gatedCount = new AtomicInteger();
+        private final AtomicLong gatedBytes = new AtomicLong();
+        private final AtomicInteger deliveringCount = new AtomicInteger();
+        private final AtomicInteger flushes = new AtomicInteger();
+        private volatile boolean ended;
 
         private MetricsTrailConsumerQueue(UUID correlationId) {
             this.correlationId = correlationId;
@@ -66,48 +69,212 @@ public final class MetricsTrailConsumer {
             this.filter = MetricsTrailConsumer.this.filter != null ? MetricsTrailConsumer.this.filter.functionalClone() : null;
         }
 
-        synchronized void enqueue(Event event) {
+        void enqueue(Event event) {
+            // events not committed through a trail have not been routed by the consumer's interests yet
+            if (!hasInterests() || isInterestedIn(event.getIdentifier())) {
+                accept(event);
+            }
+        }
+
+        void enqueueAll(List<Event> events) {
+            if (!hasInterests()) {
+                acceptAll(events);
+            } else {
+                List<Event> interesting = new ArrayList<>(events.size());
+                for (Event event : events) {
+                    if (isInterestedIn(event.getIdentifier())) {
+                        interesting.add(event);
+                    }
+                }
+                acceptAll(interesting);
+            }
+        }
+
+        void accept(Event event) {
+            if (MetricsTrailConsumer.this.closed) {
+                MetricsTrailConsumer.this.refusedCount.increment();
+                return;
+            }
             if (this.filter == null || this.filter.test(event)) {
-                LinkedMetric linkedMetric = new LinkedMetric(event);
-                if (this.first == null) {
-                    this.first = linkedMetric;
+                if (this.gate == null) {
+                    MetricsTrailConsumer.this.publish(this, event);
+                } else {
+                    gate(event);
                 }
-                if (this.current == null) {
-                    this.current = linkedMetric;
+            }
+            if (this.gate != null && this.gate.test(event)) {
+                flushGated();
+            }
+        }
+
+        void acceptAll(List<Event> events) {
+            if (events.isEmpty()) {
+                return;
+            } else if (this.gate != null) {
+                // gating decides about flushing event by event
+                events.forEach(this::accept);
+                return;
+            }
+            if (MetricsTrailConsumer.this.closed) {
+                MetricsTrailConsumer.this.refusedCount.add(events.size());
+                return;
+            }
+            if (this.filter == null) {
+                MetricsTrailConsumer.this.publish(this, events);
+            } else {
+                List<Event> filtered = new ArrayList<>(events.size());
+                for (Event event : events) {
+                    if (this.filter.test(event)) {
+                        filtered.add(event);
+                    }
                 }
-                if (this.last != null) {
-                    this.last.next = linkedMetric;
+                if (!filtered.isEmpty()) {
+                    MetricsTrailConsumer.this.publish(this, filtered);
                 }
-                this.last = linkedMetric;
             }
-            if (this.gate == null || this.gate.test(event)) {
-                deliverAccumulated();
+        }
+
+        int getRoutingIndex() {
+            return MetricsTrailConsumer.this.routingIndex;
+        }
+
+        void onTrailEnd() {
+            this.ended = true;
+            releaseGated();
+            if (this.gate != null) {
+                MetricsTrailConsumer.this.gatedQueues.remove(this);
             }
         }
 
-        synchronized void onTrailEnd() {
+        private void releaseGated() {
+            // discarding while another thread is flushing would lose events the flush is about to deliver
             if (MetricsTrailConsumer.this.doFlushOnTrailEnd) {
-                deliverAccumulated();
+                flushGated();
+            } else {
+                discardGated();
+            }
+        }
+
+        private void gate(Event event) {
+            long size = estimateSize(event);
+            OverflowPolicy policy = MetricsTrailConsumer.this.gatedOverflowPolicy;
+            if (policy == OverflowPolicy.DROP_NEWEST && exceedsCapacity(this.gatedCount.get() + 1, this.gatedBytes.get() + size)) {
+                MetricsTrailConsumer.this.droppedCount.increment();
+                return;
+            }
+
+            this.gatedCount.incrementAndGet();
+            this.gatedBytes.addAndGet(size);
+            this.gated.add(event);
+
+            /*
+             * A thread committing concurrently to the trail's end might gate its event after the end already released
+             * the gated events; since the end is flagged before releasing, either the end or this thread sees the
+             * event, so it is never left behind in the gate.
+             */
+            if (this.ended) {
+                releaseGated();
+                return;
+            }
+
+            if (exceedsCapacity(this.gatedCount.get(), this.gatedBytes.get())) {
+                switch (policy) {
+                    case DROP_OLDEST:
+                        while (exceedsCapacity(this.gatedCount.get(), this.gatedBytes.get()) && pollGated() != null) {
+                            MetricsTrailConsumer.this.droppedCount.increment();
+                        }
+                        break;
+                    case SAMPLE:
+                        thinGated();
+                        break;
+                    case FORCE_FLUSH:
+                        MetricsTrailConsumer.this.forcedFlushCount.increment();
+                        flushGated();
+                        break;
+                }
+            }
+        }
+
+        private Event pollGated() {
+            Event event = this.gated.poll();
+            if (event != null) {
+                ungated(event);
             }
-            clearQueue();
+            return event;
+        }
+
+        private void ungated(Event event) {
+            this.gatedCount.decrementAndGet();
+            this.gatedBytes.addAndGet(-estimateSize(event));
+        }
+
+        private void flushGated() {
+            /*
+             * Only one thread at a time flushes, so the gated events keep their order; threads that request a flush
+             * while another one is flushing just make it loop again.
+             */
+            if (this.flushes.getAndIncrement() == 0) {
+                publishGated(1);
+            }
+        }
+
+        private void publishGated(int missed) {
+            do {
+                Event event;
+                while ((event = this.gated.poll()) != null) {
+                    MetricsTrailConsumer.this.publish(this, event);
+                    ungated(event);
+                }
+            } while ((missed = this.flushes.addAndGet(-missed)) != 0);
         }
 
-        private void clearQueue() {
-            synchronized (MetricsTrailConsumerQueue.this) {
-                MetricsTrailConsumerQueue.this.first = null;
-                MetricsTrailConsumerQueue.this.current = null;
-                MetricsTrailConsumerQueue.this.last = null;
+        private void thinGated() {
+            /*
+             * Thinning out the gated events requires the same exclusivity as flushing them; if a flush is currently
+             * running, the events are about to leave the gate anyway.
+             */
+            if (this.flushes.compareAndSet(0, 1)) {
+                boolean drop = false;
+                Iterator<Event> iterator = this.gated.iterator();
+                while (iterator.hasNext()) {
+                    Event event = iterator.next();
+                    if (drop) {
+                        iterator.remove();
+                        ungated(event);
+                        MetricsTrailConsumer.this.droppedCount.increment();
+                    }
+                    drop = !drop;
+                }
+                int missed = this.flushes.decrementAndGet();
+                if (missed != 0) {
+                    publishGated(missed);
+                }
             }
         }
 
-        private synchronized void deliverAccumulated() {
-            while (this.current != null) {
-                LinkedMetric linkedMetric = this.current;
-                this.current = this.current.next;
-                MetricsTrailConsumer.this.deliverHead(this.correlationId, linkedMetric);
+        private void discardGated() {
+            while (pollGated() != null) {
+                // just discard
             }
         }
 
+        void delivering(int count) {
+            this.deliveringCount.addAndGet(count);
+            MetricsTrailConsumer.this.undeliveredCount.add(count);
+        }
+
+        void resolved() {
+            // delivered or shed by the circuit breaker, either way the event does not affect the trail's later ones
+            this.deliveringCount.decrementAndGet();
+            MetricsTrailConsumer.this.undeliveredCount.decrement();
+        }
+
+        void failed() {
+            this.deliveringCount.decrementAndGet();
+            MetricsTrailConsumer.this.undeliveredCount.decrement();
+            discardGated();
+        }
+
         /**
          * Returns the ID of the trail this queue retrieves metrics from.
          *
@@ -122,8 +289,8 @@ public final class MetricsTrailConsumer {
          *
          * @return True if there is at least one {@link Event} currently gated, false otherwise
          */
-        public synchronized boolean hasGated() {
-            return this.current != null;
+        public boolean hasGated() {
+            return this.gatedCount.get() > 0;
         }
 
         /**
@@ -131,14 +298,8 @@ public final class MetricsTrailConsumer {
          *
          * @return The count of {@link Event}s currently gated
          */
-        public synchronized int getGatedCount() {
-            int count = 0;
-            LinkedMetric current = this.current;
-            while (current != null) {
-                count++;
-                current = current.next;
-            }
-            return count;
+        public int getGatedCount() {
+            return this.gatedCount.get();
         }
 
         /**
@@ -146,8 +307,8 @@ public final class MetricsTrailConsumer {
          *
          * @return True if there is at least one {@link Event} currently being delivered, false otherwise
          */
-        public synchronized boolean isDelivering() {
-            return this.first != this.current;
+        public boolean isDelivering() {
+            return this.deliveringCount.get() > 0;
         }
 
         /**
@@ -155,90 +316,244 @@ public final class MetricsTrailConsumer {
          *
          * @return The count of {@link Event}s currently being delivered
          */
-        public synchronized int getDeliveringCount() {
-            int count = 0;
-            LinkedMetric current = this.first;
-            while (current != null && current != this.current) {
-                count++;
-                current = current.next;
-            }
-            return count;
+        public int getDeliveringCount() {
+            return this.deliveringCount.get();
         }
     }
 
-    private final String consumerId;
-    private final MetricsConsumer consumer;
+    /**
+     * Determines the order in which the {@link Event}s of a trail are delivered to the {@link MetricsConsumer}.
+     */
+    public enum DeliveryOrdering {
+
+        /**
+         * The {@link Event}s of a trail are delivered in the order they were committed in; {@link Event}s of different
+         * trails are delivered in parallel.
+         */
+        PER_TRAIL,
+
+        /**
+         * All {@link Event}s are delivered in parallel, regardless of the trail they were committed to.
+         */
+        UNORDERED
+    }
+
+    /**
+     * Determines what happens when the gated {@link Event}s of a trail exceed the capacity of its
+     * {@link MetricsTrailConsumerQueue}.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * The oldest gated {@link Event}s are dropped until the new one fits.
+         */
+        DROP_OLDEST,
+
+        /**
+         * The new {@link Event} is dropped.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Every second gated {@link Event} is dropped, so the gated {@link Event}s remain an evenly spread sample of
+         * the trail.
+         */
+        SAMPLE,
+
+        /**
+         * All gated {@link Event}s are delivered as if the gate had opened.
+         */
+        FORCE_FLUSH
+    }
+
+    /**
+     * Determines which kind of {@link Thread}s deliver the {@link Event}s to the {@link MetricsConsumer}.
+     */
+    public enum DeliveryThreads {
+
+        /**
+         * The {@link Event}s are delivered by a pool of platform threads, one for every delivery worker.
+         */
+        PLATFORM,
+
+        /**
+         * The {@link Event}s are delivered by virtual threads, a new one for every drain of a delivery worker.
+         * <p>
+         * Requires Java 21 or later, see {@link #isVirtualThreadDeliverySupported()}.
+         */
+        VIRTUAL
+    }
+
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        // virtual threads are looked up reflectively, so the library still runs on Java 8
+        ThreadFactory factory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "trail-metrics-deliverer-", 0L);
+            factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // virtual threads are not available on this runtime
+        }
+        VIRTUAL_THREAD_FACTORY = newThreadPerTaskExecutor != null ? factory : null;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private static final Set<MetricsTrailConsumer> CONSUMERS = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private static final AtomicInteger ROUTING_INDICES = new AtomicInteger();
+
+    static final MetricsRoutingTable ROUTING_TABLE = new MetricsRoutingTable();
+
+    final String consumerId;
+    final MetricsBatchConsumer consumer;
+    private final int routingIndex = ROUTING_INDICES.getAndIncrement();
 
     private final MetricsPredicate gate;
     private final MetricsPredicate filter;
 
-    private long[] consumerRetryIntervals = CONSUMER_DELIVERY_RETRY_INTERVALS;
+    volatile long[] consumerRetryIntervals = CONSUMER_DELIVERY_RETRY_INTERVALS;
+    volatile double consumerRetryJitter = CONSUMER_DELIVERY_RETRY_JITTER;
     private boolean doFlushOnTrailEnd = false;
+    private volatile int batchMaxSize = 1;
+    private volatile long batchMaxLinger = 0;
+    private volatile DeliveryOrdering deliveryOrdering = DeliveryOrdering.PER_TRAIL;
+    private volatile MetricsCircuitBreaker circuitBreaker;
+    private volatile int gatedMaxCount = Integer.MAX_VALUE;
+    private volatile long gatedMaxBytes = Long.MAX_VALUE;
+    private volatile OverflowPolicy gatedOverflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private volatile Path spilloverDirectory;
+    private volatile Set<String> interestIdentifiers = Collections.emptySet();
+    private volatile String[] interestPrefixes;
+    private volatile long spilloverThreshold = Long.MAX_VALUE;
+
+    final LongAdder droppedCount = new LongAdder();
+    private final LongAdder forcedFlushCount = new LongAdder();
+    private final LongAdder undeliveredCount = new LongAdder();
+    private final LongAdder refusedCount = new LongAdder();
+    private final Set<MetricsTrailConsumerQueue> gatedQueues = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private volatile boolean closed;
 
-    private final ThreadPoolExecutor delivererService = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+    volatile ExecutorService delivererService = new ScheduledThreadPoolExecutor(1);
+    private volatile DeliveryThreads deliveryThreads = DeliveryThreads.PLATFORM;
+    private volatile int maxInFlight = Integer.MAX_VALUE;
+    private volatile MetricsDeliveryScheduler deliveryScheduler;
+    private volatile int deliveryWeight = 1;
+    volatile Semaphore inFlight;
+    volatile MetricsDeliveryStripe[] stripes = { new MetricsDeliveryStripe(this) };
+
+    boolean submit(Runnable task) {
+        ExecutorService service;
+        do {
+            service = this.delivererService;
+            try {
+                service.execute(task);
+                return true;
+            } catch (RejectedExecutionException e) {
+                // the consumer has been shut down or its executor has been replaced in the meantime
+            }
+        } while (service != this.delivererService);
+        return false;
+    }
 
     private MetricsTrailConsumer(String consumerId, MetricsConsumer consumer, MetricsPredicate gate, MetricsPredicate filter) {
         this.consumerId = consumerId;
-        this.consumer = consumer;
+        this.consumer = consumer instanceof MetricsBatchConsumer ? (MetricsBatchConsumer) consumer : (id, batch) -> {
+            for (MetricsBatchConsumer.BatchedEvent batchedEvent : batch) {
+                consumer.consume(id, batchedEvent.getCorrelationId(), batchedEvent.getEvent());
+                batchedEvent.acknowledge();
+            }
+        };
         this.gate = gate != null ? gate.functionalClone() : null;
         this.filter = filter != null ? filter.functionalClone() : null;
+        CONSUMERS.add(this);
     }
 
-    private synchronized void deliverHead(UUID correlationId, MetricsTrailConsumerQueue.LinkedMetric linkedMetric) {
-        if (!MetricsTrailConsumer.this.delivererService.isShutdown()) {
-            MetricsTrailConsumer.this.delivererService.execute(() -> {
-                int tries = 0;
-                while (true) {
-                    try {
-                        MetricsTrailConsumer.this.consumer.consume(MetricsTrailConsumer.this.consumerId, correlationId, linkedMetric.event);
-                        linkedMetric.delivered();
-                        break;
-                    } catch (Exception e) {
-                        /*
-                         * If a consumer is not able to consume its delivery, we wait for the next time
-                         * to try it.
-                         */
-                        tries = awaitRetry(linkedMetric, tries);
-                    } catch (Throwable t) {
-                        /*
-                         * When something so destructive happens, we unregister the consumer to make
-                         * sure not to create inconsistent data
-                         */
-                        shutdown(linkedMetric);
-                        throw t;
-                    }
-                }
-            });
+    private void publish(MetricsTrailConsumerQueue queue, Event event) {
+        if (!this.delivererService.isShutdown()) {
+            MetricsDeliveryStripe[] stripes = this.stripes;
+            int stripe = this.deliveryOrdering == DeliveryOrdering.PER_TRAIL
+                    ? stripeOf(queue.correlationId, stripes.length)
+                    : ThreadLocalRandom.current().nextInt(stripes.length);
+            stripes[stripe].publish(queue, event);
         }
     }
 
-    private int awaitRetry(MetricsTrailConsumerQueue.LinkedMetric linkedMetric, int tries) {
-        try {
-            long retryIntervalMs = MetricsTrailConsumer.this.consumerRetryIntervals[tries];
+    private void publish(MetricsTrailConsumerQueue queue, List<Event> events) {
+        if (!this.delivererService.isShutdown()) {
+            MetricsDeliveryStripe[] stripes = this.stripes;
+            int stripe = this.deliveryOrdering == DeliveryOrdering.PER_TRAIL
+                    ? stripeOf(queue.correlationId, stripes.length)
+                    : ThreadLocalRandom.current().nextInt(stripes.length);
+            stripes[stripe].publish(queue, events);
+        }
+    }
 
-            Thread.sleep(retryIntervalMs);
-            return Math.min(tries + 1, MetricsTrailConsumer.this.consumerRetryIntervals.length - 1);
-        } catch (Exception e) {
-            /*
-             * If we are not able to wait for a next try we cannot continue; we unregister
-             * the consumer to make sure not to create inconsistent data
-             */
-            shutdown(linkedMetric);
-            throw new RuntimeException("Delivering a metric to the " + MetricsConsumer.class.getSimpleName()
-                    + " '" + MetricsTrailConsumer.this.consumer
-                    + "' failed, and triggering to wait for a retry failed as well.", e);
+    private boolean exceedsCapacity(int count, long bytes) {
+        return count > this.gatedMaxCount || bytes > this.gatedMaxBytes;
+    }
+
+    /**
+     * Roughly estimates the heap size of the given {@link Event}, including its identifier, timestamp and
+     * measurements, without rendering {@link DeferredMeasurement}s or {@link PrimitiveMeasurement}s.
+     *
+     * @param event The event to estimate; might <b>not</b> be null.
+     * @return The estimated size in bytes, always &gt;0
+     */
+    static long estimateSize(Event event) {
+        if (event instanceof FrozenEvent) {
+            // frozen event and its packed measurements, without creating its measurement view
+            FrozenEvent frozen = (FrozenEvent) event;
+            long size = 48 + 16 + 16L * frozen.size() + 16 + frozen.size();
+            size += estimateSize(event.getIdentifier());
+            for (int i = 0; i < frozen.size(); i++) {
+                size += estimateSize(frozen.getKey(i));
+                size += frozen.isDeferred(i) ? 64 : frozen.isPrimitive(i) ? 16 : estimateSize(frozen.getValue(i));
+            }
+            return size;
         }
+
+        // event and its measurement list; the timestamp is only materialized on demand and is not counted
+        long size = 40 + 40;
+        size += estimateSize(event.getIdentifier());
+        if (event.getMeasurements() != null) {
+            for (Measurement measurement : event.getMeasurements()) {
+                size += 8 + 24 + estimateSize(measurement.getKey());
+                // a deferred or primitive value must neither be rendered nor change the estimate when it is rendered later on
+                size += measurement instanceof DeferredMeasurement || measurement instanceof PrimitiveMeasurement ? 64
+                        : estimateSize(measurement.getValue());
+            }
+        }
+        return size;
     }
 
-    private synchronized void shutdown(MetricsTrailConsumerQueue.LinkedMetric linkedMetric) {
-        linkedMetric.failed();
-        MetricsTrailConsumer.this.delivererService.shutdownNow();
+    private static long estimateSize(String s) {
+        return s == null ? 0 : 40 + s.length();
     }
 
-    MetricsTrailConsumerQueue queueFor(UUID correlationId) {
+    static int stripeOf(UUID correlationId, int stripes) {
+        int hash = correlationId.hashCode();
+        return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % stripes;
+    }
+
+    MetricsTrailConsumerQueue recoveredQueueFor(UUID correlationId) {
+        // recovered events have already passed the gate, their trails are long gone
         return new MetricsTrailConsumerQueue(correlationId);
     }
 
+    MetricsTrailConsumerQueue queueFor(UUID correlationId) {
+        MetricsTrailConsumerQueue queue = new MetricsTrailConsumerQueue(correlationId);
+        if (queue.gate != null) {
+            // gated events of trails still running have to be flushed when draining
+            this.gatedQueues.add(queue);
+        }
+        return queue;
+    }
+
     /**
      * Sets the intervals in milliseconds the {@link MetricsTrailConsumerQueue} waits
      * until it tries to redeliver a metric to a {@link MetricsConsumer} again after
@@ -251,6 +566,10 @@ public final class MetricsTrailConsumer {
      * the first retry will be done directly after the first failed, the second
      * after 5 seconds and the third-&gt;nth after 5 minutes.
      * <p>
+     * Waiting for a retry never blocks delivering other metrics; the failed metrics are rescheduled on a timer
+     * shared by all consumers. Each interval is shortened randomly by the jitter set using
+     * {@link #setDeliveryRetryJitter(double)}, so retries of many trails do not hit the consumer at once.
+     * <p>
      * The default intervals are {@link #CONSUMER_DELIVERY_RETRY_INTERVALS}.
      *
      * @param interval  The first interval; might <b>not</b> be negative.
@@ -266,6 +585,593 @@ public final class MetricsTrailConsumer {
         this.consumerRetryIntervals = consumerRetryIntervals;
     }
 
+    /**
+     * Sets exponentially growing intervals in milliseconds the {@link MetricsTrailConsumerQueue} waits until it
+     * tries to redeliver a metric to a {@link MetricsConsumer} again after the first delivery failed.
+     * <p>
+     * The first retry is done after the initial interval, every further retry waits the previous interval
+     * multiplied by the given multiplier, until the maximum interval is reached.
+     * <p>
+     * For example, if the method is called with the arguments (1000, 60000, 2), the retries are done after 1, 2,
+     * 4, 8, 16, 32 and then every 60 seconds.
+     *
+     * @param initialInterval The first interval; might <b>not</b> be negative.
+     * @param maxInterval The maximum interval; might <b>not</b> be less than the initial interval.
+     * @param multiplier The factor to grow the interval by; might <b>not</b> be &lt;1.
+     */
+    public void setDeliveryRetryBackoff(long initialInterval, long maxInterval, double multiplier) {
+        if (initialInterval < 0) {
+            throw new IllegalArgumentException("Cannot set a retry interval < 0");
+        } else if (maxInterval < initialInterval) {
+            throw new IllegalArgumentException("Cannot set a maximum retry interval < the initial retry interval");
+        } else if (multiplier < 1) {
+            throw new IllegalArgumentException("Cannot set a retry interval multiplier < 1");
+        }
+        List<Long> intervals = new ArrayList<>();
+        double interval = initialInterval;
+        while (interval < maxInterval && intervals.size() < 64) {
+            intervals.add((long) interval);
+            if (multiplier == 1 || interval == 0) {
+                break;
+            }
+            interval *= multiplier;
+        }
+        intervals.add(Math.min((long) interval, maxInterval));
+        this.consumerRetryIntervals = intervals.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Sets the fraction each retry interval is randomly shortened by.
+     * <p>
+     * For example, with a jitter of 0.2, a retry interval of 10 seconds is randomly shortened to a value between
+     * 8 and 10 seconds.
+     * <p>
+     * The default jitter is {@link #CONSUMER_DELIVERY_RETRY_JITTER}.
+     *
+     * @param jitter The jitter; might <b>not</b> be &lt;0 or &gt;1.
+     */
+    public void setDeliveryRetryJitter(double jitter) {
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Cannot set a retry jitter < 0 or > 1");
+        }
+        this.consumerRetryJitter = jitter;
+    }
+
+    /**
+     * Returns the count of {@link Event}s that might be delivered to the {@link MetricsConsumer} in parallel.
+     *
+     * @return The delivery parallelism, always &gt;0
+     */
+    public int getDeliveryParallelism() {
+        return this.stripes.length;
+    }
+
+    /**
+     * Returns the order in which the {@link Event}s of a trail are delivered to the {@link MetricsConsumer}.
+     *
+     * @return The delivery ordering, never null
+     */
+    public DeliveryOrdering getDeliveryOrdering() {
+        return this.deliveryOrdering;
+    }
+
+    /**
+     * Sets how many {@link Event}s might be delivered to the {@link MetricsConsumer} in parallel.
+     * <p>
+     * With a parallelism of N, {@link Event}s are delivered by N workers. By default, trails are striped onto the
+     * workers by their correlation ID, so a slow delivery of one trail only holds back the trails on the same stripe,
+     * while the {@link Event}s of every trail are still delivered in order. Batching is done per stripe.
+     * <p>
+     * Changing the parallelism while {@link Event}s are being delivered might cause those {@link Event}s to be
+     * delivered out of order.
+     * <p>
+     * By default, the parallelism is 1 and the ordering is {@link DeliveryOrdering#PER_TRAIL}.
+     *
+     * @param parallelism The count of workers delivering in parallel; might <b>not</b> be &lt;1.
+     * @param ordering The order to deliver the {@link Event}s of a trail in; might <b>not</b> be null.
+     */
+    public synchronized void setDeliveryParallelism(int parallelism, DeliveryOrdering ordering) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Cannot set a delivery parallelism < 1");
+        } else if (ordering == null) {
+            throw new IllegalArgumentException("Cannot set a null delivery ordering");
+        }
+        if (parallelism != this.stripes.length) {
+            if (this.spilloverDirectory != null) {
+                throw new IllegalStateException("Cannot change the delivery parallelism after enabling spillover");
+            }
+            MetricsDeliveryStripe[] stripes = new MetricsDeliveryStripe[parallelism];
+            Arrays.setAll(stripes, i -> new MetricsDeliveryStripe(this));
+            if (this.delivererService instanceof ScheduledThreadPoolExecutor) {
+                ((ScheduledThreadPoolExecutor) this.delivererService).setCorePoolSize(parallelism);
+            } else if (this.delivererService instanceof MetricsDeliveryScheduler.Lane) {
+                ((MetricsDeliveryScheduler.Lane) this.delivererService).setMaxConcurrency(parallelism);
+            }
+            this.stripes = stripes;
+        }
+        this.deliveryOrdering = ordering;
+    }
+
+    /**
+     * Returns whether the runtime supports delivering {@link Event}s using {@link DeliveryThreads#VIRTUAL} threads,
+     * which requires Java 21 or later.
+     *
+     * @return True if virtual threads are supported, false otherwise
+     */
+    public static boolean isVirtualThreadDeliverySupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * Returns which kind of {@link Thread}s deliver the {@link Event}s to the {@link MetricsConsumer}.
+     *
+     * @return The delivery threads, never null
+     */
+    public DeliveryThreads getDeliveryThreads() {
+        return this.deliveryThreads;
+    }
+
+    /**
+     * Returns the maximum count of calls to the {@link MetricsConsumer} that might be in flight at once.
+     *
+     * @return The maximum in-flight count, always &gt;0
+     */
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    /**
+     * Sets which kind of {@link Thread}s deliver the {@link Event}s to the {@link MetricsConsumer} and how many
+     * calls to it might be in flight at once.
+     * <p>
+     * Virtual threads make delivery workers cheap, so consumers blocking on I/O can overlap many calls by setting a
+     * high parallelism using {@link #setDeliveryParallelism(int, DeliveryOrdering)}; the maximum in-flight count
+     * then protects the consumer's resources, like its connection pool, from being overrun.
+     * <p>
+     * By default, {@link DeliveryThreads#PLATFORM} threads are used and the in-flight count is only limited by the
+     * parallelism.
+     *
+     * @param threads The kind of threads to deliver on; might <b>not</b> be null.
+     * @param maxInFlight The maximum count of concurrent calls to the consumer; might <b>not</b> be &lt;1.
+     * @throws IllegalStateException If {@link DeliveryThreads#VIRTUAL} threads are not supported by the runtime
+     */
+    public synchronized void setDeliveryThreads(DeliveryThreads threads, int maxInFlight) {
+        if (threads == null) {
+            throw new IllegalArgumentException("Cannot set null delivery threads");
+        } else if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Cannot set a maximum in-flight count < 1");
+        } else if (threads == DeliveryThreads.VIRTUAL && !isVirtualThreadDeliverySupported()) {
+            throw new IllegalStateException("Cannot deliver on virtual threads before Java 21");
+        } else if (this.delivererService.isShutdown()) {
+            throw new IllegalStateException("Cannot change the delivery threads of a consumer that has been shut down");
+        }
+
+        this.maxInFlight = maxInFlight;
+        this.inFlight = maxInFlight == Integer.MAX_VALUE ? null : new Semaphore(maxInFlight);
+        if (threads != this.deliveryThreads || this.deliveryScheduler != null) {
+            if (threads == DeliveryThreads.VIRTUAL) {
+                try {
+                    replaceDelivererService((ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, VIRTUAL_THREAD_FACTORY));
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Cannot create a virtual thread executor", e);
+                }
+            } else {
+                replaceDelivererService(new ScheduledThreadPoolExecutor(this.stripes.length));
+            }
+            this.deliveryThreads = threads;
+            this.deliveryScheduler = null;
+        }
+    }
+
+    /**
+     * Returns the scheduler whose threads deliver the {@link Event}s to the {@link MetricsConsumer}.
+     *
+     * @return The delivery scheduler, null if the consumer uses threads of its own
+     */
+    public MetricsDeliveryScheduler getDeliveryScheduler() {
+        return this.deliveryScheduler;
+    }
+
+    /**
+     * Returns the weight of the consumer on its {@link MetricsDeliveryScheduler}.
+     *
+     * @return The delivery weight, always &gt;0
+     */
+    public int getDeliveryWeight() {
+        return this.deliveryWeight;
+    }
+
+    /**
+     * Sets a scheduler shared with other consumers whose threads deliver the {@link Event}s to the
+     * {@link MetricsConsumer}, instead of the consumer's own threads.
+     * <p>
+     * The scheduler serves its consumers weighted fair by the time spent delivering; a consumer with twice the
+     * weight of another gets twice the delivery time when both have {@link Event}s to deliver. At most as many of
+     * the scheduler's threads as the delivery parallelism and the scheduler's bulkhead allow deliver the consumer's
+     * {@link Event}s at once.
+     * <p>
+     * By default, every consumer uses threads of its own; setting a null scheduler returns to them.
+     *
+     * @param scheduler The scheduler to deliver on, for example {@link MetricsDeliveryScheduler#shared()}; might be
+     *                  null.
+     * @param weight The consumer's weight on the scheduler; might <b>not</b> be &lt;1.
+     */
+    public synchronized void setDeliveryScheduler(MetricsDeliveryScheduler scheduler, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Cannot set a delivery weight < 1");
+        } else if (this.delivererService.isShutdown()) {
+            throw new IllegalStateException("Cannot change the delivery scheduler of a consumer that has been shut down");
+        }
+
+        if (scheduler != null || this.deliveryScheduler != null) {
+            replaceDelivererService(scheduler == null
+                    ? new ScheduledThreadPoolExecutor(this.stripes.length)
+                    : scheduler.lane(weight, this.stripes.length));
+        }
+        this.deliveryThreads = DeliveryThreads.PLATFORM;
+        this.deliveryScheduler = scheduler;
+        this.deliveryWeight = weight;
+    }
+
+    private void replaceDelivererService(ExecutorService next) {
+        ExecutorService previous = this.delivererService;
+        this.delivererService = next;
+        // drains already running finish on the previous executor
+        previous.shutdown();
+    }
+
+    /**
+     * Returns the maximum count of {@link Event}s that are delivered to the {@link MetricsConsumer} at once.
+     *
+     * @return The maximum batch size, always &gt;0
+     */
+    public int getBatchMaxSize() {
+        return this.batchMaxSize;
+    }
+
+    /**
+     * Returns the maximum amount of time in milliseconds an {@link Event} waits for more {@link Event}s to be batched
+     * with before the batch is delivered to the {@link MetricsConsumer}.
+     *
+     * @return The maximum linger time, always &gt;=0
+     */
+    public long getBatchMaxLinger() {
+        return this.batchMaxLinger;
+    }
+
+    /**
+     * Sets how {@link Event}s of all trails are batched before being delivered to the {@link MetricsConsumer}.
+     * <p>
+     * A batch is delivered as soon as it contains the maximum count of {@link Event}s or its oldest {@link Event}
+     * has waited for the maximum linger time, whatever comes first. With a linger time of 0, {@link Event}s are
+     * delivered right away, but all {@link Event}s that pile up while the consumer is busy are batched up to the
+     * maximum batch size.
+     * <p>
+     * If the consumer is a {@link MetricsBatchConsumer}, each batch is delivered in a single call and retried as a
+     * whole, except for the {@link MetricsBatchConsumer.BatchedEvent}s acknowledged by the consumer. Otherwise, the
+     * {@link Event}s of a batch are delivered one by one.
+     * <p>
+     * By default, the maximum batch size is 1 and the maximum linger time is 0.
+     *
+     * @param maxSize The maximum count of {@link Event}s in a batch; might <b>not</b> be &lt;1.
+     * @param maxLinger The maximum linger time in milliseconds; might <b>not</b> be negative.
+     */
+    public synchronized void setBatching(int maxSize, long maxLinger) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cannot set a maximum batch size < 1");
+        } else if (maxLinger < 0) {
+            throw new IllegalArgumentException("Cannot set a maximum batch linger time < 0");
+        }
+        this.batchMaxSize = maxSize;
+        this.batchMaxLinger = maxLinger;
+    }
+
+    /**
+     * Returns the circuit breaker that stops calling the {@link MetricsConsumer} while it is failing.
+     *
+     * @return The circuit breaker, might be null
+     */
+    public MetricsCircuitBreaker getCircuitBreaker() {
+        return this.circuitBreaker;
+    }
+
+    /**
+     * Sets a circuit breaker that stops calling the {@link MetricsConsumer} while it is failing or slow.
+     * <p>
+     * While the breaker is open, the {@link Event}s to deliver are either buffered or shed depending on its
+     * {@link MetricsCircuitBreaker.OpenPolicy}, instead of retrying them over and over. Shed {@link Event}s are
+     * counted by {@link #getDroppedCount()}.
+     * <p>
+     * By default, there is no circuit breaker.
+     *
+     * @param circuitBreaker The circuit breaker; might be null.
+     */
+    public void setCircuitBreaker(MetricsCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Returns the maximum count of {@link Event}s a {@link MetricsTrailConsumerQueue} holds back while its gate is
+     * closed.
+     *
+     * @return The maximum gated count, always &gt;0
+     */
+    public int getGatedMaxCount() {
+        return this.gatedMaxCount;
+    }
+
+    /**
+     * Returns the maximum estimated size in bytes of the {@link Event}s a {@link MetricsTrailConsumerQueue} holds
+     * back while its gate is closed.
+     *
+     * @return The maximum gated size, always &gt;0
+     */
+    public long getGatedMaxBytes() {
+        return this.gatedMaxBytes;
+    }
+
+    /**
+     * Returns what happens when the gated {@link Event}s of a trail exceed the gated capacity.
+     *
+     * @return The overflow policy, never null
+     */
+    public OverflowPolicy getGatedOverflowPolicy() {
+        return this.gatedOverflowPolicy;
+    }
+
+    /**
+     * Sets the capacity of every {@link MetricsTrailConsumerQueue} for {@link Event}s held back while its gate is
+     * closed.
+     * <p>
+     * The capacity is exceeded as soon as either the count of gated {@link Event}s or their estimated heap size in
+     * bytes is exceeded; the given {@link OverflowPolicy} then determines what happens. The count of dropped
+     * {@link Event}s and of forced flushes is available by {@link #getDroppedCount()} and
+     * {@link #getForcedFlushCount()}.
+     * <p>
+     * By default, the capacity is unlimited.
+     *
+     * @param maxCount The maximum count of gated {@link Event}s; might <b>not</b> be &lt;1.
+     * @param maxBytes The maximum estimated size of the gated {@link Event}s in bytes; might <b>not</b> be &lt;1.
+     * @param policy The policy to apply when the capacity is exceeded; might <b>not</b> be null.
+     */
+    public synchronized void setGatedCapacity(int maxCount, long maxBytes, OverflowPolicy policy) {
+        if (maxCount < 1) {
+            throw new IllegalArgumentException("Cannot set a maximum gated count < 1");
+        } else if (maxBytes < 1) {
+            throw new IllegalArgumentException("Cannot set a maximum gated size < 1");
+        } else if (policy == null) {
+            throw new IllegalArgumentException("Cannot set a null overflow policy");
+        }
+        this.gatedMaxCount = maxCount;
+        this.gatedMaxBytes = maxBytes;
+        this.gatedOverflowPolicy = policy;
+    }
+
+    /**
+     * Returns the directory {@link Event}s are spilled over to when they exceed the spillover threshold.
+     *
+     * @return The spillover directory, might be null
+     */
+    public Path getSpilloverDirectory() {
+        return this.spilloverDirectory;
+    }
+
+    /**
+     * Returns the estimated size in bytes of the {@link Event}s waiting for delivery on the heap above which
+     * {@link Event}s are spilled over to disk.
+     *
+     * @return The spillover threshold, always &gt;=0
+     */
+    public long getSpilloverThreshold() {
+        return this.spilloverThreshold;
+    }
+
+    /**
+     * Enables spilling {@link Event}s waiting for delivery over to disk, using segments of 16 megabytes.
+     *
+     * @param directory The directory to spill over to; might <b>not</b> be null.
+     * @param threshold The maximum estimated size in bytes of the {@link Event}s waiting on the heap; might
+     *                  <b>not</b> be negative.
+     * @see #setSpillover(Path, long, int)
+     */
+    public void setSpillover(Path directory, long threshold) {
+        setSpillover(directory, threshold, CONSUMER_SPILLOVER_SEGMENT_SIZE);
+    }
+
+    /**
+     * Enables spilling {@link Event}s waiting for delivery over to disk.
+     * <p>
+     * As soon as the estimated heap size of the {@link Event}s waiting for delivery, including those waiting for a
+     * retry, exceeds the threshold, further {@link Event}s are appended to a log of memory mapped segment files in
+     * the given directory instead. Once the {@link MetricsConsumer} has caught up, the {@link Event}s are replayed
+     * from the log in the order they were committed in; segments are deleted as soon as all of their {@link Event}s
+     * have been delivered. The threshold is split evenly among the delivery workers.
+     * <p>
+     * {@link Event}s that are still in the log when the JVM ends are recovered from the directory the next time
+     * spillover is enabled on it. A directory must not be used by more than one consumer at a time.
+     * <p>
+     * Spillover can only be enabled once, after which the delivery parallelism cannot be changed anymore.
+     *
+     * @param directory The directory to spill over to; might <b>not</b> be null.
+     * @param threshold The maximum estimated size in bytes of the {@link Event}s waiting on the heap; might
+     *                  <b>not</b> be negative.
+     * @param segmentSize The size of a single segment file in bytes; might <b>not</b> be &lt;1.
+     */
+    public synchronized void setSpillover(Path directory, long threshold, int segmentSize) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Cannot spill over to a null directory");
+        } else if (threshold < 0) {
+            throw new IllegalArgumentException("Cannot set a spillover threshold < 0");
+        } else if (segmentSize < 1) {
+            throw new IllegalArgumentException("Cannot set a spillover segment size < 1");
+        } else if (this.spilloverDirectory != null) {
+            throw new IllegalStateException("Cannot enable spillover more than once");
+        }
+
+        MetricsDeliveryStripe[] stripes = this.stripes;
+        MetricsSpillLog[] logs = new MetricsSpillLog[stripes.length];
+        try {
+            Files.createDirectories(directory);
+            List<List<Path>> recovered = new ArrayList<>();
+            for (int i = 0; i < stripes.length; i++) {
+                recovered.add(new ArrayList<>());
+            }
+            try (Stream<Path> segments = Files.list(directory)) {
+                // segments of the same stripe are sorted by their sequence, since it is padded
+                segments.filter(segment -> segment.getFileName().toString().endsWith(MetricsSpillLog.SEGMENT_SUFFIX))
+                        .sorted()
+                        .forEach(segment -> recovered.get(stripeOf(segment, stripes.length)).add(segment));
+            }
+            for (int i = 0; i < stripes.length; i++) {
+                logs[i] = new MetricsSpillLog(directory, String.valueOf(i), segmentSize, recovered.get(i));
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Cannot spill over to the directory " + directory, e);
+        }
+
+        this.spilloverThreshold = threshold;
+        this.spilloverDirectory = directory;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i].setSpillLog(logs[i]);
+        }
+    }
+
+    private static int stripeOf(Path segment, int stripes) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(0, name.indexOf('-'))) % stripes;
+    }
+
+    /**
+     * Returns the count of {@link Event}s that have been dropped, either because the gated capacity was exceeded or
+     * because they were shed by an open {@link MetricsCircuitBreaker}.
+     *
+     * @return The count of dropped {@link Event}s, always &gt;=0
+     */
+    public long getDroppedCount() {
+        return this.droppedCount.sum();
+    }
+
+    /**
+     * Returns how many times gated {@link Event}s have been flushed because the gated capacity was exceeded.
+     *
+     * @return The count of forced flushes, always &gt;=0
+     */
+    public long getForcedFlushCount() {
+        return this.forcedFlushCount.sum();
+    }
+
+    /**
+     * Returns whether the {@link MetricsTrailConsumer} has been drained using {@link #drain(Duration)}.
+     *
+     * @return True if the consumer refuses all further {@link Event}s, false otherwise
+     */
+    public boolean isDrained() {
+        return this.closed;
+    }
+
+    /**
+     * Drains the {@link MetricsTrailConsumer} gracefully, for example before the JVM shuts down.
+     * <p>
+     * From the moment the drain begins, the consumer refuses all further {@link Event}s. The gated {@link Event}s of
+     * all trails still running are flushed, pending retries are carried out right away and batches are delivered
+     * without lingering. The method then waits until all {@link Event}s have been delivered or the deadline is
+     * reached, whichever comes first.
+     * <p>
+     * Afterwards, the consumer is shut down for good; all {@link Event}s that could not be delivered until the
+     * deadline are handed back in the returned {@link MetricsDrainReport}. {@link Event}s already spilled over to
+     * disk are kept there, so they are recovered the next time spillover is enabled on the same directory.
+     *
+     * @param deadline The maximum duration to wait for the delivery; might <b>not</b> be null or negative.
+     * @return A report about the {@link Event}s that could not be delivered, never null
+     */
+    public MetricsDrainReport drain(Duration deadline) {
+        long deadlineNanos = deadlineOf(deadline);
+        // events still in a commit pipeline have been committed before the drain began
+        MetricsCommitPipeline.awaitAll(deadlineNanos);
+        beginDrain();
+        awaitDrain(deadlineNanos);
+        return finishDrain();
+    }
+
+    /**
+     * Drains all {@link MetricsTrailConsumer}s of the JVM at once, as described in {@link #drain(Duration)}.
+     * <p>
+     * The deadline is shared by all consumers; every consumer is given the time until the same point in time.
+     *
+     * @param deadline The maximum duration to wait for the delivery; might <b>not</b> be null or negative.
+     * @return A report for every drained consumer, never null
+     */
+    public static List<MetricsDrainReport> drainAll(Duration deadline) {
+        long deadlineNanos = deadlineOf(deadline);
+        MetricsCommitPipeline.awaitAll(deadlineNanos);
+        List<MetricsTrailConsumer> consumers;
+        synchronized (CONSUMERS) {
+            consumers = new ArrayList<>(CONSUMERS);
+        }
+        consumers.removeIf(MetricsTrailConsumer::isDrained);
+        consumers.forEach(MetricsTrailConsumer::beginDrain);
+        consumers.forEach(consumer -> consumer.awaitDrain(deadlineNanos));
+        return consumers.stream().map(MetricsTrailConsumer::finishDrain).collect(Collectors.toList());
+    }
+
+    private static long deadlineOf(Duration deadline) {
+        if (deadline == null) {
+            throw new IllegalArgumentException("Cannot drain using a null deadline");
+        } else if (deadline.isNegative()) {
+            throw new IllegalArgumentException("Cannot drain using a negative deadline");
+        }
+        return System.nanoTime() + Math.min(deadline.toNanos(), Long.MAX_VALUE / 2);
+    }
+
+    private void beginDrain() {
+        this.closed = true;
+        List<MetricsTrailConsumerQueue> gatedQueues;
+        synchronized (this.gatedQueues) {
+            gatedQueues = new ArrayList<>(this.gatedQueues);
+        }
+        gatedQueues.forEach(MetricsTrailConsumerQueue::flushGated);
+        for (MetricsDeliveryStripe stripe : this.stripes) {
+            stripe.expedite();
+        }
+    }
+
+    private void awaitDrain(long deadlineNanos) {
+        long remaining;
+        while (this.undeliveredCount.sum() > 0 && (remaining = deadlineNanos - System.nanoTime()) > 0) {
+            try {
+                Thread.sleep(Math.max(1, Math.min(10, TimeUnit.NANOSECONDS.toMillis(remaining))));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private MetricsDrainReport finishDrain() {
+        long undeliveredCount = this.undeliveredCount.sum();
+        if (undeliveredCount == 0) {
+            this.delivererService.shutdown();
+            return new MetricsDrainReport(this.consumerId, 0, 0, this.refusedCount.sum(), Collections.emptyList());
+        }
+
+        this.delivererService.shutdownNow();
+        long spilledCount = 0;
+        List<MetricsBatchConsumer.BatchedEvent> undelivered = new ArrayList<>();
+        /*
+         * Stripes that are currently draining are in the middle of a delivery and discard their metrics on their own,
+         * all others (including those whose drain is still waiting for a thread) are taken over to take their metrics
+         * back.
+         */
+        for (MetricsDeliveryStripe stripe : this.stripes) {
+            if (stripe.acquire()) {
+                MetricsSpillLog spillLog = stripe.getSpillLog();
+                spilledCount += spillLog != null ? spillLog.size() : 0;
+                stripe.discard(undelivered);
+            }
+        }
+        return new MetricsDrainReport(this.consumerId, undeliveredCount, spilledCount, this.refusedCount.sum(), undelivered);
+    }
+
     /**
      * Returns whether the {@link MetricsTrailConsumer} should flush all of a trail's gated events when that trail ends,
      * no matter whether the gate has been opened.
@@ -290,6 +1196,86 @@ public final class MetricsTrailConsumer {
         this.doFlushOnTrailEnd = doFlushOnTrailEnd;
     }
 
+    /**
+     * Returns the {@link Event} identifiers the {@link MetricsTrailConsumer} is interested in.
+     *
+     * @return The interests, never null; empty if the consumer is interested in all {@link Event}s
+     */
+    public Set<String> getInterests() {
+        Set<String> interests = new LinkedHashSet<>(this.interestIdentifiers);
+        String[] prefixes = this.interestPrefixes;
+        if (prefixes != null) {
+            for (String prefix : prefixes) {
+                interests.add(prefix + INTEREST_WILDCARD);
+            }
+        }
+        return Collections.unmodifiableSet(interests);
+    }
+
+    /**
+     * Sets the {@link Event} identifiers the {@link MetricsTrailConsumer} is interested in.
+     * <p>
+     * An interest is either an exact identifier like "http.request", or a prefix ending with the
+     * {@value #INTEREST_WILDCARD} wildcard like "http.*". {@link Event}s whose identifier matches none of the
+     * interests are ignored by the consumer entirely; they are neither gated, nor tested by the gate or filter. This
+     * applies to the {@link Event}s committed to a {@link MetricsTrail} as well as to those enqueued to one of the
+     * consumer's queues directly, for example when receiving the {@link Event}s of a remote trail.
+     * <p>
+     * Other than a filter, interests are known before a trail's {@link Event}s are, so a trail hooked using
+     * {@link MetricsTrail#hookLazily(MetricsTrailConsumer)} only creates a queue for the consumer once the first
+     * {@link Event} it is interested in is committed.
+     * <p>
+     * No interests by default, which means the consumer is interested in all {@link Event}s.
+     *
+     * @param interests The identifiers and identifier prefixes to be interested in; might be empty to be interested
+     *                  in all {@link Event}s, but might <b>not</b> contain null or empty interests.
+     */
+    public synchronized void setInterests(String... interests) {
+        if (interests == null) {
+            throw new IllegalArgumentException("Cannot set null interests");
+        }
+        Set<String> identifiers = new HashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        for (String interest : interests) {
+            if (interest == null || interest.isEmpty()) {
+                throw new IllegalArgumentException("Cannot set a null or empty interest");
+            } else if (interest.endsWith(INTEREST_WILDCARD)) {
+                prefixes.add(interest.substring(0, interest.length() - INTEREST_WILDCARD.length()));
+            } else {
+                identifiers.add(interest);
+            }
+        }
+        this.interestIdentifiers = identifiers;
+        this.interestPrefixes = interests.length == 0 ? null : prefixes.toArray(new String[0]);
+        ROUTING_TABLE.update(this);
+    }
+
+    /**
+     * Returns whether the {@link MetricsTrailConsumer} is interested in {@link Event}s with the given identifier.
+     *
+     * @param identifier The identifier to check; might be null.
+     * @return True if the consumer has no interests or one of them matches, false otherwise
+     */
+    public boolean isInterestedIn(String identifier) {
+        return ROUTING_TABLE.route(identifier).accepts(this.routingIndex);
+    }
+
+    int getRoutingIndex() {
+        return this.routingIndex;
+    }
+
+    boolean hasInterests() {
+        return this.interestPrefixes != null;
+    }
+
+    void forEachInterest(Consumer<String> identifierConsumer, Consumer<String> prefixConsumer) {
+        String[] prefixes = this.interestPrefixes;
+        if (prefixes != null) {
+            this.interestIdentifiers.forEach(identifierConsumer);
+            Arrays.stream(prefixes).forEach(prefixConsumer);
+        }
+    }
+
     /**
      * Creates a {@link MetricsTrailConsumer} that can consume all {@link Event}s a {@link MetricsTrail} gets aware of.
      *
@@ -15,7 +15,7 @@ import com.mantledillusion.metrics.trail.api.Event;
 public final class MetricsValve implements MetricsPredicate {
 
 	private final MetricsPredicate predicate;
-	private boolean isOpen;
+	private volatile boolean isOpen;
 
 	private MetricsValve(MetricsPredicate predicate) {
 		this.predicate = predicate;
@@ -23,8 +23,9 @@ public final class MetricsValve implements MetricsPredicate {
 
 	@Override
 	public boolean test(Event event) {
-		if (!this.isOpen) {
-			this.isOpen = this.predicate.test(event);
+		// the valve is only ever opened, so a thread testing concurrently can never close it again
+		if (!this.isOpen && this.predicate.test(event)) {
+			this.isOpen = true;
 		}
 		return this.isOpen;
 	}
@@ -0,0 +1,173 @@
+package com.mantledillusion.metrics.trail;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A lock-free, unbounded multi-producer/single-consumer queue of source/element pairs.
+ * <p>
+ * The queue is a ring of fixed size array chunks; producers claim their slot with a single atomic increment and
+ * never block each other, while chunks are only allocated once every {@value #CHUNK_SIZE} elements. Every element is
+ * stamped with the {@link System#nanoTime()} it was offered at.
+ * <p>
+ * All methods except {@link #offer(Object, Object)} and {@link #size()} must only be called by a single consumer
+ * {@link Thread} at a time.
+ *
+ * @param <S> The type of the sources elements are offered by.
+ * @param <E> The type of the elements.
+ */
+final class MpscChunkedQueue<S, E> {
+
+    static final int CHUNK_SIZE = 1024;
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    @FunctionalInterface
+    interface Drainer<S, E> {
+
+        void accept(S source, E element);
+    }
+
+    private static final class Chunk {
+
+        private static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT =
+                AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+
+        private final long index;
+        private final Object[] sources = new Object[CHUNK_SIZE];
+        private final long[] stamps = new long[CHUNK_SIZE];
+        private final AtomicReferenceArray<Object> elements = new AtomicReferenceArray<>(CHUNK_SIZE);
+        private volatile Chunk prev;
+        private volatile Chunk next;
+
+        private Chunk(long index, Chunk prev) {
+            this.index = index;
+            this.prev = prev;
+        }
+    }
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    private volatile Chunk producerChunk;
+    private volatile long consumerIndex;
+    private Chunk consumerChunk;
+
+    MpscChunkedQueue() {
+        this.consumerChunk = this.producerChunk = new Chunk(0, null);
+    }
+
+    /**
+     * Offers the given element; might be called by any {@link Thread}.
+     *
+     * @param source The element's source; might be null.
+     * @param element The element; might <b>not</b> be null.
+     */
+    void offer(S source, E element) {
+        long index = this.producerIndex.getAndIncrement();
+        Chunk chunk = chunkFor(index >>> CHUNK_SHIFT);
+        int offset = (int) (index & CHUNK_MASK);
+        chunk.sources[offset] = source;
+        chunk.stamps[offset] = System.nanoTime();
+        // publishing the element makes the source and stamp visible to the consumer
+        chunk.elements.lazySet(offset, element);
+    }
+
+    private Chunk chunkFor(long chunkIndex) {
+        Chunk chunk = this.producerChunk;
+        // a producer that claimed its slot earlier might find a newer chunk already; the consumer can never
+        // have passed the slot, so the chunk is still reachable backwards
+        while (chunk.index > chunkIndex) {
+            chunk = chunk.prev;
+        }
+        while (chunk.index < chunkIndex) {
+            Chunk next = chunk.next;
+            if (next == null) {
+                Chunk appended = new Chunk(chunk.index + 1, chunk);
+                next = Chunk.NEXT.compareAndSet(chunk, null, appended) ? appended : chunk.next;
+            }
+            chunk = next;
+        }
+        Chunk hint = this.producerChunk;
+        if (hint.index < chunk.index) {
+            this.producerChunk = chunk;
+        }
+        return chunk;
+    }
+
+    /**
+     * Returns the count of elements in the queue; might be called by any {@link Thread}.
+     *
+     * @return The count of elements, which might already be outdated when returned, never &lt;0
+     */
+    int size() {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, this.producerIndex.get() - this.consumerIndex));
+    }
+
+    /**
+     * Returns whether there are no more elements in the queue.
+     *
+     * @return True if the queue is empty, false otherwise
+     */
+    boolean isEmpty() {
+        return this.producerIndex.get() == this.consumerIndex;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} the oldest element of the queue was offered at.
+     *
+     * @return The stamp of the oldest element, undefined if the queue is empty
+     */
+    long peekStamp() {
+        Chunk chunk = consumerChunk();
+        int offset = (int) (this.consumerIndex & CHUNK_MASK);
+        awaitPublished(chunk, offset);
+        return chunk.stamps[offset];
+    }
+
+    /**
+     * Removes up to the given count of elements from the queue.
+     *
+     * @param max The maximum count of elements to remove.
+     * @param drainer The drainer to hand the removed elements to; might <b>not</b> be null.
+     * @return The count of elements removed
+     */
+    @SuppressWarnings("unchecked")
+    int drain(int max, Drainer<S, E> drainer) {
+        int count = 0;
+        while (count < max && !isEmpty()) {
+            Chunk chunk = consumerChunk();
+            int offset = (int) (this.consumerIndex & CHUNK_MASK);
+            E element = (E) awaitPublished(chunk, offset);
+            S source = (S) chunk.sources[offset];
+            chunk.sources[offset] = null;
+            chunk.elements.lazySet(offset, null);
+            this.consumerIndex = this.consumerIndex + 1;
+            drainer.accept(source, element);
+            count++;
+        }
+        return count;
+    }
+
+    private Chunk consumerChunk() {
+        long chunkIndex = this.consumerIndex >>> CHUNK_SHIFT;
+        while (this.consumerChunk.index < chunkIndex) {
+            Chunk next;
+            while ((next = this.consumerChunk.next) == null) {
+                // the producer that claimed the first slot of the next chunk is still appending it
+                Thread.yield();
+            }
+            next.prev = null;
+            this.consumerChunk = next;
+        }
+        return this.consumerChunk;
+    }
+
+    private static Object awaitPublished(Chunk chunk, int offset) {
+        Object element;
+        while ((element = chunk.elements.get(offset)) == null) {
+            // the producer has claimed the slot, but not yet published its element
+            Thread.yield();
+        }
+        return element;
+    }
+}
@@ -0,0 +1,30 @@
+package com.mantledillusion.metrics.trail;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates version 7 {@link UUID}s: 48 bits of Unix milliseconds, followed by a 12 bit counter that keeps IDs of
+ * the same millisecond increasing, and 62 random bits.
+ */
+final class TimeOrderedCorrelationIdGenerator implements CorrelationIdGenerator {
+
+    // the timestamp shifted left by 12 bits, plus the counter within the millisecond
+    private final AtomicLong last = new AtomicLong();
+
+    @Override
+    public UUID generate() {
+        long now = System.currentTimeMillis() << 12;
+        long last, next;
+        do {
+            last = this.last.get();
+            // a counter overflowing within the same millisecond just borrows from the next one
+            next = Math.max(now, last + 1);
+        } while (!this.last.compareAndSet(last, next));
+
+        long msb = ((next >>> 12) << 16) | 0x7000L | (next & 0xFFFL);
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
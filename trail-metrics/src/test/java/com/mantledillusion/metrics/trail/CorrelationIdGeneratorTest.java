@@ -0,0 +1,41 @@
+package com.mantledillusion.metrics.trail;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CorrelationIdGeneratorTest {
+
+    @Test
+    public void testNullGenerator() {
+        assertThrows(IllegalArgumentException.class, () -> MetricsTrail.setCorrelationIdGenerator(null));
+        assertNotNull(MetricsTrail.generateCorrelationId());
+    }
+
+    @Test
+    public void testRandom() {
+        UUID id = CorrelationIdGenerator.random().generate();
+        assertEquals(4, id.version());
+        assertEquals(2, id.variant());
+        assertNotEquals(id, CorrelationIdGenerator.random().generate());
+    }
+
+    @Test
+    public void testTimeOrdered() {
+        CorrelationIdGenerator generator = CorrelationIdGenerator.timeOrdered();
+        long before = System.currentTimeMillis();
+        UUID previous = generator.generate();
+        assertEquals(7, previous.version());
+        assertEquals(2, previous.variant());
+        assertTrue((previous.getMostSignificantBits() >>> 16) >= before);
+
+        for (int i = 0; i < 10000; i++) {
+            UUID next = generator.generate();
+            // compared unsigned, like databases compare the IDs' bytes
+            assertTrue(Long.compareUnsigned(previous.getMostSignificantBits(), next.getMostSignificantBits()) < 0);
+            previous = next;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsCircuitBreakerTest extends AbstractMetricsTest {
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> MetricsCircuitBreaker.from(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> MetricsCircuitBreaker.from(1.1, 1000));
+        assertThrows(IllegalArgumentException.class, () -> MetricsCircuitBreaker.from(0.5, -1));
+
+        MetricsCircuitBreaker breaker = MetricsCircuitBreaker.from(0.5, 1000);
+        assertThrows(IllegalArgumentException.class, () -> breaker.setSlowCalls(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> breaker.setSlowCalls(0.5, -1));
+        assertThrows(IllegalArgumentException.class, () -> breaker.setWindow(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> breaker.setWindow(5, 6));
+        assertThrows(IllegalArgumentException.class, () -> breaker.setOpenPolicy(null));
+    }
+
+    @Test
+    public void testOpenOnFailureRate() {
+        MetricsCircuitBreaker breaker = MetricsCircuitBreaker.from(0.5, 60000);
+        breaker.setWindow(4, 4);
+
+        for (boolean success : new boolean[] {true, false, true}) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onResult(success, 0);
+            assertEquals(MetricsCircuitBreaker.State.CLOSED, breaker.getState());
+        }
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(false, 0);
+
+        assertEquals(MetricsCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.isCallPermitted());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testOpenOnSlowCallRate() {
+        MetricsCircuitBreaker breaker = MetricsCircuitBreaker.from(1, 60000);
+        breaker.setWindow(2, 2);
+        breaker.setSlowCalls(1, 10);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(true, TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(true, TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertEquals(MetricsCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testSingleProbe() {
+        MetricsCircuitBreaker breaker = MetricsCircuitBreaker.from(1, 0);
+        breaker.setWindow(1, 1);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(false, 0);
+        assertEquals(MetricsCircuitBreaker.State.OPEN, breaker.getState());
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(MetricsCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        assertTrue(breaker.onResult(false, 0));
+        assertEquals(MetricsCircuitBreaker.State.OPEN, breaker.getState());
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.onResult(true, 0));
+        assertEquals(MetricsCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testBufferWhileOpen() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        AtomicInteger calls = new AtomicInteger();
+        List<Event> consumed = new CopyOnWriteArrayList<>();
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            calls.incrementAndGet();
+            if (failing.get()) {
+                throw new IllegalStateException();
+            }
+            consumed.add(event);
+        });
+        consumer.setDeliveryRetryIntervals(10);
+        MetricsCircuitBreaker breaker = MetricsCircuitBreaker.from(1, 500);
+        breaker.setWindow(2, 2);
+        consumer.setCircuitBreaker(breaker);
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(consumer);
+
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        trail.commit(eventA);
+        waitUntilOpen(breaker);
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        trail.commit(eventB);
+
+        int callsWhileOpen = calls.get();
+        sleep(200);
+        assertEquals(callsWhileOpen, calls.get());
+        assertEquals(2, this.queue.getDeliveringCount());
+
+        failing.set(false);
+        waitUntilConsumed();
+
+        assertEquals(MetricsCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(2, consumed.size());
+        assertSame(eventA, consumed.get(0));
+        assertSame(eventB, consumed.get(1));
+    }
+
+    @Test
+    public void testShedWhileOpen() {
+        List<Event> consumed = new CopyOnWriteArrayList<>();
+        AtomicBoolean failing = new AtomicBoolean(true);
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            if (failing.get()) {
+                throw new IllegalStateException();
+            }
+            consumed.add(event);
+        });
+        consumer.setDeliveryRetryIntervals(10);
+        MetricsCircuitBreaker breaker = MetricsCircuitBreaker.from(1, 60000);
+        breaker.setWindow(2, 2);
+        breaker.setOpenPolicy(MetricsCircuitBreaker.OpenPolicy.SHED);
+        consumer.setCircuitBreaker(breaker);
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(consumer);
+
+        trail.commit(new Event(TEST_EVENT_PREFIX+"A"));
+        waitUntilOpen(breaker);
+        failing.set(false);
+        trail.commit(new Event(TEST_EVENT_PREFIX+"B"));
+        waitUntilConsumed();
+
+        assertTrue(consumed.isEmpty());
+        assertEquals(2, consumer.getDroppedCount());
+    }
+
+    private static void waitUntilOpen(MetricsCircuitBreaker breaker) {
+        while (breaker.getState() != MetricsCircuitBreaker.State.OPEN) {
+            sleep(10);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Unable to wait", e);
+        }
+    }
+}
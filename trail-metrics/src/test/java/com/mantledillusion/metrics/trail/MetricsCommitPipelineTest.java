@@ -0,0 +1,145 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsCommitPipelineTest extends AbstractMetricsTest {
+
+    @AfterEach
+    public void resetPipeline() {
+        MetricsTrail.setCommitPipeline(null);
+    }
+
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> MetricsCommitPipeline.from(0));
+        MetricsCommitPipeline pipeline = MetricsCommitPipeline.from(1);
+        assertEquals(1, pipeline.getCapacity());
+        pipeline.shutdown();
+        pipeline = MetricsCommitPipeline.from(5);
+        assertEquals(8, pipeline.getCapacity());
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testCommitAsynchronously() {
+        MetricsCommitPipeline pipeline = MetricsCommitPipeline.from(2);
+        MetricsTrail.setCommitPipeline(pipeline);
+
+        Set<Thread> filteringThreads = ConcurrentHashMap.newKeySet();
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer, null, event -> {
+            filteringThreads.add(Thread.currentThread());
+            return true;
+        }));
+
+        Event[] events = new Event[100];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new Event(TEST_EVENT_PREFIX + i);
+            trail.commit(events[i]);
+        }
+        // invalid events are dropped by the pipeline instead of failing the commit
+        trail.commit(new Event(null));
+        trail.end();
+
+        assertTrue(pipeline.awaitIdle(Duration.ofSeconds(5)));
+        assertEquals(1, pipeline.getRejectedCount());
+        assertFalse(filteringThreads.contains(Thread.currentThread()));
+        waitUntilConsumed();
+        for (Event event : events) {
+            assertSame(event, this.consumer.dequeueOne(TRAIL_ID));
+        }
+    }
+
+    @Test
+    public void testTrailKeepsPipeline() {
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        MetricsTrail.setCommitPipeline(MetricsCommitPipeline.from(16));
+        this.queue = trail.hook(MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer));
+
+        // the trail has been created before the pipeline was set, so it still validates synchronously
+        assertThrows(IllegalArgumentException.class, () -> trail.commit(new Event(null)));
+    }
+
+    @Test
+    public void testReplaceShutsDown() {
+        MetricsCommitPipeline pipeline = MetricsCommitPipeline.from(1024);
+        MetricsTrail.setCommitPipeline(pipeline);
+        long threads = countPipelineThreads();
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer));
+        Event[] events = new Event[100];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new Event(TEST_EVENT_PREFIX + i);
+            trail.commit(events[i]);
+        }
+
+        // replacing the pipeline commits everything published to it and stops its thread
+        MetricsTrail.setCommitPipeline(null);
+        assertTrue(pipeline.isShutdown());
+        assertTrue(pipeline.isIdle());
+        assertEquals(threads - 1, countPipelineThreads());
+        assertThrows(IllegalArgumentException.class, () -> MetricsTrail.setCommitPipeline(pipeline));
+
+        // the trail still using the pipeline commits synchronously from now on
+        assertThrows(IllegalArgumentException.class, () -> trail.commit(new Event(null)));
+        Event last = new Event(TEST_EVENT_PREFIX + "last");
+        trail.commit(last);
+        waitUntilConsumed();
+        for (Event event : events) {
+            assertSame(event, this.consumer.dequeueOne(TRAIL_ID));
+        }
+        assertSame(last, this.consumer.dequeueOne(TRAIL_ID));
+    }
+
+    @Test
+    public void testIsDeliveringPerTrail() throws InterruptedException {
+        MetricsCommitPipeline pipeline = MetricsCommitPipeline.from(16);
+        MetricsTrail.setCommitPipeline(pipeline);
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer));
+        trail.commit(new Event(TEST_EVENT_PREFIX + "A"));
+        assertTrue(pipeline.awaitIdle(Duration.ofSeconds(5)));
+        waitUntilConsumed();
+
+        // another trail's event holding the pipeline up does not make this trail deliver
+        CountDownLatch release = new CountDownLatch(1);
+        MetricsTrail blockingTrail = new MetricsTrail(MetricsTrail.generateCorrelationId());
+        blockingTrail.hook(MetricsTrailConsumer.from(TEST_CONSUMER, new MockConsumer(), null, event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }));
+        blockingTrail.commit(new Event(TEST_EVENT_PREFIX + "B"));
+        assertFalse(pipeline.isIdle());
+        assertTrue(blockingTrail.isDelivering());
+        assertFalse(trail.isDelivering());
+
+        // an event published after the blocking one has to wait for it, though
+        trail.commit(new Event(TEST_EVENT_PREFIX + "C"));
+        assertTrue(trail.isDelivering());
+        release.countDown();
+        assertTrue(pipeline.awaitIdle(Duration.ofSeconds(5)));
+        waitUntilConsumed();
+        assertFalse(trail.isDelivering());
+    }
+
+    private static long countPipelineThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("trail-metrics-commit-pipeline"))
+                .count();
+    }
+}
@@ -0,0 +1,103 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsDeliverySchedulerTest extends AbstractMetricsTest {
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> MetricsDeliveryScheduler.from(0));
+        assertThrows(IllegalArgumentException.class, () -> MetricsDeliveryScheduler.from(1).setBulkhead(0));
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        assertThrows(IllegalArgumentException.class, () -> consumer.setDeliveryScheduler(MetricsDeliveryScheduler.shared(), 0));
+    }
+
+    @Test
+    public void testLazyStart() {
+        MetricsDeliveryScheduler scheduler = MetricsDeliveryScheduler.from(4);
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        consumer.setDeliveryScheduler(scheduler, 1);
+        assertEquals(0, scheduler.getStartedThreads());
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(consumer);
+        Event event = new Event(TEST_EVENT_PREFIX+"A");
+        trail.commit(event);
+        waitUntilConsumed();
+
+        assertSame(event, this.consumer.dequeueOne(TRAIL_ID));
+        assertEquals(1, scheduler.getStartedThreads());
+    }
+
+    @Test
+    public void testBulkhead() throws InterruptedException {
+        MetricsDeliveryScheduler scheduler = MetricsDeliveryScheduler.from(2);
+
+        CountDownLatch release = new CountDownLatch(1);
+        MetricsTrailConsumer slowConsumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> release.await());
+        slowConsumer.setDeliveryParallelism(2, MetricsTrailConsumer.DeliveryOrdering.UNORDERED);
+        slowConsumer.setDeliveryScheduler(scheduler, 1);
+
+        CountDownLatch consumed = new CountDownLatch(1);
+        MetricsTrailConsumer fastConsumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> consumed.countDown());
+        fastConsumer.setDeliveryScheduler(scheduler, 1);
+
+        MetricsTrail trail = new MetricsTrail(UUID.randomUUID());
+        trail.hook(slowConsumer);
+        trail.commit(new Event(TEST_EVENT_PREFIX+"A"));
+        trail.commit(new Event(TEST_EVENT_PREFIX+"B"));
+        trail.hook(fastConsumer);
+        trail.commit(new Event(TEST_EVENT_PREFIX+"C"));
+
+        assertTrue(consumed.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void testWeightedFairness() throws InterruptedException {
+        MetricsDeliveryScheduler scheduler = MetricsDeliveryScheduler.from(1);
+        ExecutorService light = scheduler.lane(1, 1);
+        ExecutorService heavy = scheduler.lane(3, 1);
+
+        // keep the only thread busy until both lanes have queued all of their tasks
+        CountDownLatch start = new CountDownLatch(1);
+        scheduler.lane(1, 1).execute(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        List<ExecutorService> served = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(80);
+        for (int i = 0; i < 40; i++) {
+            for (ExecutorService lane : new ExecutorService[] {light, heavy}) {
+                lane.execute(() -> {
+                    served.add(lane);
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    done.countDown();
+                });
+            }
+        }
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        long heavyServed = served.subList(0, 40).stream().filter(lane -> lane == heavy).count();
+        assertTrue(heavyServed >= 25 && heavyServed < 40, "The heavy lane was served " + heavyServed + " of 40 times");
+    }
+}
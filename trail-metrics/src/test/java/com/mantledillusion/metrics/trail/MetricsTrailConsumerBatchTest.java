@@ -0,0 +1,125 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTrailConsumerBatchTest extends AbstractMetricsTest {
+
+    private MetricsTrail trail;
+    private MockBatchConsumer batchConsumer;
+
+    @BeforeEach
+    public void beginTrail() {
+        this.trail = new MetricsTrail(TRAIL_ID);
+        this.batchConsumer = new MockBatchConsumer();
+    }
+
+    @Test
+    public void testInvalidBatching() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.batchConsumer);
+        assertThrows(IllegalArgumentException.class, () -> consumer.setBatching(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> consumer.setBatching(1, -1));
+    }
+
+    @Test
+    public void testBatchByMaxSize() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.batchConsumer);
+        consumer.setBatching(3, 60000);
+        this.queue = this.trail.hook(consumer);
+
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        this.trail.commit(eventA);
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        this.trail.commit(eventB);
+
+        assertTrue(this.queue.isDelivering());
+        assertEquals(2, this.queue.getDeliveringCount());
+        assertTrue(this.batchConsumer.batches().isEmpty());
+
+        Event eventC = new Event(TEST_EVENT_PREFIX+"C");
+        this.trail.commit(eventC);
+        waitUntilConsumed();
+
+        assertEquals(1, this.batchConsumer.batches().size());
+        assertEquals(Arrays.asList(eventA, eventB, eventC), this.batchConsumer.batches().get(0));
+    }
+
+    @Test
+    public void testBatchByMaxLinger() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.batchConsumer);
+        consumer.setBatching(100, 200);
+        this.queue = this.trail.hook(consumer);
+
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        this.trail.commit(eventA);
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        this.trail.commit(eventB);
+        waitUntilConsumed();
+
+        assertEquals(1, this.batchConsumer.batches().size());
+        assertEquals(Arrays.asList(eventA, eventB), this.batchConsumer.batches().get(0));
+    }
+
+    @Test
+    public void testBatchAcrossTrails() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.batchConsumer);
+        consumer.setBatching(2, 60000);
+        this.queue = this.trail.hook(consumer);
+        MetricsTrail otherTrail = new MetricsTrail(java.util.UUID.randomUUID());
+        otherTrail.hook(consumer);
+
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        this.trail.commit(eventA);
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        otherTrail.commit(eventB);
+        waitUntilConsumed();
+
+        assertEquals(1, this.batchConsumer.batches().size());
+        assertEquals(Arrays.asList(eventA, eventB), this.batchConsumer.batches().get(0));
+    }
+
+    @Test
+    public void testPartialFailureRetry() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.batchConsumer);
+        consumer.setBatching(3, 60000);
+        consumer.setDeliveryRetryIntervals(5);
+        this.queue = this.trail.hook(consumer);
+
+        this.batchConsumer.failPartially(2);
+
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        this.trail.commit(eventA);
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        this.trail.commit(eventB);
+        Event eventC = new Event(TEST_EVENT_PREFIX+"C");
+        this.trail.commit(eventC);
+        waitUntilConsumed();
+
+        assertEquals(1, this.batchConsumer.failedBatches().size());
+        assertEquals(Arrays.asList(eventA, eventB, eventC), this.batchConsumer.failedBatches().get(0));
+        assertEquals(1, this.batchConsumer.batches().size());
+        assertEquals(Arrays.asList(eventC), this.batchConsumer.batches().get(0));
+    }
+
+    @Test
+    public void testBatchToSingleConsumer() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        consumer.setBatching(2, 60000);
+        this.queue = this.trail.hook(consumer);
+
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        this.trail.commit(eventA);
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        this.trail.commit(eventB);
+        waitUntilConsumed();
+
+        assertEquals(2, this.consumer.size(TRAIL_ID));
+        assertSame(eventA, this.consumer.dequeueOne(TRAIL_ID));
+        assertSame(eventB, this.consumer.dequeueOne(TRAIL_ID));
+    }
+}
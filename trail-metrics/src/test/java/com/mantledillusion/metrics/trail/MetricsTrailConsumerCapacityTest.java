@@ -0,0 +1,147 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTrailConsumerCapacityTest extends AbstractMetricsTest {
+
+    private MetricsTrail trail;
+
+    @BeforeEach
+    public void beginTrail() {
+        this.trail = new MetricsTrail(TRAIL_ID);
+    }
+
+    private MetricsTrailConsumer gatedConsumer() {
+        return MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer,
+                event -> event.getIdentifier().startsWith(TEST_IMPORTANT_EVENT_PREFIX), null);
+    }
+
+    @Test
+    public void testInvalidCapacity() {
+        MetricsTrailConsumer consumer = gatedConsumer();
+        assertThrows(IllegalArgumentException.class, () -> consumer.setGatedCapacity(0, 1, MetricsTrailConsumer.OverflowPolicy.DROP_OLDEST));
+        assertThrows(IllegalArgumentException.class, () -> consumer.setGatedCapacity(1, 0, MetricsTrailConsumer.OverflowPolicy.DROP_OLDEST));
+        assertThrows(IllegalArgumentException.class, () -> consumer.setGatedCapacity(1, 1, null));
+    }
+
+    @Test
+    public void testDropOldest() {
+        MetricsTrailConsumer consumer = gatedConsumer();
+        consumer.setGatedCapacity(2, Long.MAX_VALUE, MetricsTrailConsumer.OverflowPolicy.DROP_OLDEST);
+        this.queue = this.trail.hook(consumer);
+
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        this.trail.commit(eventA);
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        this.trail.commit(eventB);
+        Event eventC = new Event(TEST_EVENT_PREFIX+"C");
+        this.trail.commit(eventC);
+
+        assertEquals(2, this.queue.getGatedCount());
+        assertEquals(1, consumer.getDroppedCount());
+
+        Event eventD = new Event(TEST_IMPORTANT_EVENT_PREFIX+"D");
+        this.trail.commit(eventD);
+        waitUntilConsumed();
+
+        assertEquals(2, this.consumer.size(TRAIL_ID));
+        assertSame(eventC, this.consumer.dequeueOne(TRAIL_ID));
+        assertSame(eventD, this.consumer.dequeueOne(TRAIL_ID));
+    }
+
+    @Test
+    public void testDropNewest() {
+        MetricsTrailConsumer consumer = gatedConsumer();
+        consumer.setGatedCapacity(2, Long.MAX_VALUE, MetricsTrailConsumer.OverflowPolicy.DROP_NEWEST);
+        this.queue = this.trail.hook(consumer);
+
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        this.trail.commit(eventA);
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        this.trail.commit(eventB);
+        Event eventC = new Event(TEST_EVENT_PREFIX+"C");
+        this.trail.commit(eventC);
+
+        assertEquals(2, this.queue.getGatedCount());
+        assertEquals(1, consumer.getDroppedCount());
+
+        Event eventD = new Event(TEST_IMPORTANT_EVENT_PREFIX+"D");
+        this.trail.commit(eventD);
+        waitUntilConsumed();
+
+        assertEquals(2, this.consumer.size(TRAIL_ID));
+        assertSame(eventA, this.consumer.dequeueOne(TRAIL_ID));
+        assertSame(eventB, this.consumer.dequeueOne(TRAIL_ID));
+    }
+
+    @Test
+    public void testSample() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer, event -> false, null);
+        consumer.setGatedCapacity(4, Long.MAX_VALUE, MetricsTrailConsumer.OverflowPolicy.SAMPLE);
+        consumer.setDoFlushOnTrailEnd(true);
+        this.queue = this.trail.hook(consumer);
+
+        Event[] events = new Event[5];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new Event(TEST_EVENT_PREFIX+i);
+            this.trail.commit(events[i]);
+        }
+
+        assertEquals(3, this.queue.getGatedCount());
+        assertEquals(2, consumer.getDroppedCount());
+
+        this.trail.end();
+        waitUntilConsumed();
+
+        assertEquals(3, this.consumer.size(TRAIL_ID));
+        assertSame(events[0], this.consumer.dequeueOne(TRAIL_ID));
+        assertSame(events[2], this.consumer.dequeueOne(TRAIL_ID));
+        assertSame(events[4], this.consumer.dequeueOne(TRAIL_ID));
+    }
+
+    @Test
+    public void testForceFlush() {
+        MetricsTrailConsumer consumer = gatedConsumer();
+        consumer.setGatedCapacity(2, Long.MAX_VALUE, MetricsTrailConsumer.OverflowPolicy.FORCE_FLUSH);
+        this.queue = this.trail.hook(consumer);
+
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        this.trail.commit(eventA);
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        this.trail.commit(eventB);
+        Event eventC = new Event(TEST_EVENT_PREFIX+"C");
+        this.trail.commit(eventC);
+        waitUntilConsumed();
+
+        assertFalse(this.queue.hasGated());
+        assertEquals(0, consumer.getDroppedCount());
+        assertEquals(1, consumer.getForcedFlushCount());
+        assertEquals(3, this.consumer.size(TRAIL_ID));
+        assertSame(eventA, this.consumer.dequeueOne(TRAIL_ID));
+        assertSame(eventB, this.consumer.dequeueOne(TRAIL_ID));
+        assertSame(eventC, this.consumer.dequeueOne(TRAIL_ID));
+    }
+
+    @Test
+    public void testCapacityByBytes() {
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        Event eventC = new Event(TEST_EVENT_PREFIX+"C");
+
+        MetricsTrailConsumer consumer = gatedConsumer();
+        consumer.setGatedCapacity(Integer.MAX_VALUE, MetricsTrailConsumer.estimateSize(eventA) * 2,
+                MetricsTrailConsumer.OverflowPolicy.DROP_OLDEST);
+        this.queue = this.trail.hook(consumer);
+
+        this.trail.commit(eventA);
+        this.trail.commit(eventB);
+        this.trail.commit(eventC);
+
+        assertEquals(2, this.queue.getGatedCount());
+        assertEquals(1, consumer.getDroppedCount());
+    }
+}
@@ -0,0 +1,143 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTrailConsumerDrainTest extends AbstractMetricsTest {
+
+    @Test
+    public void testInvalidDeadline() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        assertThrows(IllegalArgumentException.class, () -> consumer.drain(null));
+        assertThrows(IllegalArgumentException.class, () -> consumer.drain(Duration.ofMillis(-1)));
+        assertFalse(consumer.isDrained());
+    }
+
+    @Test
+    public void testDrainFlushesGated() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer,
+                event -> event.getIdentifier().startsWith(TEST_IMPORTANT_EVENT_PREFIX), null);
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(consumer);
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        trail.commit(eventA);
+        trail.commit(eventB);
+        assertTrue(trail.hasGated());
+
+        MetricsDrainReport report = consumer.drain(Duration.ofSeconds(5));
+        assertTrue(report.isComplete());
+        assertEquals(TEST_CONSUMER, report.getConsumerId());
+        assertSame(eventA, this.consumer.dequeueOne(TRAIL_ID));
+        assertSame(eventB, this.consumer.dequeueOne(TRAIL_ID));
+
+        trail.commit(new Event(TEST_EVENT_PREFIX+"C"));
+        assertTrue(consumer.isDrained());
+        assertEquals(1, consumer.drain(Duration.ZERO).getRefusedCount());
+    }
+
+    @Test
+    public void testDrainExpeditesRetries() {
+        AtomicInteger failures = new AtomicInteger(1);
+        List<Event> consumed = new CopyOnWriteArrayList<>();
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException();
+            }
+            consumed.add(event);
+        });
+        consumer.setDeliveryRetryIntervals(60000);
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(consumer);
+        Event event = new Event(TEST_EVENT_PREFIX+"A");
+        trail.commit(event);
+        while (failures.get() > 0) {
+            Thread.yield();
+        }
+
+        MetricsDrainReport report = consumer.drain(Duration.ofSeconds(5));
+        assertTrue(report.isComplete());
+        assertEquals(1, consumed.size());
+        assertSame(event, consumed.get(0));
+    }
+
+    @Test
+    public void testDrainDeadline() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            throw new IllegalStateException();
+        });
+        consumer.setDeliveryRetryIntervals(60000);
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(consumer);
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        trail.commit(eventA);
+        trail.commit(eventB);
+
+        MetricsDrainReport report = consumer.drain(Duration.ofMillis(200));
+        assertFalse(report.isComplete());
+        assertEquals(2, report.getUndeliveredCount());
+        assertEquals(0, report.getSpilledCount());
+        report.getUndelivered().forEach(batchedEvent -> assertEquals(TRAIL_ID, batchedEvent.getCorrelationId()));
+        assertEquals(2, report.getUndelivered().size());
+        assertTrue(report.getUndelivered().stream()
+                .map(MetricsBatchConsumer.BatchedEvent::getEvent)
+                .collect(Collectors.toList())
+                .containsAll(Arrays.asList(eventA, eventB)));
+        assertFalse(trail.isDelivering());
+    }
+
+    @Test
+    public void testDrainWhileQueuedOnSaturatedLane() throws InterruptedException {
+        MetricsDeliveryScheduler scheduler = MetricsDeliveryScheduler.from(1);
+
+        // keep the scheduler's only thread busy, so the drained consumer's drain never gets a thread
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MetricsTrailConsumer slowConsumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            started.countDown();
+            release.await();
+        });
+        slowConsumer.setDeliveryScheduler(scheduler, 1);
+        MetricsTrail slowTrail = new MetricsTrail(UUID.randomUUID());
+        slowTrail.hook(slowConsumer);
+        slowTrail.commit(new Event(TEST_EVENT_PREFIX+"A"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+            consumer.setDeliveryScheduler(scheduler, 1);
+            MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+            this.queue = trail.hook(consumer);
+            Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+            Event eventC = new Event(TEST_EVENT_PREFIX+"C");
+            trail.commit(eventB);
+            trail.commit(eventC);
+
+            MetricsDrainReport report = consumer.drain(Duration.ofMillis(100));
+            assertFalse(report.isComplete());
+            assertEquals(2, report.getUndeliveredCount());
+            assertEquals(Arrays.asList(eventB, eventC), report.getUndelivered().stream()
+                    .map(MetricsBatchConsumer.BatchedEvent::getEvent)
+                    .collect(Collectors.toList()));
+            assertFalse(trail.isDelivering());
+            assertEquals(0, consumer.drain(Duration.ZERO).getUndeliveredCount());
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTrailConsumerParallelismTest extends AbstractMetricsTest {
+
+    @Test
+    public void testInvalidParallelism() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        assertThrows(IllegalArgumentException.class, () -> consumer.setDeliveryParallelism(0, MetricsTrailConsumer.DeliveryOrdering.PER_TRAIL));
+        assertThrows(IllegalArgumentException.class, () -> consumer.setDeliveryParallelism(1, null));
+    }
+
+    @Test
+    public void testSlowTrailDoesNotBlockOthers() throws InterruptedException {
+        UUID slowTrailId = TRAIL_ID;
+        UUID fastTrailId;
+        do {
+            fastTrailId = UUID.randomUUID();
+        } while (MetricsTrailConsumer.stripeOf(fastTrailId, 2) == MetricsTrailConsumer.stripeOf(slowTrailId, 2));
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastConsumed = new CountDownLatch(1);
+        UUID finalFastTrailId = fastTrailId;
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            if (correlationId.equals(finalFastTrailId)) {
+                fastConsumed.countDown();
+            } else {
+                release.await();
+            }
+        });
+        consumer.setDeliveryParallelism(2, MetricsTrailConsumer.DeliveryOrdering.PER_TRAIL);
+        assertEquals(2, consumer.getDeliveryParallelism());
+
+        MetricsTrail slowTrail = new MetricsTrail(slowTrailId);
+        this.queue = slowTrail.hook(consumer);
+        MetricsTrail fastTrail = new MetricsTrail(fastTrailId);
+        fastTrail.hook(consumer);
+
+        slowTrail.commit(new Event(TEST_EVENT_PREFIX+"A"));
+        fastTrail.commit(new Event(TEST_EVENT_PREFIX+"B"));
+
+        assertTrue(fastConsumed.await(5, TimeUnit.SECONDS));
+        assertTrue(slowTrail.isDelivering());
+        release.countDown();
+        waitUntilConsumed();
+    }
+
+    @Test
+    public void testOrderPerTrail() throws InterruptedException {
+        Map<UUID, List<Event>> consumed = new ConcurrentHashMap<>();
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) ->
+                consumed.computeIfAbsent(correlationId, id -> Collections.synchronizedList(new ArrayList<>())).add(event));
+        consumer.setDeliveryParallelism(4, MetricsTrailConsumer.DeliveryOrdering.PER_TRAIL);
+
+        Map<UUID, List<Event>> committed = new HashMap<>();
+        List<MetricsTrail> trails = new ArrayList<>();
+        List<MetricsTrailConsumer.MetricsTrailConsumerQueue> queues = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            MetricsTrail trail = new MetricsTrail(UUID.randomUUID());
+            queues.add(trail.hook(consumer));
+            trails.add(trail);
+        }
+        for (int i = 0; i < 100; i++) {
+            for (MetricsTrail trail : trails) {
+                Event event = new Event(TEST_EVENT_PREFIX+i);
+                trail.commit(event);
+                committed.computeIfAbsent(trail.getCorrelationId(), id -> new ArrayList<>()).add(event);
+            }
+        }
+        for (MetricsTrailConsumer.MetricsTrailConsumerQueue queue : queues) {
+            this.queue = queue;
+            waitUntilConsumed();
+        }
+
+        assertEquals(committed, consumed);
+    }
+
+    @Test
+    public void testUnordered() {
+        Map<UUID, List<Event>> consumed = new ConcurrentHashMap<>();
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) ->
+                consumed.computeIfAbsent(correlationId, id -> Collections.synchronizedList(new ArrayList<>())).add(event));
+        consumer.setDeliveryParallelism(4, MetricsTrailConsumer.DeliveryOrdering.UNORDERED);
+        assertEquals(MetricsTrailConsumer.DeliveryOrdering.UNORDERED, consumer.getDeliveryOrdering());
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(consumer);
+        Set<Event> committed = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            Event event = new Event(TEST_EVENT_PREFIX+i);
+            trail.commit(event);
+            committed.add(event);
+        }
+        waitUntilConsumed();
+
+        assertEquals(committed, new HashSet<>(consumed.get(TRAIL_ID)));
+    }
+}
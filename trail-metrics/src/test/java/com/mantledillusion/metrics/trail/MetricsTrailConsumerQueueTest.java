@@ -4,6 +4,8 @@ import com.mantledillusion.metrics.trail.api.Event;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class MetricsTrailConsumerQueueTest extends AbstractMetricsTest {
@@ -177,4 +179,25 @@ public class MetricsTrailConsumerQueueTest extends AbstractMetricsTest {
         assertEquals(1, this.consumer.size(TRAIL_ID));
         assertSame(event, this.consumer.dequeueOne(TRAIL_ID));
     }
+
+    @Test
+    public void testEnqueueByInterest() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        consumer.setInterests(TEST_IMPORTANT_EVENT_PREFIX + MetricsTrailConsumer.INTEREST_WILDCARD);
+        // events enqueued without a trail, like received ones, are not routed by the trail
+        this.queue = consumer.queueFor(TRAIL_ID);
+
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        Event eventB = new Event(TEST_IMPORTANT_EVENT_PREFIX+"B");
+        this.queue.enqueue(eventA);
+        this.queue.enqueue(eventB);
+        Event eventC = new Event(TEST_EVENT_PREFIX+"C");
+        Event eventD = new Event(TEST_IMPORTANT_EVENT_PREFIX+"D");
+        this.queue.enqueueAll(Arrays.asList(eventC, eventD));
+        waitUntilConsumed();
+
+        assertEquals(2, this.consumer.size(TRAIL_ID));
+        assertSame(eventB, this.consumer.dequeueOne(TRAIL_ID));
+        assertSame(eventD, this.consumer.dequeueOne(TRAIL_ID));
+    }
 }
@@ -0,0 +1,98 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTrailConsumerRetryTest extends AbstractMetricsTest {
+
+    @Test
+    public void testInvalidRetryConfiguration() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        assertThrows(IllegalArgumentException.class, () -> consumer.setDeliveryRetryBackoff(-1, 10, 2));
+        assertThrows(IllegalArgumentException.class, () -> consumer.setDeliveryRetryBackoff(10, 5, 2));
+        assertThrows(IllegalArgumentException.class, () -> consumer.setDeliveryRetryBackoff(10, 50, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> consumer.setDeliveryRetryJitter(-0.1));
+        assertThrows(IllegalArgumentException.class, () -> consumer.setDeliveryRetryJitter(1.1));
+    }
+
+    @Test
+    public void testRetryDoesNotBlockOtherTrails() throws InterruptedException {
+        UUID failingTrailId = TRAIL_ID;
+        CountDownLatch otherConsumed = new CountDownLatch(1);
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            if (correlationId.equals(failingTrailId)) {
+                throw new IllegalStateException();
+            }
+            otherConsumed.countDown();
+        });
+        consumer.setDeliveryRetryIntervals(60000);
+
+        MetricsTrail failingTrail = new MetricsTrail(failingTrailId);
+        this.queue = failingTrail.hook(consumer);
+        MetricsTrail otherTrail = new MetricsTrail(UUID.randomUUID());
+        otherTrail.hook(consumer);
+
+        failingTrail.commit(new Event(TEST_EVENT_PREFIX+"A"));
+        otherTrail.commit(new Event(TEST_EVENT_PREFIX+"B"));
+
+        assertTrue(otherConsumed.await(5, TimeUnit.SECONDS));
+        assertTrue(failingTrail.isDelivering());
+    }
+
+    @Test
+    public void testRetryHoldsBackTrail() {
+        AtomicInteger failures = new AtomicInteger(1);
+        List<Event> consumed = new CopyOnWriteArrayList<>();
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException();
+            }
+            consumed.add(event);
+        });
+        consumer.setDeliveryRetryIntervals(200);
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(consumer);
+
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        trail.commit(eventA);
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        trail.commit(eventB);
+        waitUntilConsumed();
+
+        assertEquals(Arrays.asList(eventA, eventB), consumed);
+    }
+
+    @Test
+    public void testUnorderedRetryDoesNotHoldBackTrail() {
+        AtomicInteger failures = new AtomicInteger(1);
+        List<Event> consumed = new CopyOnWriteArrayList<>();
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException();
+            }
+            consumed.add(event);
+        });
+        consumer.setDeliveryParallelism(1, MetricsTrailConsumer.DeliveryOrdering.UNORDERED);
+        consumer.setDeliveryRetryIntervals(200);
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(consumer);
+
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A");
+        trail.commit(eventA);
+        Event eventB = new Event(TEST_EVENT_PREFIX+"B");
+        trail.commit(eventB);
+        waitUntilConsumed();
+
+        assertEquals(Arrays.asList(eventB, eventA), consumed);
+    }
+}
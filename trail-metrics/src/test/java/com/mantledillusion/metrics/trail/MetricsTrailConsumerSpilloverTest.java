@@ -0,0 +1,191 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.Measurement;
+import com.mantledillusion.metrics.trail.api.MeasurementType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTrailConsumerSpilloverTest extends AbstractMetricsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testInvalidSpillover() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        assertThrows(IllegalArgumentException.class, () -> consumer.setSpillover(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> consumer.setSpillover(this.directory, -1));
+        assertThrows(IllegalArgumentException.class, () -> consumer.setSpillover(this.directory, 0, 0));
+
+        consumer.setSpillover(this.directory, 0);
+        assertEquals(this.directory, consumer.getSpilloverDirectory());
+        assertThrows(IllegalStateException.class, () -> consumer.setSpillover(this.directory, 0));
+        assertThrows(IllegalStateException.class, () -> consumer.setDeliveryParallelism(2, MetricsTrailConsumer.DeliveryOrdering.PER_TRAIL));
+    }
+
+    @Test
+    public void testLogRoundTrip() throws IOException {
+        MetricsSpillLog log = new MetricsSpillLog(this.directory, "0", 64, Collections.emptyList());
+        Event eventA = new Event(TEST_EVENT_PREFIX+"A",
+                new Measurement("string", "value", MeasurementType.STRING),
+                new Measurement("long", "42", MeasurementType.LONG),
+                new Measurement("null", null, null));
+        Event eventB = new Event(null);
+        eventB.setTimestamp(null);
+        log.append(TRAIL_ID, eventA);
+        log.append(TRAIL_ID, eventB);
+        assertEquals(2, log.size());
+        // the segment size is exceeded by the first event already
+        assertEquals(2, countSegments());
+
+        List<Event> read = new ArrayList<>();
+        assertEquals(2, log.read(10, (correlationId, event) -> {
+            assertEquals(TRAIL_ID, correlationId);
+            read.add(event);
+        }));
+        assertEquals(eventA, read.get(0));
+        assertEquals(eventB, read.get(1));
+        assertTrue(log.isEmpty());
+        assertTrue(log.hasUnacknowledged());
+
+        log.acknowledge();
+        assertEquals(0, countSegments());
+    }
+
+    @Test
+    public void testSpillWhileFailing() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        List<Event> consumed = new CopyOnWriteArrayList<>();
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            if (failing.get()) {
+                throw new IllegalStateException();
+            }
+            consumed.add(event);
+        });
+        consumer.setDeliveryRetryIntervals(50);
+        consumer.setSpillover(this.directory, 0);
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(consumer);
+
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Event event = new Event(TEST_EVENT_PREFIX+i);
+            events.add(event);
+            trail.commit(event);
+        }
+
+        waitUntilSegments();
+        failing.set(false);
+        waitUntilConsumed();
+
+        assertEquals(events, consumed);
+        waitUntil(() -> countSegments() == 0);
+    }
+
+    @Test
+    public void testRecovery() {
+        MetricsTrailConsumer failingConsumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            throw new IllegalStateException();
+        });
+        failingConsumer.setDeliveryRetryIntervals(60000);
+        failingConsumer.setSpillover(this.directory, 0);
+
+        MetricsTrail failingTrail = new MetricsTrail(TRAIL_ID);
+        failingTrail.hook(failingConsumer);
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Event event = new Event(TEST_EVENT_PREFIX+i);
+            events.add(event);
+            failingTrail.commit(event);
+        }
+        waitUntilSegments();
+
+        List<Event> recovered = new CopyOnWriteArrayList<>();
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            assertEquals(TRAIL_ID, correlationId);
+            recovered.add(event);
+        });
+        // the failing consumer might still be spilling the last events
+        waitUntil(() -> countSpilled() == events.size());
+        consumer.setSpillover(this.directory, 0);
+
+        waitUntil(() -> recovered.size() == events.size());
+        assertEquals(events, recovered);
+    }
+
+    @Test
+    public void testRecoveryOfEmptySegments() throws IOException {
+        MetricsSpillLog log = new MetricsSpillLog(this.directory, "0", 64, Collections.emptyList());
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Event event = new Event(TEST_EVENT_PREFIX+i);
+            events.add(event);
+            log.append(TRAIL_ID, event);
+        }
+        // segments the JVM ended on while creating them are empty or shorter than their header
+        long segments = countSegments();
+        Files.createFile(this.directory.resolve("0-" + String.format("%020d", segments) + MetricsSpillLog.SEGMENT_SUFFIX));
+        Files.write(this.directory.resolve("0-" + String.format("%020d", segments + 1) + MetricsSpillLog.SEGMENT_SUFFIX), new byte[2]);
+
+        List<Event> recovered = new CopyOnWriteArrayList<>();
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            assertEquals(TRAIL_ID, correlationId);
+            recovered.add(event);
+        });
+        consumer.setSpillover(this.directory, 0);
+
+        waitUntil(() -> recovered.size() == events.size());
+        assertEquals(events, recovered);
+        waitUntil(() -> countSegments() == 0);
+    }
+
+    private void waitUntilSegments() {
+        waitUntil(() -> countSegments() > 0);
+    }
+
+    private long countSegments() {
+        try (Stream<Path> segments = Files.list(this.directory)) {
+            return segments.count();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to list segments", e);
+        }
+    }
+
+    private long countSpilled() {
+        try (Stream<Path> segments = Files.list(this.directory).sorted()) {
+            List<Path> paths = new ArrayList<>();
+            segments.forEach(paths::add);
+            return new MetricsSpillLog(this.directory, UUID.randomUUID().toString(), 64, paths).size();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read segments", e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met in time");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Unable to wait", e);
+            }
+        }
+    }
+}
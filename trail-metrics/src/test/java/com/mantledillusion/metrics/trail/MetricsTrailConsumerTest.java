@@ -1,10 +1,21 @@
 package com.mantledillusion.metrics.trail;
 
+import com.mantledillusion.metrics.trail.api.DeferredMeasurement;
 import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.Measurement;
+import com.mantledillusion.metrics.trail.api.MeasurementType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class MetricsTrailConsumerTest extends AbstractMetricsTest {
 
@@ -59,6 +70,60 @@ public class MetricsTrailConsumerTest extends AbstractMetricsTest {
 		testPredicates(null, filter, expectedCounts);
 	}
 	
+	@Test
+	public void testDeferredMeasurement() {
+		AtomicInteger rendered = new AtomicInteger();
+		Set<Thread> renderingThreads = ConcurrentHashMap.newKeySet();
+		Supplier<String> supplier = () -> {
+			rendered.incrementAndGet();
+			renderingThreads.add(Thread.currentThread());
+			return "value";
+		};
+		MetricsPredicate filter = event -> event.getIdentifier().startsWith(TEST_IMPORTANT_EVENT_PREFIX);
+		this.queue = this.trail.hook(MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+			event.getMeasurements().forEach(Measurement::getValue);
+			this.consumer.consume(consumerId, correlationId, event);
+		}, null, filter));
+
+		// FILTERED EVENTS ARE NEVER RENDERED
+		this.trail.commit(new Event(TEST_EVENT_PREFIX+"A", new DeferredMeasurement("key", supplier, MeasurementType.STRING)));
+		waitUntilConsumed();
+		assertEquals(0, this.consumer.size(TRAIL_ID));
+		assertEquals(0, rendered.get());
+
+		// ACCEPTED EVENTS ARE RENDERED ONCE ON DELIVERY
+		DeferredMeasurement measurement = new DeferredMeasurement("key", supplier, MeasurementType.STRING);
+		this.trail.commit(new Event(TEST_IMPORTANT_EVENT_PREFIX+"B", measurement));
+		waitUntilConsumed();
+		assertEquals(1, this.consumer.size(TRAIL_ID));
+		assertEquals("value", measurement.getValue());
+		assertEquals(1, rendered.get());
+		assertFalse(renderingThreads.contains(Thread.currentThread()));
+	}
+
+	@Test
+	public void testFailingDeferredMeasurement() {
+		AtomicInteger rendered = new AtomicInteger();
+		Supplier<String> supplier = () -> {
+			rendered.incrementAndGet();
+			throw new IllegalStateException();
+		};
+		this.queue = this.trail.hook(MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+			event.getMeasurements().forEach(Measurement::getValue);
+			this.consumer.consume(consumerId, correlationId, event);
+		}));
+
+		// A FAILING SUPPLIER DOES NOT FAIL THE DELIVERY RENDERING IT
+		DeferredMeasurement measurement = new DeferredMeasurement("key", supplier, MeasurementType.STRING);
+		this.trail.commit(new Event(TEST_EVENT_PREFIX+"A", measurement));
+		waitUntilConsumed();
+		assertEquals(1, this.consumer.size(TRAIL_ID));
+		assertEquals(0, this.consumer.fails(TRAIL_ID));
+		assertTrue(measurement.isResolved());
+		assertNull(measurement.getValue());
+		assertEquals(1, rendered.get());
+	}
+
 	private void testPredicates(MetricsPredicate gate, MetricsPredicate filter, int[][] expectedCounts) {
 		this.queue = this.trail.hook(MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer, gate, filter));
 
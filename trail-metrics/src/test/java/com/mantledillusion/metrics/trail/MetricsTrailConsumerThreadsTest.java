@@ -0,0 +1,67 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class MetricsTrailConsumerThreadsTest extends AbstractMetricsTest {
+
+    @Test
+    public void testInvalidDeliveryThreads() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        assertThrows(IllegalArgumentException.class, () -> consumer.setDeliveryThreads(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> consumer.setDeliveryThreads(MetricsTrailConsumer.DeliveryThreads.PLATFORM, 0));
+        if (!MetricsTrailConsumer.isVirtualThreadDeliverySupported()) {
+            assertThrows(IllegalStateException.class, () -> consumer.setDeliveryThreads(MetricsTrailConsumer.DeliveryThreads.VIRTUAL, 1));
+            assertEquals(MetricsTrailConsumer.DeliveryThreads.PLATFORM, consumer.getDeliveryThreads());
+        }
+    }
+
+    @Test
+    public void testMaxInFlight() throws InterruptedException {
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+        CountDownLatch consumed = new CountDownLatch(8);
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> {
+            max.accumulateAndGet(current.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            current.decrementAndGet();
+            consumed.countDown();
+        });
+        consumer.setDeliveryParallelism(4, MetricsTrailConsumer.DeliveryOrdering.UNORDERED);
+        consumer.setDeliveryThreads(MetricsTrailConsumer.DeliveryThreads.PLATFORM, 2);
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(consumer);
+        for (int i = 0; i < 8; i++) {
+            trail.commit(new Event(TEST_EVENT_PREFIX+i));
+        }
+
+        assertTrue(consumed.await(5, TimeUnit.SECONDS));
+        assertTrue(max.get() <= 2);
+    }
+
+    @Test
+    public void testVirtualThreadDelivery() {
+        assumeTrue(MetricsTrailConsumer.isVirtualThreadDeliverySupported());
+
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        consumer.setDeliveryParallelism(16, MetricsTrailConsumer.DeliveryOrdering.PER_TRAIL);
+        consumer.setDeliveryThreads(MetricsTrailConsumer.DeliveryThreads.VIRTUAL, 4);
+
+        MetricsTrail trail = new MetricsTrail(UUID.randomUUID());
+        this.queue = trail.hook(consumer);
+        Event event = new Event(TEST_EVENT_PREFIX+"A");
+        trail.commit(event);
+        waitUntilConsumed();
+
+        assertSame(event, this.consumer.dequeueOne(trail.getCorrelationId()));
+    }
+}
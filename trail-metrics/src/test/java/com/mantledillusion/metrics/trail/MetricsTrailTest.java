@@ -1,8 +1,19 @@
 package com.mantledillusion.metrics.trail;
 
+import com.mantledillusion.metrics.trail.api.Event;
+import com.mantledillusion.metrics.trail.api.FrozenEvent;
+import com.mantledillusion.metrics.trail.api.Measurement;
+import com.mantledillusion.metrics.trail.api.MeasurementType;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 public class MetricsTrailTest extends AbstractMetricsTest {
 
     @Test
@@ -27,4 +38,265 @@ public class MetricsTrailTest extends AbstractMetricsTest {
         MetricsTrail trail = new MetricsTrail(TRAIL_ID);
         Assertions.assertThrows(IllegalArgumentException.class, () -> trail.commit(null));
     }
+
+    @Test
+    public void invalidInterests() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> consumer.setInterests((String[]) null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> consumer.setInterests(TEST_EVENT_PREFIX, ""));
+    }
+
+    @Test
+    public void commitAll() throws InterruptedException {
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer));
+        MockConsumer importantConsumer = new MockConsumer();
+        MetricsTrailConsumer interested = MetricsTrailConsumer.from(TEST_CONSUMER, importantConsumer);
+        interested.setInterests(TEST_IMPORTANT_EVENT_PREFIX + MetricsTrailConsumer.INTEREST_WILDCARD);
+        trail.hookLazily(interested);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> trail.commitAll(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> trail.commitAll(
+                Arrays.asList(new Event(TEST_EVENT_PREFIX + "A"), null)));
+        waitUntilConsumed();
+        Assertions.assertEquals(0, this.consumer.size(TRAIL_ID));
+
+        Event eventA = new Event(TEST_EVENT_PREFIX + "A");
+        Event eventB = new Event(TEST_IMPORTANT_EVENT_PREFIX + "B");
+        Event eventC = new Event(TEST_EVENT_PREFIX + "C");
+        trail.commitAll(Arrays.asList(eventA, eventB, eventC));
+        waitUntilConsumed();
+        Assertions.assertSame(eventA, this.consumer.dequeueOne(TRAIL_ID));
+        Assertions.assertSame(eventB, this.consumer.dequeueOne(TRAIL_ID));
+        Assertions.assertSame(eventC, this.consumer.dequeueOne(TRAIL_ID));
+
+        // the lazily hooked consumer only receives the event it is interested in
+        while (importantConsumer.size(TRAIL_ID) == 0) {
+            Thread.sleep(10);
+        }
+        Assertions.assertSame(eventB, importantConsumer.dequeueOne(TRAIL_ID));
+        Assertions.assertEquals(0, importantConsumer.size(TRAIL_ID));
+    }
+
+    @Test
+    public void commitFrozen() {
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer));
+
+        FrozenEvent event = new Event(TEST_EVENT_PREFIX + "A",
+                new Measurement("key", "1", MeasurementType.INTEGER)).freeze();
+        trail.commit(event);
+        waitUntilConsumed();
+        Assertions.assertSame(event, this.consumer.dequeueOne(TRAIL_ID));
+    }
+
+    @Test
+    public void interestedConsumer() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        consumer.setInterests(TEST_IMPORTANT_EVENT_PREFIX + MetricsTrailConsumer.INTEREST_WILDCARD, TEST_EVENT_PREFIX + "exact");
+        Assertions.assertTrue(consumer.isInterestedIn(TEST_IMPORTANT_EVENT_PREFIX + "A"));
+        Assertions.assertTrue(consumer.isInterestedIn(TEST_EVENT_PREFIX + "exact"));
+        Assertions.assertFalse(consumer.isInterestedIn(TEST_EVENT_PREFIX + "exactly"));
+        Assertions.assertFalse(consumer.isInterestedIn(TEST_EVENT_PREFIX + "A"));
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        this.queue = trail.hook(consumer);
+        trail.commit(new Event(TEST_EVENT_PREFIX + "A"));
+        Event event = new Event(TEST_IMPORTANT_EVENT_PREFIX + "B");
+        trail.commit(event);
+        waitUntilConsumed();
+        Assertions.assertSame(event, this.consumer.dequeueOne(TRAIL_ID));
+        Assertions.assertEquals(0, this.consumer.size(TRAIL_ID));
+
+        consumer.setInterests();
+        Assertions.assertTrue(consumer.getInterests().isEmpty());
+        Assertions.assertTrue(consumer.isInterestedIn(TEST_EVENT_PREFIX + "A"));
+    }
+
+    @Test
+    public void hookLazily() {
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer,
+                event -> false, null);
+        consumer.setInterests(TEST_IMPORTANT_EVENT_PREFIX + MetricsTrailConsumer.INTEREST_WILDCARD);
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        trail.hookLazily(consumer);
+        trail.commit(new Event(TEST_EVENT_PREFIX + "A"));
+        // no queue has been created that could hold the event
+        Assertions.assertFalse(trail.hasGated());
+
+        trail.commit(new Event(TEST_IMPORTANT_EVENT_PREFIX + "B"));
+        Assertions.assertTrue(trail.hasGated());
+    }
+
+    @Test
+    public void routeByInterest() {
+        MetricsTrailConsumer webConsumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        webConsumer.setInterests("web.*");
+        MetricsTrailConsumer requestConsumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        requestConsumer.setInterests("web.request", "jms.*");
+        MetricsTrailConsumer allConsumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+
+        MetricsRoutingTable.Route route = MetricsTrailConsumer.ROUTING_TABLE.route("web.request");
+        Assertions.assertTrue(route.accepts(webConsumer.getRoutingIndex()));
+        Assertions.assertTrue(route.accepts(requestConsumer.getRoutingIndex()));
+        Assertions.assertTrue(route.accepts(allConsumer.getRoutingIndex()));
+
+        route = MetricsTrailConsumer.ROUTING_TABLE.route("jms.message");
+        Assertions.assertFalse(route.accepts(webConsumer.getRoutingIndex()));
+        Assertions.assertTrue(route.accepts(requestConsumer.getRoutingIndex()));
+
+        // the cached route is replaced when interests change
+        webConsumer.setInterests("jms.*");
+        Assertions.assertTrue(webConsumer.isInterestedIn("jms.message"));
+        Assertions.assertFalse(webConsumer.isInterestedIn("web.request"));
+    }
+
+    @Test
+    public void isInterested() {
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        Assertions.assertFalse(trail.isInterested(TEST_EVENT_PREFIX+"A"));
+
+        MetricsTrailConsumer deferredConsumer = MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer);
+        deferredConsumer.setInterests(TEST_IMPORTANT_EVENT_PREFIX+"*");
+        trail.hookLazily(deferredConsumer);
+        Assertions.assertTrue(trail.isInterested(TEST_IMPORTANT_EVENT_PREFIX+"A"));
+        Assertions.assertFalse(trail.isInterested(TEST_EVENT_PREFIX+"A"));
+
+        this.queue = trail.hook(MetricsTrailConsumer.from(TEST_CONSUMER, this.consumer));
+        Assertions.assertTrue(trail.isInterested(TEST_EVENT_PREFIX+"A"));
+
+        trail.end();
+        Assertions.assertFalse(trail.isInterested(TEST_IMPORTANT_EVENT_PREFIX+"A"));
+    }
+
+    @Test
+    public void invalidParallelFanOutThreshold() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MetricsTrail.setParallelFanOutThreshold(0));
+        Assertions.assertEquals(MetricsTrail.DEFAULT_PARALLEL_FAN_OUT_THRESHOLD, MetricsTrail.getParallelFanOutThreshold());
+    }
+
+    @Test
+    public void concurrentCommitBelowParallelFanOut() throws InterruptedException {
+        concurrentCommit(MetricsTrail.DEFAULT_PARALLEL_FAN_OUT_THRESHOLD / 4, false);
+    }
+
+    @Test
+    public void concurrentCommitAboveParallelFanOut() throws InterruptedException {
+        concurrentCommit(MetricsTrail.DEFAULT_PARALLEL_FAN_OUT_THRESHOLD + 1, false);
+    }
+
+    @Test
+    public void concurrentCommitCrossingParallelFanOut() throws InterruptedException {
+        concurrentCommit(MetricsTrail.DEFAULT_PARALLEL_FAN_OUT_THRESHOLD - 4, false);
+    }
+
+    @Test
+    public void concurrentCommitGated() throws InterruptedException {
+        concurrentCommit(MetricsTrail.DEFAULT_PARALLEL_FAN_OUT_THRESHOLD / 4, true);
+    }
+
+    private void concurrentCommit(int fanOut, boolean gated) throws InterruptedException {
+        int threads = 4;
+        int events = 500;
+        int lateHooks = 8;
+
+        MetricsTrail trail = new MetricsTrail(TRAIL_ID);
+        List<List<Event>> consumed = new ArrayList<>();
+        List<MetricsTrailConsumer.MetricsTrailConsumerQueue> queues = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < fanOut + lateHooks; i++) {
+            consumed.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        for (int i = 0; i < fanOut; i++) {
+            queues.add(trail.hook(recordingConsumer(consumed.get(i), gated)));
+        }
+
+        // every committing thread commits its events in order, while consumers are hooked and the trail is ended
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicIntegerArray committed = new AtomicIntegerArray(threads);
+        List<Thread> committers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            committers.add(new Thread(() -> {
+                awaitUninterruptibly(start);
+                for (int i = 0; i < events; i++) {
+                    trail.commit(new Event(TEST_EVENT_PREFIX + thread + "." + i));
+                    committed.set(thread, i + 1);
+                }
+            }));
+        }
+        Thread hooker = new Thread(() -> {
+            awaitUninterruptibly(start);
+            for (int i = fanOut; i < fanOut + lateHooks; i++) {
+                queues.add(trail.hook(recordingConsumer(consumed.get(i), gated)));
+                Thread.yield();
+            }
+        });
+        committers.forEach(Thread::start);
+        hooker.start();
+        start.countDown();
+
+        hooker.join();
+        while (committed.get(0) < events / 2) {
+            Thread.yield();
+        }
+        int[] committedBeforeEnd = new int[threads];
+        for (int t = 0; t < threads; t++) {
+            committedBeforeEnd[t] = committed.get(t);
+        }
+        trail.end();
+        for (Thread committer : committers) {
+            committer.join();
+        }
+        while (queues.stream().anyMatch(MetricsTrailConsumer.MetricsTrailConsumerQueue::isDelivering)) {
+            Thread.sleep(10);
+        }
+        // events gated concurrently to the end are flushed as well instead of being left behind in the gate
+        for (MetricsTrailConsumer.MetricsTrailConsumerQueue queue : queues) {
+            Assertions.assertFalse(queue.hasGated());
+        }
+
+        for (int c = 0; c < consumed.size(); c++) {
+            int[] next = new int[threads];
+            Arrays.fill(next, -1);
+            for (Event event : consumed.get(c)) {
+                String[] parts = event.getIdentifier().substring(TEST_EVENT_PREFIX.length()).split("\\.");
+                int thread = Integer.parseInt(parts[0]);
+                int sequence = Integer.parseInt(parts[1]);
+                // a queue hooked before the commits began receives every thread's events from the first one on
+                if (next[thread] == -1 && c < fanOut) {
+                    next[thread] = 0;
+                }
+                // no event is lost, duplicated or reordered within what a queue has received
+                Assertions.assertTrue(next[thread] == -1 || next[thread] == sequence,
+                        "Consumer " + c + " received event " + sequence + " of thread " + thread + " instead of " + next[thread]);
+                next[thread] = sequence + 1;
+            }
+            if (c < fanOut) {
+                for (int t = 0; t < threads; t++) {
+                    Assertions.assertTrue(next[t] >= committedBeforeEnd[t],
+                            "Consumer " + c + " missed events of thread " + t + " committed before the trail ended");
+                }
+            }
+        }
+    }
+
+    private static MetricsTrailConsumer recordingConsumer(List<Event> consumed, boolean gated) {
+        if (!gated) {
+            return MetricsTrailConsumer.from(TEST_CONSUMER, (consumerId, correlationId, event) -> consumed.add(event));
+        }
+        // the gate never opens, so the events are only delivered by flushing them when the trail ends
+        MetricsTrailConsumer consumer = MetricsTrailConsumer.from(TEST_CONSUMER,
+                (consumerId, correlationId, event) -> consumed.add(event), event -> false, null);
+        consumer.setDoFlushOnTrailEnd(true);
+        return consumer;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
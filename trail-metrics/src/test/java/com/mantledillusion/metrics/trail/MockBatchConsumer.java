@@ -0,0 +1,38 @@
+package com.mantledillusion.metrics.trail;
+
+import com.mantledillusion.metrics.trail.api.Event;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+public class MockBatchConsumer implements MetricsBatchConsumer {
+
+	private final List<List<Event>> batches = new CopyOnWriteArrayList<>();
+	private final List<List<Event>> failedBatches = new CopyOnWriteArrayList<>();
+	private int acknowledgeBeforeFailing = -1;
+
+	@Override
+	public void consume(String consumerId, List<BatchedEvent> batch) throws Exception {
+		List<Event> events = batch.stream().map(BatchedEvent::getEvent).collect(Collectors.toList());
+		if (this.acknowledgeBeforeFailing >= 0) {
+			batch.stream().limit(this.acknowledgeBeforeFailing).forEach(BatchedEvent::acknowledge);
+			this.acknowledgeBeforeFailing = -1;
+			this.failedBatches.add(events);
+			throw new IllegalStateException();
+		}
+		this.batches.add(events);
+	}
+
+	List<List<Event>> batches() {
+		return this.batches;
+	}
+
+	List<List<Event>> failedBatches() {
+		return this.failedBatches;
+	}
+
+	void failPartially(int acknowledgedCount) {
+		this.acknowledgeBeforeFailing = acknowledgedCount;
+	}
+}
@@ -0,0 +1,75 @@
+package com.mantledillusion.metrics.trail;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MpscChunkedQueueTest {
+
+    @Test
+    public void testFifoAcrossChunks() {
+        MpscChunkedQueue<String, Integer> queue = new MpscChunkedQueue<>();
+        int count = MpscChunkedQueue.CHUNK_SIZE * 3 + 7;
+        for (int i = 0; i < count; i++) {
+            queue.offer("source", i);
+        }
+        assertEquals(count, queue.size());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(10, queue.drain(10, (source, element) -> drained.add(element)));
+        assertEquals(count - 10, queue.size());
+        queue.drain(Integer.MAX_VALUE, (source, element) -> drained.add(element));
+
+        assertTrue(queue.isEmpty());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, drained.get(i));
+        }
+    }
+
+    @Test
+    public void testFifoPerProducer() throws InterruptedException {
+        MpscChunkedQueue<Integer, Integer> queue = new MpscChunkedQueue<>();
+        int producers = 8;
+        int count = MpscChunkedQueue.CHUNK_SIZE * 4;
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < count; i++) {
+                    queue.offer(producer, i);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+
+        int[] next = new int[producers];
+        int drained = 0;
+        while (drained < producers * count) {
+            drained += queue.drain(100, (producer, element) -> {
+                assertEquals(next[producer], element);
+                next[producer]++;
+            });
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(queue.isEmpty());
+        for (int p = 0; p < producers; p++) {
+            assertEquals(count, next[p]);
+        }
+    }
+}